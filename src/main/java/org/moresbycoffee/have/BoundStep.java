@@ -0,0 +1,139 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+/**
+ * A step of a scenario bound to its {@link StepCandidate} ahead of the execution.
+ * If the step could not be bound, it holds the binding error instead of the match.
+ * The step templates of the scenario outlines are bound without converting their
+ * arguments, which still contain the placeholders of the examples.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+final class BoundStep {
+
+    /** The step description with the keyword. (NonNull) */
+    private final String    step;
+    /** The matched step candidate with the parameter values. (Nullable) */
+    private final StepMatch match;
+    /** The converted parameter values. (Nullable) */
+    private final Object[]  values;
+    /** The binding error. (Nullable) */
+    private final Throwable error;
+    /** Whether the step is a template with placeholders. */
+    private final boolean   template;
+
+    /**
+     * @param step The step description with the keyword. (NonNull)
+     * @param match The matched step candidate with the parameter values. (NonNull)
+     * @param values The converted parameter values. (NonNull)
+     */
+    BoundStep(final String step, final StepMatch match, final Object[] values) {
+        this.step     = step;
+        this.match    = match;
+        this.values   = values;
+        this.error    = null;
+        this.template = false;
+    }
+
+    /**
+     * Creates a bound step template of a scenario outline.
+     *
+     * @param step The step template with the keyword. (NonNull)
+     * @param match The matched step candidate with the arguments containing the placeholders.
+     *        <tt>null</tt> if the template does not match and the step has to be matched for
+     *        each example. (Nullable)
+     */
+    BoundStep(final String step, final StepMatch match) {
+        this.step     = step;
+        this.match    = match;
+        this.values   = null;
+        this.error    = null;
+        this.template = true;
+    }
+
+    /**
+     * @param step The step description with the keyword. (NonNull)
+     * @param error The binding error. (NonNull)
+     */
+    BoundStep(final String step, final Throwable error) {
+        this.step     = step;
+        this.match    = null;
+        this.values   = null;
+        this.error    = error;
+        this.template = false;
+    }
+
+    /**
+     * @return The step description with the keyword. (NonNull)
+     */
+    String getStep() {
+        return step;
+    }
+
+    /**
+     * @return The matched step candidate with the parameter values.
+     *         <tt>null</tt> if the step could not be bound. (Nullable)
+     */
+    StepMatch getMatch() {
+        return match;
+    }
+
+    /**
+     * @return The converted parameter values in the order of the placeholders.
+     *         <tt>null</tt> if the step could not be bound or it is a template. (Nullable)
+     */
+    Object[] getValues() {
+        return values;
+    }
+
+    /**
+     * @return The binding error. <tt>null</tt> if the step is bound. (Nullable)
+     */
+    Throwable getError() {
+        return error;
+    }
+
+    /**
+     * @return <tt>true</tt> if the step is bound to a step candidate.
+     */
+    boolean isBound() {
+        return error == null;
+    }
+
+    /**
+     * @return <tt>true</tt> if the step is a template of a scenario outline which has to be
+     *         completed by the values of an example.
+     */
+    boolean isTemplate() {
+        return template;
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.runner.Description;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunNotifier;
+
+/**
+ * A {@link RunNotifier} which records the events instead of firing them. The recorded events
+ * can be replayed to another notifier later. It lets a scenario run on a worker thread while
+ * its events are reported on the JUnit thread in the order of the stories and scenarios.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+final class BufferedNotifier extends RunNotifier {
+
+    private enum EventType { STARTED, FAILURE, ASSUMPTION_FAILED, IGNORED, FINISHED }
+
+    private static final class Event {
+
+        private final EventType   type;
+        private final Description description;
+        private final Failure     failure;
+
+        private Event(final EventType type, final Description description, final Failure failure) {
+            this.type        = type;
+            this.description = description;
+            this.failure     = failure;
+        }
+    }
+
+    /** The recorded events. Written by the worker thread and read after the scenario is finished. */
+    private final List<Event> events = new ArrayList<Event>();
+
+    /** {@inheritDoc} */
+    @Override
+    public void fireTestStarted(final Description description) {
+        events.add(new Event(EventType.STARTED, description, null));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void fireTestFailure(final Failure failure) {
+        events.add(new Event(EventType.FAILURE, failure.getDescription(), failure));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void fireTestAssumptionFailed(final Failure failure) {
+        events.add(new Event(EventType.ASSUMPTION_FAILED, failure.getDescription(), failure));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void fireTestIgnored(final Description description) {
+        events.add(new Event(EventType.IGNORED, description, null));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void fireTestFinished(final Description description) {
+        events.add(new Event(EventType.FINISHED, description, null));
+    }
+
+    /**
+     * Fires the recorded events in the recorded order.
+     *
+     * @param notifier The notifier to fire the events on. (NonNull)
+     */
+    void replay(final RunNotifier notifier) {
+        for (final Event event : events) {
+            switch (event.type) {
+                case STARTED:
+                    notifier.fireTestStarted(event.description);
+                    break;
+                case FAILURE:
+                    notifier.fireTestFailure(event.failure);
+                    break;
+                case ASSUMPTION_FAILED:
+                    notifier.fireTestAssumptionFailed(event.failure);
+                    break;
+                case IGNORED:
+                    notifier.fireTestIgnored(event.description);
+                    break;
+                case FINISHED:
+                    notifier.fireTestFinished(event.description);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown event: " + event.type);
+            }
+        }
+        events.clear();
+    }
+
+}
@@ -0,0 +1,413 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>A minimal class file reader picking up the local variable names of the methods from the
+ * <tt>LocalVariableTable</tt> attributes, which are present if the class has been compiled with
+ * debug information.</p>
+ * <p>It also hashes the bytecode of the methods. The instructions refer to the constant pool of
+ * the class, so the hash of a method covers its instructions, its exception table and the whole
+ * constant pool: a changed constant changes the hash of every method of the class. The debug
+ * attributes (e.g. the line numbers) do not take part in the hash.</p>
+ * <p>Each class file is read once and the result is cached by the class, so the later lookups
+ * of any method of the class do not touch the class path.</p>
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+final class ClassFileReader {
+
+    /** Logger. */
+    private static final Logger LOG = Logger.getLogger(ClassFileReader.class.getName());
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    /** The constant pool tags. */
+    private static final int CONSTANT_UTF8                = 1;
+    private static final int CONSTANT_INTEGER             = 3;
+    private static final int CONSTANT_FLOAT               = 4;
+    private static final int CONSTANT_LONG                = 5;
+    private static final int CONSTANT_DOUBLE              = 6;
+    private static final int CONSTANT_CLASS               = 7;
+    private static final int CONSTANT_STRING              = 8;
+    private static final int CONSTANT_FIELDREF            = 9;
+    private static final int CONSTANT_METHODREF           = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE       = 12;
+    private static final int CONSTANT_METHOD_HANDLE       = 15;
+    private static final int CONSTANT_METHOD_TYPE         = 16;
+    private static final int CONSTANT_DYNAMIC             = 17;
+    private static final int CONSTANT_INVOKE_DYNAMIC      = 18;
+    private static final int CONSTANT_MODULE              = 19;
+    private static final int CONSTANT_PACKAGE             = 20;
+
+    private static final ClassValue<ClassFileReader> READERS = new ClassValue<ClassFileReader>() {
+        @Override
+        protected ClassFileReader computeValue(final Class<?> type) {
+            return read(type);
+        }
+    };
+
+    /** The local variable names by slot of the methods by {@link #getMethodKey(String, String) method key}. */
+    private final Map<String, String[]> localVariableNames;
+    /** The SHA-1 hashes of the code of the methods by {@link #getMethodKey(String, String) method key}. */
+    private final Map<String, byte[]>   codeHashes;
+
+    private ClassFileReader(final Map<String, String[]> localVariableNames, final Map<String, byte[]> codeHashes) {
+        this.localVariableNames = localVariableNames;
+        this.codeHashes         = codeHashes;
+    }
+
+    /**
+     * @param type The class. (NonNull)
+     * @return The reader of the class file of the class. If the class file is not available the
+     *         reader will not know any method. (NonNull)
+     */
+    static ClassFileReader forClass(final Class<?> type) {
+        return READERS.get(type);
+    }
+
+    /**
+     * Returns the names of the local variables of the method by their slots. The parameters are the
+     * first local variables after <tt>this</tt>.
+     *
+     * @param method A method declared by the class of this reader. (NonNull)
+     * @return The local variable names by slot. <tt>null</tt> if the class has been compiled without
+     *         local variable information. The unknown slots are <tt>null</tt>. (Nullable)
+     */
+    String[] getLocalVariableNames(final Method method) {
+        return localVariableNames.get(getMethodKey(method.getName(), getDescriptor(method)));
+    }
+
+    /**
+     * @param method A method declared by the class of this reader. (NonNull)
+     * @return The SHA-1 hash of the code of the method. <tt>null</tt> if the method is abstract or
+     *         the class file is not available. (Nullable)
+     */
+    byte[] getCodeHash(final Method method) {
+        final byte[] codeHash = codeHashes.get(getMethodKey(method.getName(), getDescriptor(method)));
+        return codeHash != null ? codeHash.clone() : null;
+    }
+
+    /**
+     * @return The SHA-1 hash of the code of all the methods of the class, including the
+     *         constructors (the field initializers) and the static initializer. <tt>null</tt>
+     *         if the class file is not available. (Nullable)
+     */
+    byte[] getClassHash() {
+        if (codeHashes.isEmpty()) {
+            return null;
+        }
+        final MessageDigest digest = createDigest();
+        try {
+            for (final Map.Entry<String, byte[]> codeHash : new TreeMap<String, byte[]>(codeHashes).entrySet()) {
+                digest.update(codeHash.getKey().getBytes("UTF-8"));
+                digest.update(codeHash.getValue());
+            }
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return digest.digest();
+    }
+
+    private static String getMethodKey(final String name, final String descriptor) {
+        return name + descriptor;
+    }
+
+    /**
+     * @param method The method. (NonNull)
+     * @return The JVM descriptor of the method, e.g. <tt>(ILjava/lang/String;)V</tt>. (NonNull)
+     */
+    static String getDescriptor(final Method method) {
+        final StringBuilder descriptor = new StringBuilder("(");
+        for (final Class<?> parameterType : method.getParameterTypes()) {
+            appendDescriptor(descriptor, parameterType);
+        }
+        descriptor.append(')');
+        appendDescriptor(descriptor, method.getReturnType());
+        return descriptor.toString();
+    }
+
+    private static void appendDescriptor(final StringBuilder descriptor, final Class<?> type) {
+        Class<?> elementType = type;
+        while (elementType.isArray()) {
+            descriptor.append('[');
+            elementType = elementType.getComponentType();
+        }
+        if (elementType == Void.TYPE) {
+            descriptor.append('V');
+        } else if (elementType == Boolean.TYPE) {
+            descriptor.append('Z');
+        } else if (elementType == Byte.TYPE) {
+            descriptor.append('B');
+        } else if (elementType == Character.TYPE) {
+            descriptor.append('C');
+        } else if (elementType == Short.TYPE) {
+            descriptor.append('S');
+        } else if (elementType == Integer.TYPE) {
+            descriptor.append('I');
+        } else if (elementType == Long.TYPE) {
+            descriptor.append('J');
+        } else if (elementType == Float.TYPE) {
+            descriptor.append('F');
+        } else if (elementType == Double.TYPE) {
+            descriptor.append('D');
+        } else {
+            descriptor.append('L').append(elementType.getName().replace('.', '/')).append(';');
+        }
+    }
+
+    private static ClassFileReader read(final Class<?> type) {
+        final String resourceName = type.getName().replace('.', '/') + ".class";
+        final ClassLoader classLoader = type.getClassLoader() != null ? type.getClassLoader() : ClassLoader.getSystemClassLoader();
+        final InputStream classIs = classLoader.getResourceAsStream(resourceName);
+        if (classIs == null) {
+            LOG.fine("The class file is not found: " + resourceName);
+            return new ClassFileReader(Collections.<String, String[]>emptyMap(), Collections.<String, byte[]>emptyMap());
+        }
+        try {
+            final ByteArrayOutputStream classFile = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = classIs.read(buffer)) != -1) {
+                classFile.write(buffer, 0, read);
+            }
+            return parse(classFile.toByteArray());
+        } catch (final IOException e) {
+            LOG.log(Level.FINE, "The class file is not readable: " + resourceName, e);
+            return new ClassFileReader(Collections.<String, String[]>emptyMap(), Collections.<String, byte[]>emptyMap());
+        } finally {
+            try {
+                classIs.close();
+            } catch (final IOException e) {
+                LOG.log(Level.FINE, "The class file can not be closed: " + resourceName, e);
+            }
+        }
+    }
+
+    private static ClassFileReader parse(final byte[] classFile) throws IOException {
+        final ByteArrayInputStream bytes = new ByteArrayInputStream(classFile);
+        final DataInputStream      in    = new DataInputStream(bytes);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a class file.");
+        }
+        in.readUnsignedShort(); // minor version
+        in.readUnsignedShort(); // major version
+
+        final int      constantPoolStart = classFile.length - bytes.available();
+        final String[] utf8s             = readConstantPool(in);
+        final MessageDigest digest = createDigest();
+        digest.update(classFile, constantPoolStart, classFile.length - bytes.available() - constantPoolStart);
+        final byte[] constantPoolHash = digest.digest();
+
+        in.readUnsignedShort(); // access flags
+        in.readUnsignedShort(); // this class
+        in.readUnsignedShort(); // super class
+        skipFully(in, 2 * in.readUnsignedShort()); // interfaces
+
+        final int fieldCount = in.readUnsignedShort();
+        for (int i = 0; i < fieldCount; i++) {
+            skipFully(in, 6); // access flags, name, descriptor
+            skipAttributes(in);
+        }
+
+        final Map<String, String[]> methods    = new HashMap<String, String[]>();
+        final Map<String, byte[]>   codeHashes = new HashMap<String, byte[]>();
+        final int methodCount = in.readUnsignedShort();
+        for (int i = 0; i < methodCount; i++) {
+            in.readUnsignedShort(); // access flags
+            final String name       = utf8s[in.readUnsignedShort()];
+            final String descriptor = utf8s[in.readUnsignedShort()];
+            final int attributeCount = in.readUnsignedShort();
+            for (int j = 0; j < attributeCount; j++) {
+                final String attributeName   = utf8s[in.readUnsignedShort()];
+                final int    attributeLength = in.readInt();
+                if ("Code".equals(attributeName)) {
+                    /* Max stack, max locals, code and exception table. */
+                    final int codeStart   = classFile.length - bytes.available();
+                    final int codeLength  = readInt(classFile, codeStart + 4);
+                    final int codeEnd     = codeStart + 8 + codeLength + 2 + 8 * readUnsignedShort(classFile, codeStart + 8 + codeLength);
+                    digest.update(constantPoolHash);
+                    digest.update(classFile, codeStart, codeEnd - codeStart);
+                    codeHashes.put(getMethodKey(name, descriptor), digest.digest());
+
+                    final String[] names = readCodeAttribute(in, utf8s);
+                    if (names != null) {
+                        methods.put(getMethodKey(name, descriptor), names);
+                    }
+                } else {
+                    skipFully(in, attributeLength);
+                }
+            }
+        }
+        return new ClassFileReader(methods, codeHashes);
+    }
+
+    private static int readInt(final byte[] bytes, final int offset) throws IOException {
+        if (offset + 4 > bytes.length) {
+            throw new IOException("Unexpected end of the class file.");
+        }
+        return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16 | (bytes[offset + 2] & 0xFF) << 8 | bytes[offset + 3] & 0xFF;
+    }
+
+    private static int readUnsignedShort(final byte[] bytes, final int offset) throws IOException {
+        if (offset < 0 || offset + 2 > bytes.length) {
+            throw new IOException("Unexpected end of the class file.");
+        }
+        return (bytes[offset] & 0xFF) << 8 | bytes[offset + 1] & 0xFF;
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (final NoSuchAlgorithmException e) {
+            /* Every Java platform supports SHA-1. */
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return The UTF8 constants by their constant pool index. The other entries are <tt>null</tt>.
+     */
+    private static String[] readConstantPool(final DataInputStream in) throws IOException {
+        final int constantPoolCount = in.readUnsignedShort();
+        final String[] utf8s = new String[constantPoolCount];
+        for (int i = 1; i < constantPoolCount; i++) {
+            final int tag = in.readUnsignedByte();
+            switch (tag) {
+                case CONSTANT_UTF8:
+                    utf8s[i] = in.readUTF();
+                    break;
+                case CONSTANT_LONG:
+                case CONSTANT_DOUBLE:
+                    skipFully(in, 8);
+                    i++; // takes two entries
+                    break;
+                case CONSTANT_INTEGER:
+                case CONSTANT_FLOAT:
+                case CONSTANT_FIELDREF:
+                case CONSTANT_METHODREF:
+                case CONSTANT_INTERFACE_METHODREF:
+                case CONSTANT_NAME_AND_TYPE:
+                case CONSTANT_DYNAMIC:
+                case CONSTANT_INVOKE_DYNAMIC:
+                    skipFully(in, 4);
+                    break;
+                case CONSTANT_METHOD_HANDLE:
+                    skipFully(in, 3);
+                    break;
+                case CONSTANT_CLASS:
+                case CONSTANT_STRING:
+                case CONSTANT_METHOD_TYPE:
+                case CONSTANT_MODULE:
+                case CONSTANT_PACKAGE:
+                    skipFully(in, 2);
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag: " + tag);
+            }
+        }
+        return utf8s;
+    }
+
+    /**
+     * Reads the local variable names from the <tt>LocalVariableTable</tt> of a <tt>Code</tt> attribute.
+     * If a slot is reused, the variable starting at the beginning of the method wins.
+     *
+     * @return The local variable names by slot or <tt>null</tt> if there is no local variable table.
+     */
+    private static String[] readCodeAttribute(final DataInputStream in, final String[] utf8s) throws IOException {
+        in.readUnsignedShort(); // max stack
+        final int maxLocals = in.readUnsignedShort();
+        skipFully(in, in.readInt()); // code
+        skipFully(in, 8 * in.readUnsignedShort()); // exception table
+
+        String[] names = null;
+        final int attributeCount = in.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            final String attributeName   = utf8s[in.readUnsignedShort()];
+            final int    attributeLength = in.readInt();
+            if (!"LocalVariableTable".equals(attributeName)) {
+                skipFully(in, attributeLength);
+                continue;
+            }
+            if (names == null) {
+                names = new String[maxLocals];
+            }
+            final int entryCount = in.readUnsignedShort();
+            for (int j = 0; j < entryCount; j++) {
+                final int    startPc = in.readUnsignedShort();
+                in.readUnsignedShort(); // length
+                final String name    = utf8s[in.readUnsignedShort()];
+                in.readUnsignedShort(); // descriptor
+                final int    slot    = in.readUnsignedShort();
+                if (slot < maxLocals && (startPc == 0 || names[slot] == null)) {
+                    names[slot] = name;
+                }
+            }
+        }
+        return names;
+    }
+
+    private static void skipAttributes(final DataInputStream in) throws IOException {
+        final int attributeCount = in.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            in.readUnsignedShort(); // name
+            skipFully(in, in.readInt());
+        }
+    }
+
+    private static void skipFully(final DataInputStream in, final int length) throws IOException {
+        int remaining = length;
+        while (remaining > 0) {
+            final int skipped = in.skipBytes(remaining);
+            if (skipped <= 0) {
+                throw new IOException("Unexpected end of the class file.");
+            }
+            remaining -= skipped;
+        }
+    }
+
+}
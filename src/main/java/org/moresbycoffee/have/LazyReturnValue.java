@@ -0,0 +1,81 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.Callable;
+
+import org.moresbycoffee.have.exceptions.MByHaveException;
+
+/**
+ * A {@link ReturnValue} of a step method returning a <tt>Supplier</tt> or a <tt>Callable</tt>.
+ * The value is computed on the first {@link #getValue()} call and kept for the rest of the
+ * scenario, so the steps which are not inspected cost nothing. Like the {@link ScenarioContext},
+ * it is used only by one thread at a time.
+ *
+ * @param <T> The type of the supplied value.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+final class LazyReturnValue<T> extends ReturnValue<T> {
+
+    /** The supplier of the value. <tt>null</tt> once the value has been computed. */
+    private Callable<? extends T> supplier;
+    private T                     value;
+
+    /**
+     * @param type The supplied type. (NonNull)
+     * @param supplier The supplier of the value. (NonNull)
+     */
+    LazyReturnValue(final Type type, final Callable<? extends T> supplier) {
+        super(type, null);
+        this.supplier = supplier;
+    }
+
+    /**
+     * @return The supplied value. It is computed on the first call. (Nullable)
+     * @throws MByHaveException If the supplier throws a checked exception.
+     */
+    @Override
+    public T getValue() {
+        if (supplier != null) {
+            try {
+                value = supplier.call();
+            } catch (final RuntimeException e) {
+                throw e;
+            } catch (final Exception e) {
+                throw new MByHaveException("The return value could not be computed.", e);
+            }
+            supplier = null;
+        }
+        return value;
+    }
+
+}
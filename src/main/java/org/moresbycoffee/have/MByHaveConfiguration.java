@@ -30,6 +30,8 @@ package org.moresbycoffee.have;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -41,6 +43,8 @@ import java.util.Map;
  * {@link org.junit.After} and {@link org.junit.AfterClass} annotated methods.
  * The JUnit annotated methods has to be stored when the MByHave is used as a
  * JUnitRunner.
+ * The configuration is immutable and thread-safe, it is shared by all the runners and
+ * {@link MByHave} instances of the test class.
  *
  * @author Barnabas Sudy (barnabas.sudy@gmail.com)
  * @since 2012
@@ -49,6 +53,8 @@ public class MByHaveConfiguration {
 
     private final Map<Class<? extends Annotation>, StepKeyword>         keywords;
     private final Map<Class<? extends Annotation>, List<StepCandidate>> candidates;
+    private final Map<Class<? extends Annotation>, StepMatcher>         matchers;
+    private final StepMatchCache                                        stepMatchCache;
 
     private final Class<?> testClass;
 
@@ -56,9 +62,16 @@ public class MByHaveConfiguration {
     private final List<Method> beforeMethods;
     private final List<Method> afterMethods;
     private final List<Method> afterClassMethods;
+
+    private final List<MethodInvoker> beforeClassInvokers;
+    private final List<MethodInvoker> beforeInvokers;
+    private final List<MethodInvoker> afterInvokers;
+    private final List<MethodInvoker> afterClassInvokers;
     /**
      * @param keywords The keywords used as step definitions and descriptions. (NonNull)
      * @param candidates The step candidates to be matched to the step descriptios. (NonNull)
+     * @param matchers The compiled matchers of the step candidates by keyword. (NonNull)
+     * @param stepMatchCache The cache of the resolved steps. (NonNull)
      * @param testClass The test class. (NonNull)
      * @param beforeClassMethods The list of the {@link org.junit.BeforeClass} annotated methods in the test class. (NonNull)
      * @param beforeMethods The list of the {@link org.junit.Before} annotated methods in the test class. (NonNull)
@@ -67,6 +80,8 @@ public class MByHaveConfiguration {
      */
     public MByHaveConfiguration(final Map<Class<? extends Annotation>, StepKeyword> keywords,
                                 final Map<Class<? extends Annotation>, List<StepCandidate>> candidates,
+                                final Map<Class<? extends Annotation>, StepMatcher> matchers,
+                                final StepMatchCache stepMatchCache,
                                 final Class<?> testClass,
                                 final List<Method> beforeClassMethods,
                                 final List<Method> beforeMethods,
@@ -74,11 +89,26 @@ public class MByHaveConfiguration {
                                 final List<Method> afterClassMethods) {
         this.keywords           = keywords;
         this.candidates         = candidates;
+        this.matchers           = matchers;
+        this.stepMatchCache     = stepMatchCache;
         this.testClass          = testClass;
         this.beforeClassMethods = beforeClassMethods;
         this.beforeMethods      = beforeMethods;
         this.afterMethods       = afterMethods;
         this.afterClassMethods  = afterClassMethods;
+
+        this.beforeClassInvokers = createInvokers(beforeClassMethods);
+        this.beforeInvokers      = createInvokers(beforeMethods);
+        this.afterInvokers       = createInvokers(afterMethods);
+        this.afterClassInvokers  = createInvokers(afterClassMethods);
+    }
+
+    private static List<MethodInvoker> createInvokers(final List<Method> methods) {
+        final List<MethodInvoker> invokers = new ArrayList<MethodInvoker>(methods.size());
+        for (final Method method : methods) {
+            invokers.add(MethodInvoker.create(method));
+        }
+        return Collections.unmodifiableList(invokers);
     }
 
     /**
@@ -95,6 +125,20 @@ public class MByHaveConfiguration {
         return candidates;
     }
 
+    /**
+     * @return The compiled matchers (literal prefix tries) of the step candidates by keyword. (NonNull)
+     */
+    public Map<Class<? extends Annotation>, StepMatcher> getMatchers() {
+        return matchers;
+    }
+
+    /**
+     * @return The cache of the resolved steps. (NonNull)
+     */
+    public StepMatchCache getStepMatchCache() {
+        return stepMatchCache;
+    }
+
     /**
      * @return The test class. (NonNull)
      */
@@ -129,4 +173,32 @@ public class MByHaveConfiguration {
         return afterClassMethods;
     }
 
+    /**
+     * @return The invokers of the {@link org.junit.BeforeClass} annotated methods in the test class. (NonNull)
+     */
+    public List<MethodInvoker> getBeforeClassInvokers() {
+        return beforeClassInvokers;
+    }
+
+    /**
+     * @return The invokers of the {@link org.junit.Before} annotated methods in the test class. (NonNull)
+     */
+    public List<MethodInvoker> getBeforeInvokers() {
+        return beforeInvokers;
+    }
+
+    /**
+     * @return The invokers of the {@link org.junit.After} annotated methods in the test class. (NonNull)
+     */
+    public List<MethodInvoker> getAfterInvokers() {
+        return afterInvokers;
+    }
+
+    /**
+     * @return The invokers of the {@link org.junit.AfterClass} annotated methods in the test class. (NonNull)
+     */
+    public List<MethodInvoker> getAfterClassInvokers() {
+        return afterClassInvokers;
+    }
+
 }
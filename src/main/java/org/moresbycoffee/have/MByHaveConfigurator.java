@@ -33,31 +33,31 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Pattern;
 
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.moresbycoffee.have.StepCandidate.MethodParameter;
+import org.moresbycoffee.have.annotations.Converters;
 import org.moresbycoffee.have.annotations.Given;
 import org.moresbycoffee.have.annotations.Then;
 import org.moresbycoffee.have.annotations.When;
+import org.moresbycoffee.have.converters.ParameterConverter;
+import org.moresbycoffee.have.converters.ParameterConverters;
 import org.moresbycoffee.have.exceptions.MByHaveException;
 
 import com.google.common.reflect.TypeToken;
-import com.thoughtworks.paranamer.BytecodeReadingParanamer;
-import com.thoughtworks.paranamer.CachingParanamer;
-import com.thoughtworks.paranamer.Paranamer;
 
 /**
  * Utility class to create {@link MByHaveConfiguration configuration} for {@link MByHaveRunner}.
@@ -81,6 +81,56 @@ public final class MByHaveConfigurator {
 
     }
 
+    /**
+     * The configurations of the already configured classes by the {@link #getSettingsKey(boolean) settings}
+     * they were created with. The configurations are immutable, so they are shared by all the runners
+     * and {@link MByHave} instances of the class.
+     */
+    private static final ClassValue<ConcurrentMap<String, MByHaveConfiguration>> CONFIGURATIONS = new ClassValue<ConcurrentMap<String, MByHaveConfiguration>>() {
+        @Override
+        protected ConcurrentMap<String, MByHaveConfiguration> computeValue(final Class<?> type) {
+            return new ConcurrentHashMap<String, MByHaveConfiguration>();
+        }
+    };
+
+    /**
+     * Returns the {@link MByHaveConfiguration configuration} of the given testClass. The configuration is
+     * created by the first call for the class and reused by the later calls with the same settings. This
+     * method is thread-safe.
+     *
+     * @param testClass The testclass to scan
+     * @param parseJUnitAnnotations If it is <tt>true</tt> than JUnit annotated methods also will be picked up.
+     * @return The configuration.
+     * @see #createConfiguration(Class, boolean)
+     */
+    public static MByHaveConfiguration configure(final Class<?> testClass, final boolean parseJUnitAnnotations) {
+        final ConcurrentMap<String, MByHaveConfiguration> configurations = CONFIGURATIONS.get(testClass);
+        final String settingsKey = getSettingsKey(parseJUnitAnnotations);
+
+        final MByHaveConfiguration configuration = configurations.get(settingsKey);
+        if (configuration != null) {
+            return configuration;
+        }
+        /* Two threads may configure the class at the same time, the first one wins. */
+        final MByHaveConfiguration newConfiguration = createConfiguration(testClass, parseJUnitAnnotations);
+        final MByHaveConfiguration existingConfiguration = configurations.putIfAbsent(settingsKey, newConfiguration);
+        return existingConfiguration != null ? existingConfiguration : newConfiguration;
+    }
+
+    /**
+     * The system properties read during the configuration are part of the key, so changing them
+     * takes effect for the classes configured afterwards.
+     *
+     * @param parseJUnitAnnotations If it is <tt>true</tt> than JUnit annotated methods also will be picked up.
+     * @return The key of the configuration settings. (NonNull)
+     */
+    private static String getSettingsKey(final boolean parseJUnitAnnotations) {
+        return parseJUnitAnnotations
+               + "|" + System.getProperty(StepMatcher.ENGINE_PROPERTY)
+               + "|" + System.getProperty(StepMatchCache.SIZE_PROPERTY)
+               + "|" + System.getProperty(MethodInvoker.MODE_PROPERTY);
+    }
+
     /**
      * Creates a {@link MByHaveConfiguration configuration} by the given testClass. This methos scans the
      * testClass for keyword annotated methods and if the parseJUnitAnnotations is true it will scan for the
@@ -90,11 +140,12 @@ public final class MByHaveConfigurator {
      * @param parseJUnitAnnotations If it is <tt>true</tt> than JUnit annotated methods also will be picked up.
      * @return The configuration.
      */
-    public static MByHaveConfiguration configure(final Class<?> testClass, final boolean parseJUnitAnnotations) {
+    static MByHaveConfiguration createConfiguration(final Class<?> testClass, final boolean parseJUnitAnnotations) {
 
         final Map<Class<? extends Annotation>, List<StepCandidate>> candidates;
 
         candidates = initStepCandidates(testClass);
+        final Map<Class<? extends Annotation>, StepMatcher> matchers = initStepMatchers(candidates);
 
         final List<Method> beforeClassMethods;
         final List<Method> beforeMethods;
@@ -113,7 +164,7 @@ public final class MByHaveConfigurator {
         }
 
 
-        return new MByHaveConfiguration(KEYWORDS, candidates, testClass, beforeClassMethods, beforeMethods, afterMethods, afterClassMethods);
+        return new MByHaveConfiguration(KEYWORDS, candidates, matchers, StepMatchCache.create(), testClass, beforeClassMethods, beforeMethods, afterMethods, afterClassMethods);
     }
 
     /**
@@ -124,12 +175,28 @@ public final class MByHaveConfigurator {
      */
     private static Map<Class<? extends Annotation>, List<StepCandidate>> initStepCandidates(final Class<?> testClass) {
         final Map<Class<? extends Annotation>, List<StepCandidate>> mutableCandidates = new HashMap<Class<? extends Annotation>, List<StepCandidate>>();
+        final List<ParameterConverter<?>> converters = getConverters(testClass);
         for (final Class<? extends Annotation> annotation : KEYWORDS.keySet()) {
-            mutableCandidates.put(annotation, initStepCandidates(annotation, testClass));
+            mutableCandidates.put(annotation, initStepCandidates(annotation, testClass, converters));
         }
         return Collections.unmodifiableMap(mutableCandidates);
     }
 
+    /**
+     * Compiles the {@link StepMatcher}s of the keywords.
+     *
+     * @param candidates The stepcandidates in a map of keyword, stepcandidate list pairs.
+     * @return The step matchers in a map of keyword, step matcher pairs.
+     */
+    private static Map<Class<? extends Annotation>, StepMatcher> initStepMatchers(final Map<Class<? extends Annotation>, List<StepCandidate>> candidates) {
+        final StepMatcher.Engine engine = StepMatcher.Engine.fromSystemProperty();
+        final Map<Class<? extends Annotation>, StepMatcher> mutableMatchers = new HashMap<Class<? extends Annotation>, StepMatcher>();
+        for (final Map.Entry<Class<? extends Annotation>, List<StepCandidate>> entry : candidates.entrySet()) {
+            mutableMatchers.put(entry.getKey(), new StepMatcher(entry.getValue(), engine));
+        }
+        return Collections.unmodifiableMap(mutableMatchers);
+    }
+
 
     /**
      * Finds and initializes the step candidates.
@@ -139,9 +206,10 @@ public final class MByHaveConfigurator {
      * @param <T> The type of the annotations
      * @param annotation The annotation the method is looking for.
      * @param testClass The class the method is scanning for annotated methods.
+     * @param converters The custom parameter converters of the test class.
      * @return The list to which the annotated methods will be added as {@link StepCandidate}s.
      */
-    private static <T extends Annotation> List<StepCandidate> initStepCandidates(final Class<T> annotation, final Class<?> testClass) {
+    private static <T extends Annotation> List<StepCandidate> initStepCandidates(final Class<T> annotation, final Class<?> testClass, final List<ParameterConverter<?>> converters) {
         final List<StepCandidate> stepCandidatesList = new ArrayList<StepCandidate>();
         LOG.info("Init candidates");
         for (final Method method : testClass.getMethods()) {
@@ -154,7 +222,7 @@ public final class MByHaveConfigurator {
                     /* Retrieves the method parameters. */
                     final Param[] params = getParameters(method);
                     /* Finds the parameters in the step definition string. */
-                    final Map<Integer, MethodParameter> parameterPositions = findParameterPositions(params, definitionValue);
+                    final Map<Integer, MethodParameter> parameterPositions = findParameterPositions(params, definitionValue, converters);
                     /* Find the parameters representing return values. */
                     final List<MethodParameter> returnValueParameters = findReturnValueParameters(params);
                     /* Logs the method parameters. */
@@ -163,18 +231,20 @@ public final class MByHaveConfigurator {
                             LOG.finer("Position: " + paramPos.getKey() + " Param: " + paramPos.getValue().getParamName());
                         }
                     }
-                    final String regEx = createRegEx(definitionValue, Arrays.asList(params));
+                    final StepTemplate template = StepTemplate.compile(definitionValue, getParamNames(parameterPositions.values()));
     
-                    LOG.finer("RegEx: " + regEx);
+                    if (LOG.isLoggable(Level.FINER)) {
+                        LOG.finer("RegEx: " + template.toRegEx());
+                    }
     
-                    stepCandidatesList.add(new StepCandidate(definitionValue, method, parameterPositions, returnValueParameters, regEx, priority));
+                    stepCandidatesList.add(new StepCandidate(definitionValue, method, parameterPositions, returnValueParameters, template, priority));
                 }
             }
         }
         
         Collections.sort(stepCandidatesList);
         
-        return stepCandidatesList;
+        return Collections.unmodifiableList(stepCandidatesList);
     }
 
     private static <T extends Annotation> String[] getAnnotationValue(final Class<T> annotation, final Method method) {
@@ -218,8 +288,7 @@ public final class MByHaveConfigurator {
     }
 
     private static Param[] getParameters(final Method method) {
-        final Paranamer paranamer = new CachingParanamer(new BytecodeReadingParanamer());
-        final String[] paramNames = paranamer.lookupParameterNames(method, false);
+        final String[] paramNames = ParameterNames.lookup(method);
         final Type[]   types      = method.getGenericParameterTypes();
         final Param[]  params     = new Param[types.length];
         for (int i = 0; i < types.length; i++) {
@@ -228,15 +297,12 @@ public final class MByHaveConfigurator {
         return params;
     }
 
-    private static String createRegEx(final String stepValue, final Collection<Param> params) {
-        String regEx = Pattern.quote(stepValue);
-
-        for (final Param param : params) {
-            final String paramName = param.getName();
-            final String paramPlaceHolder = getPlaceholderPattern(paramName);
-            regEx = regEx.replace(paramPlaceHolder, "\\E(.*)\\Q");
+    private static List<String> getParamNames(final Collection<MethodParameter> params) {
+        final List<String> paramNames = new ArrayList<String>();
+        for (final MethodParameter param : params) {
+            paramNames.add(param.getParamName());
         }
-        return '^' + regEx + '$';
+        return paramNames;
     }
 
     private static String getPlaceholderPattern(final String paramName) {
@@ -290,7 +356,7 @@ public final class MByHaveConfigurator {
         return TypeToken.of(ReturnValue.class).isAssignableFrom(param.getType());
     }
     
-    public static Map<Integer, MethodParameter> findParameterPositions(final Param[] params, final String stepValue) {
+    public static Map<Integer, MethodParameter> findParameterPositions(final Param[] params, final String stepValue, final List<ParameterConverter<?>> converters) {
 
         final Map<Integer, MethodParameter> result = new TreeMap<Integer, MethodParameter>();
         if (params != null) {
@@ -316,13 +382,45 @@ public final class MByHaveConfigurator {
                 }
 
                 /* Add to the map. */
-                result.put(Integer.valueOf(posInStepPattern), new MethodParameter(param.getName(), i, param.getType()));
+                final ParameterConverter<?> converter;
+                if (TypeToken.of(Container.class).isAssignableFrom(param.getType())) {
+                    converter = null;
+                } else {
+                    try {
+                        converter = ParameterConverters.resolve(param.getType(), converters);
+                    } catch (final MByHaveException e) {
+                        throw new MByHaveException("The " + param.getName() + " parameter can not be converted in the step definition: " + stepValue, e);
+                    }
+                }
+                result.put(Integer.valueOf(posInStepPattern), new MethodParameter(param.getName(), i, param.getType(), converter));
             }
         }
 
         return result;
     }
 
+    /**
+     * Instantiates the custom {@link ParameterConverter}s registered by the {@link Converters}
+     * annotation on the test class.
+     *
+     * @param testClass The test class.
+     * @return The custom converters. (NonNull)
+     */
+    @SuppressWarnings("rawtypes")
+    private static List<ParameterConverter<?>> getConverters(final Class<?> testClass) {
+        final List<ParameterConverter<?>> converters = new ArrayList<ParameterConverter<?>>();
+        if (testClass.isAnnotationPresent(Converters.class)) {
+            for (final Class<? extends ParameterConverter> converterClass : testClass.getAnnotation(Converters.class).value()) {
+                try {
+                    converters.add(converterClass.getDeclaredConstructor().newInstance());
+                } catch (final Exception e) {
+                    throw new MByHaveException("The " + converterClass.getName() + " converter can not be instantiated.", e);
+                }
+            }
+        }
+        return converters;
+    }
+
     private static List<Method> getAnnotatedMethods(final Class<?> testClass, final Class<? extends Annotation> annotation, final boolean isStatic) {
         final List<Method> methods = new ArrayList<Method>();
         for (final Method method : testClass.getDeclaredMethods()) {
@@ -333,7 +431,7 @@ public final class MByHaveConfigurator {
                 methods.add(method);
             }
         }
-        return methods;
+        return Collections.unmodifiableList(methods);
     }
 
     /** Hidden constructor of utiltity class. */
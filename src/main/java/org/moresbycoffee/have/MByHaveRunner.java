@@ -28,43 +28,56 @@
  */
 package org.moresbycoffee.have;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
+import java.io.StringReader;
+import java.lang.annotation.Annotation;
+import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
 
+import org.junit.internal.AssumptionViolatedException;
 import org.junit.runner.Description;
 import org.junit.runner.Runner;
+import org.junit.runner.manipulation.Filter;
+import org.junit.runner.manipulation.Filterable;
+import org.junit.runner.manipulation.NoTestsRemainException;
+import org.junit.runner.manipulation.Sortable;
+import org.junit.runner.manipulation.Sorter;
 import org.junit.runner.notification.Failure;
 import org.junit.runner.notification.RunNotifier;
 import org.junit.runners.model.InitializationError;
 import org.moresbycoffee.have.StepCandidate.MethodParameter;
 import org.moresbycoffee.have.annotations.Given;
+import org.moresbycoffee.have.annotations.Parallel;
+import org.moresbycoffee.have.annotations.Reporting;
 import org.moresbycoffee.have.annotations.Story;
 import org.moresbycoffee.have.annotations.Then;
 import org.moresbycoffee.have.annotations.When;
 import org.moresbycoffee.have.domain.Scenario;
+import org.moresbycoffee.have.domain.ScenarioOutline;
+import org.moresbycoffee.have.domain.StepTable;
 import org.moresbycoffee.have.exceptions.MByHaveAssertionError;
 import org.moresbycoffee.have.exceptions.MByHaveException;
 
-import com.google.common.reflect.TypeToken;
-
 
 /**
  * <p>A JUnit {@link Runner} implementation designed to run the MBy.Have story files.</p>
@@ -90,12 +103,43 @@ import com.google.common.reflect.TypeToken;
  * will be used with <tt>(.*)</tt> pattern at the parameter placeholders. The matcher
  * will work in - called - greedy mode so it will pick up the longest possible string
  * from the step description.</p>
+ * <p>With the <tt>mbyhave.matcher=template</tt> system property the step definitions are
+ * compiled into {@link StepTemplate}s which produce the same parameter values as the regEx
+ * pattern by literal searches. A placeholder can be narrowed by a type constraint, e.g.
+ * <tt>$count:int</tt>.</p>
+ * <p>The steps of all the scenarios are bound to the annotated methods when the runner is
+ * created, so the execution only invokes the methods. The steps which can not be bound are
+ * reported as failures in their started stories and scenarios before the
+ * {@link org.junit.BeforeClass} methods run, and their scenarios are not executed. The
+ * {@link ReturnValue} parameters are wired to the steps producing them by the declared return
+ * types (see {@link ReturnValueWiring}), so no return value history is searched during the
+ * execution.</p>
+ * <p>The scenarios are run serially by default. A test class annotated with {@link Parallel} runs
+ * its scenarios concurrently, each with its own test object, containers and return values. The
+ * JUnit events are still reported scenario by scenario in the order of the story files. Scenarios
+ * mostly waiting on I/O can be run on virtual threads by {@link Parallel.Executor#VIRTUAL}. With
+ * {@link Parallel#stories()} whole stories run concurrently instead of single scenarios.</p>
+ * <p>A scenario followed by <tt>Examples</tt> is a scenario outline which is run once for each row
+ * of the examples, with the <tt>&lt;placeholder&gt;</tt>s of its steps replaced by the values of the
+ * row. Each row is reported as a single test and the rows are read one by one as they are run. The
+ * step method of a template is chosen once if no other step method could match any row, otherwise
+ * the substituted steps are resolved for each row. The rows of an outline run concurrently like the
+ * scenarios.</p>
+ * <p>In the incremental mode, enabled by the <tt>mbyhave.incremental.dir</tt> system property, the
+ * scenarios which have passed in the previous run and whose steps and step methods have not
+ * changed since are not run but reported as skipped (assumption failure). See
+ * {@link ScenarioFingerprints}.</p>
+ * <p>By default each step is reported as a test. A test class annotated with
+ * {@link Reporting @Reporting(Granularity.SCENARIO)} reports each scenario as a single test, no
+ * description is created for its steps and its failures name the failed step.</p>
  * <p>To learn more about pattern matching visit the official Java site:
  * <a href="http://docs.oracle.com/javase/tutorial/essential/regex/">http://docs.oracle.com/javase/tutorial/essential/regex/</a></p>
  * <h4>How to use</h4>
  * <p>To use the MByHaveRunner the test class has to contain one or more annotated step
  * definition methods. The step definitions has to contain placeholder for each method
- * parameter. The method parameter has to be {@link java.lang.String}. The test class has
+ * parameter. The method parameter can be a {@link java.lang.String}, a {@link Container}, a
+ * {@link ReturnValue} or any type supported by the
+ * {@link org.moresbycoffee.have.converters.ParameterConverters parameter converters}. The test class has
  * to be annotated with {@link org.junit.runner.RunWith} - added this class as parameter -
  * and with {@link Story} - added the story files as parameter.
  * </p>
@@ -148,7 +192,7 @@ import com.google.common.reflect.TypeToken;
  *
  * <h5>v1.1</h5>
  * <ul>
- * <li>auto parameter type conversion</li>
+ * <li><s>auto parameter type conversion</s></li>
  * <li>NetBeans test result fix</li>
  * </ul>
  * <h5>v1.2</h5>
@@ -163,21 +207,46 @@ import com.google.common.reflect.TypeToken;
  * @author Barnabas Sudy (barnabas.sudy@gmail.com)
  * @since 2012
  */
-public class MByHaveRunner extends Runner {
+public class MByHaveRunner extends Runner implements Filterable, Sortable {
 
 	/** Logger. */
 	private static Logger LOG = Logger.getLogger(MByHaveRunner.class.getName());
 
 	private final MByHaveConfiguration configuration;
 
+	private static final Object[] NO_PARAMETERS = new Object[0];
+
+    /** The name of the system property overriding the {@link Parallel} annotation. */
+    public static final String PARALLEL_PROPERTY = "mbyhave.parallel";
+    /** The name of the system property overriding the {@link Parallel#executor()}. */
+    public static final String PARALLEL_EXECUTOR_PROPERTY = "mbyhave.parallel.executor";
+    /** The name of the system property overriding the {@link Parallel#stories()}. */
+    public static final String PARALLEL_STORIES_PROPERTY = "mbyhave.parallel.stories";
+    /** The name of the system property overriding the {@link Reporting} annotation. */
+    public static final String REPORTING_PROPERTY = "mbyhave.reporting";
+
     private final List<org.moresbycoffee.have.domain.Story> stories;
 
-    /** Containers store any value for further use. The containers can identified by the container name. */
-    @SuppressWarnings("rawtypes")
-    private final Map<String, Container> containerMap = new HashMap<String, Container>();
-    /** The history of the return values of the steps. */
-    @SuppressWarnings("rawtypes")
-    private final LinkedList<ReturnValue> returnValueHistory = new LinkedList<ReturnValue>();
+    /** The steps of the scenarios bound to the step candidates ahead of the execution. */
+    private final Map<Scenario, List<BoundStep>> plan;
+
+    /** The executor of the scenarios. <tt>null</tt> means serial execution on the JUnit thread. */
+    private final Parallel.Executor executor;
+    /** The maximum number of the scenarios run at the same time. <tt>0</tt> means no limit. */
+    private final int               concurrency;
+    /** Whether the stories, and not the scenarios, are run concurrently. */
+    private final boolean           parallelStories;
+
+    /** The granularity of the reported tests. */
+    private final Reporting.Granularity granularity;
+
+    /** The state of the steps run by the inline {@link MByHave}. */
+    private final ScenarioContext embeddedContext = new ScenarioContext();
+
+    /** The fingerprints of the incremental mode. <tt>null</tt> if it is not enabled. */
+    private final ScenarioFingerprints fingerprints;
+    /** Whether the scenarios have been filtered, so not all of them are run. */
+    private boolean                    filtered;
 
 //> CONSTRUCTORS
 
@@ -195,8 +264,31 @@ public class MByHaveRunner extends Runner {
             if (stories.isEmpty()) {
                 throw new InitializationError("No runnable test in this class.");
             }
+            plan = bindStories(stories);
+            fingerprints = ScenarioFingerprints.fromSystemProperty(configuration);
+
+            parallelStories = isParallelStories(testClass);
+            granularity     = getReportingGranularity(testClass);
+
+            final int threads = getParallelThreads(testClass);
+            if (threads < 0) {
+                executor    = null;
+                concurrency = 1;
+            } else if (getParallelExecutor(testClass) == Parallel.Executor.VIRTUAL) {
+                executor    = Parallel.Executor.VIRTUAL;
+                concurrency = threads;
+            } else {
+                concurrency = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+                executor    = concurrency > 1 ? Parallel.Executor.FORK_JOIN : null;
+            }
         } else {
-            stories = Collections.emptyList();
+            stories     = Collections.emptyList();
+            plan        = Collections.emptyMap();
+            fingerprints    = null;
+            executor        = null;
+            concurrency     = 1;
+            parallelStories = false;
+            granularity     = Reporting.Granularity.STEP;
         }
     }
 
@@ -204,372 +296,592 @@ public class MByHaveRunner extends Runner {
 //> PACKAGE PRIVATE METHODS
 
     void given(final Object testObject, final String given) throws MByHaveException {
-        runStep(testObject, given, configuration.getCandidates().get(Given.class));
+        runStep(testObject, given, Given.class);
     }
 
     void when(final Object testObject, final String when) throws MByHaveException {
-        runStep(testObject, when, configuration.getCandidates().get(When.class));
+        runStep(testObject, when, When.class);
     }
 
     void then(final Object testObject, final String then) throws MByHaveException {
-        runStep(testObject, then, configuration.getCandidates().get(Then.class));
+        runStep(testObject, then, Then.class);
     }
 
     void runScenario(final Object testObject, final String scenario) throws MByHaveException {
-
+        final Scenario parsedScenario;
         try {
-            final byte[] bytes = scenario.getBytes("UTF-8");
-            final ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes);
-            try {
-                runScenario(testObject, inputStream);
-            } finally {
-                inputStream.close();
-            }
+            parsedScenario = StoryParser.parseScenario(new StringReader(scenario));
         } catch (final IOException e) {
+            //TODO should not happen.
             throw new RuntimeException(e);
         }
-
+        processScenario(testObject, parsedScenario);
     }
 
     void runScenario(final Object testObject, final InputStream scenarioIs) throws IOException, MByHaveException {
-        final Scenario scenario = parseScenario(scenarioIs);
+        final Scenario scenario = StoryParser.parseScenario(new InputStreamReader(scenarioIs, StoryParser.UTF_8));
         processScenario(testObject, scenario);
     }
 
 //> PRIVATE METHODS
 
     /**
-     * Loads a resource from the jar. The resource can be in the <tt>root</tt> or
-     * in the package of the configuration.getTestClass(). It tries to load by the configuration.getTestClass()'s
-     * ClassLoader, this runner's ClassLoader and the System testLoader as well.
+     * Loads and parses the story files of the {@link Story} annotation. Multiple story files
+     * are parsed concurrently, the order of the stories follows the annotation. The glob patterns
+     * are replaced by the matching story files in alphabetical order.
      *
-     * @param storyFile The name of the story file.
-     * @param configuration.getTestClass() The configuration.getTestClass().
-     * @return The InputStream of the story file.
-     * @throws MByHaveException If the file is not found.
+     * @param testClass The test class. (NonNull)
+     * @return The parsed stories. (NonNull)
+     * @throws MByHaveException If a story file is not found or can not be parsed.
      */
-    private static InputStream loadResource(final String storyFile, final Class<?> testClass) throws MByHaveException {
-
-        {
-            final InputStream storyIs = testClass.getClassLoader().getResourceAsStream(storyFile);
-            if (storyIs != null) {
-                return storyIs;
-            }
+    private static List<org.moresbycoffee.have.domain.Story> parseStories(final Class<?> testClass) throws MByHaveException {
+        if (!testClass.isAnnotationPresent(Story.class)) {
+            return Collections.emptyList();
         }
-        {
-            final InputStream storyIs = MByHaveRunner.class.getClassLoader().getResourceAsStream(storyFile);
-            if (storyIs != null) {
-                return storyIs;
+        final List<String> storyFiles = new ArrayList<String>();
+        final List<URL>    storyUrls  = new ArrayList<URL>();
+        for (final String storyFile : testClass.getAnnotation(Story.class).files()) {
+            if (StoryLoader.isPattern(storyFile)) {
+                for (final Map.Entry<String, URL> storyEntry : StoryLoader.discover(storyFile, testClass).entrySet()) {
+                    storyFiles.add(storyEntry.getKey());
+                    storyUrls.add(storyEntry.getValue());
+                }
+            } else {
+                storyFiles.add(storyFile);
+                storyUrls.add(StoryLoader.resolve(storyFile, testClass));
             }
         }
-        {
-            final InputStream storyIs = ClassLoader.getSystemResourceAsStream(storyFile);
-            if (storyIs != null) {
-                return storyIs;
+        final List<org.moresbycoffee.have.domain.Story> mutableStories = new ArrayList<org.moresbycoffee.have.domain.Story>(storyFiles.size());
+        /* The stories of the runner share their distinct steps, the table is released with them. */
+        final StepTable stepTable = new StepTable();
+
+        final int threads = Math.min(Runtime.getRuntime().availableProcessors(), storyFiles.size());
+        if (threads <= 1) {
+            for (int i = 0; i < storyFiles.size(); i++) {
+                mutableStories.add(StoryLoader.load(storyFiles.get(i), storyUrls.get(i), stepTable));
             }
+            return Collections.unmodifiableList(mutableStories);
         }
-        final String packageName = testClass.getPackage().getName().replace('.', '/');
-        {
-            final InputStream storyIs = testClass.getClassLoader().getResourceAsStream(packageName + "/" + storyFile);
-            if (storyIs != null) {
-                return storyIs;
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<org.moresbycoffee.have.domain.Story>> futures = new ArrayList<Future<org.moresbycoffee.have.domain.Story>>(storyFiles.size());
+            for (int i = 0; i < storyFiles.size(); i++) {
+                final String storyFile = storyFiles.get(i);
+                final URL    storyUrl  = storyUrls.get(i);
+                futures.add(executor.submit(new Callable<org.moresbycoffee.have.domain.Story>() {
+                    public org.moresbycoffee.have.domain.Story call() {
+                        return StoryLoader.load(storyFile, storyUrl, stepTable);
+                    }
+                }));
             }
-        }
-        {
-            final InputStream storyIs = MByHaveRunner.class.getClassLoader().getResourceAsStream(packageName + "/" + storyFile);
-            if (storyIs != null) {
-                return storyIs;
+            for (final Future<org.moresbycoffee.have.domain.Story> future : futures) {
+                mutableStories.add(future.get());
             }
-        }
-        {
-            final InputStream storyIs = ClassLoader.getSystemResourceAsStream(packageName + "/" + storyFile);
-            if (storyIs != null) {
-                return storyIs;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MByHaveException("The story parsing has been interrupted.", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof MByHaveException) {
+                throw (MByHaveException) e.getCause();
             }
+            throw new MByHaveException("The story parsing did not succeed.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return Collections.unmodifiableList(mutableStories);
+    }
+
+    /**
+     * Runs a step of an embedded scenario. The {@link ReturnValue} parameters are looked up in the
+     * return value history of the context.
+     */
+    private void runCandidate(final ScenarioContext context, final Object testObject, final StepCandidate candidate, final Object[] values) throws MByHaveException {
+        /* The parameters are laid out by their precomputed positions. */
+        final Object[] methodParameters = new Object[candidate.getArity()];
+
+        final MethodParameter[] returnValueParameters = candidate.getReturnValueParameterArray();
+        for (int i = 0; i < returnValueParameters.length; i++) {
+            final MethodParameter param = returnValueParameters[i];
+            methodParameters[param.getParamPos()] = context.getReturnValue(param.getReturnValueType());
         }
 
-        throw new MByHaveException("The story file is not found. " + storyFile);
+        final Object result = invokeCandidate(context, testObject, candidate, values, methodParameters);
 
+        if (candidate.getReturnType() != null) {
+            context.addReturnValue(candidate.createReturnValue(result));
+        }
     }
 
-    private static List<org.moresbycoffee.have.domain.Story> parseStories(final Class<?> testClass) throws MByHaveException {
-        final List<org.moresbycoffee.have.domain.Story> mutableStories = new ArrayList<org.moresbycoffee.have.domain.Story>();
-        if (testClass.isAnnotationPresent(Story.class)) {
-            final Story story = testClass.getAnnotation(Story.class);
-            final String[] storyFiles = story.files();
-
-            for (final String storyFile : storyFiles) {
-
-                final InputStream storyIs = loadResource(storyFile, testClass);
-                org.moresbycoffee.have.domain.Story storyObject;
-                try {
-                    storyObject = parseStory(storyFile, storyIs);
-                } catch (final IOException e) {
-                    throw new MByHaveException("The story file is not readable. " + storyFile, e);
-                } finally {
-                    try {
-                        storyIs.close();
-                    } catch (final IOException e) {
-                        //TODO something
-                    }
-                }
-                mutableStories.add(storyObject);
-            }
+    /**
+     * Runs a step of a bound scenario. The {@link ReturnValue} parameters are taken from the slots
+     * of their producing steps and the return value is recorded only if a later step consumes it.
+     *
+     * @param context The context of the scenario. (NonNull)
+     * @param testObject The test object. (NonNull)
+     * @param boundSteps The bound steps of the scenario. (NonNull)
+     * @param step The index of the step to be run.
+     * @param wiring The return value dataflow of the scenario. (NonNull)
+     * @param returnValues The slots of the return values of the steps. (NonNull)
+     */
+    @SuppressWarnings("rawtypes")
+    private void runWiredStep(final ScenarioContext context, final Object testObject, final List<BoundStep> boundSteps, final int step,
+                              final ReturnValueWiring wiring, final ReturnValue[] returnValues) throws MByHaveException {
+        final BoundStep     boundStep = boundSteps.get(step);
+        final StepCandidate candidate = boundStep.getMatch().getCandidate();
+
+        /* The parameters are laid out by their precomputed positions. */
+        final Object[] methodParameters = new Object[candidate.getArity()];
+
+        final MethodParameter[] returnValueParameters = candidate.getReturnValueParameterArray();
+        for (int i = 0; i < returnValueParameters.length; i++) {
+            final int source = wiring.getSource(step, i);
+            methodParameters[returnValueParameters[i].getParamPos()] = source != ReturnValueWiring.NO_SOURCE ? returnValues[source] : null;
+        }
+
+        final Object result = invokeCandidate(context, testObject, candidate, boundStep.getValues(), methodParameters);
+
+        if (wiring.isConsumed(step)) {
+            returnValues[step] = candidate.createReturnValue(result);
         }
-        return Collections.unmodifiableList(mutableStories);
     }
 
-    private static org.moresbycoffee.have.domain.Story parseStory(final String storyName, final InputStream storyIs) throws MByHaveException, IOException {
-        final InputStreamReader isReader = new InputStreamReader(storyIs);
-        final BufferedReader    reader   = new BufferedReader(isReader);
+    /**
+     * Completes the parameters by the values of the step and invokes the step method.
+     *
+     * @param context The context of the containers. (NonNull)
+     * @param testObject The test object. (NonNull)
+     * @param candidate The step method. (NonNull)
+     * @param values The converted values of the placeholders. (NonNull)
+     * @param methodParameters The parameters with the return values filled in already. (NonNull)
+     * @return The return value of the method. (Nullable)
+     */
+    private Object invokeCandidate(final ScenarioContext context, final Object testObject, final StepCandidate candidate, final Object[] values,
+                                   final Object[] methodParameters) throws MByHaveException {
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Run stepCandiate: " + candidate.getStepDefinition());
+        }
 
-        final List<Scenario> scenarios = new ArrayList<Scenario>();
+        final MethodParameter[] slotParameters = candidate.getSlotParameters();
+        for (int i = 0; i < slotParameters.length; i++) {
+            final MethodParameter param      = slotParameters[i];
+            final Object          paramValue = values[i];
 
-        String line = null;
-        StringBuilder storyBuilder = null;
-        while((line = reader.readLine()) != null) {
-            if (line.startsWith("#")) {
-                continue;
-            }
-            if (line.startsWith("Scenario")) {
-                if (storyBuilder != null) {
-                    scenarios.add(parseScenario(storyBuilder.toString()));
-                }
-                storyBuilder = new StringBuilder();
-            } else if (storyBuilder == null && (line.startsWith("Given") || line.startsWith("When") || line.startsWith("Then"))) {
-                storyBuilder = new StringBuilder();
+            final Object paramObject;
+            if (param.isContainer()) {
+                paramObject = context.getContainer((String) paramValue, param.getType());
+            } else {
+                paramObject = paramValue;
             }
-            if (storyBuilder != null) {
-                storyBuilder.append(line).append("\n");
+            methodParameters[param.getParamPos()] = paramObject;
+
+            if (LOG.isLoggable(Level.FINER)) {
+                LOG.finer("Parameter name: " + param.getParamName() + " Value: " + paramObject);
             }
         }
-        if (storyBuilder != null) {
-            scenarios.add(parseScenario(storyBuilder.toString()));
+
+        return candidate.getInvoker().invoke(testObject, methodParameters);
+    }
+
+    private void invokeMethods(final Collection<MethodInvoker> invokers, final Object target) {
+        for (final MethodInvoker invoker : invokers) {
+            invoker.invoke(target, NO_PARAMETERS);
         }
-        return new org.moresbycoffee.have.domain.Story(storyName, scenarios);
     }
 
-    private static Scenario parseScenario(final String scenario) throws MByHaveException {
+    private void runStep(final Object testObject, final String step, final Class<? extends Annotation> keyword) throws MByHaveException {
+        final StepMatch match = resolveStep(step, keyword);
+        runCandidate(embeddedContext, testObject, match.getCandidate(), match.getCandidate().convertArguments(match.getArguments()));
+    }
+
+    private StepMatch resolveStep(final String step, final Class<? extends Annotation> keyword) throws MByHaveException {
+        final StepMatchCache cache = configuration.getStepMatchCache();
 
-        try {
-            final byte[] bytes = scenario.getBytes("UTF-8");
-            final ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes);
-            try {
-                return parseScenario(inputStream);
-            } finally {
-                inputStream.close();
+        StepMatch match = cache.get(keyword, step);
+        if (match == null) {
+            match = configuration.getMatchers().get(keyword).match(step);
+            if (match == null) {
+                throw new MByHaveAssertionError("No maching step to the \"" + step + "\" step definition.");
             }
-        } catch (final IOException e) {
-            //TODO should not happen.
-            throw new RuntimeException(e);
+            cache.put(keyword, step, match);
+        }
+        return match;
+    }
+
+    private void processScenario(final Object testObject, final Scenario scenario) throws MByHaveException {
+        if (scenario instanceof ScenarioOutline) {
+            for (final Scenario example : (ScenarioOutline) scenario) {
+                processScenario(testObject, example);
+            }
+            return;
         }
+        LOG.info("Process Scenario: " + scenario.getDescription());
+        /* Clean up the cached values. */
+        embeddedContext.clear();
 
+        /* Run the steps. */
+        for (final String step : scenario.getSteps()) {
+            processStep(testObject, step);
+        }
     }
 
-    private static Scenario parseScenario(final InputStream scenario) throws MByHaveException, IOException {
-        final InputStreamReader isReader = new InputStreamReader(scenario);
-        final BufferedReader    reader   = new BufferedReader(isReader);
+    private void processStep(final Object testObject, final String step) throws MByHaveException {
+        LOG.info("Process step: " + step);
 
-        String scenarioDescription = null;
-        final List<String> steps = new ArrayList<String>();
+        final StepMatch match = resolveStep(step);
+        runCandidate(embeddedContext, testObject, match.getCandidate(), match.getCandidate().convertArguments(match.getArguments()));
+    }
 
-        String line = null;
-        StringBuilder scenarioBuilder = null;
-        boolean parseDescription = false;
-        while ((line = reader.readLine()) != null) {
-            if (line.startsWith("#")) {
-                continue;
+    /**
+     * Matches the step (with keyword) to a step candidate.
+     *
+     * @param step The step description with the keyword. (NonNull)
+     * @return The matched step candidate with the parameter values. (NonNull)
+     * @throws MByHaveAssertionError If there is no matching step candidate.
+     */
+    private StepMatch resolveStep(final String step) throws MByHaveException {
+        final StepKeyword keyword = getKeyword(step);
+
+        /* Gets rid of the keyword and the leading and trailing whitespace. */
+        final String trimmedStep = step.substring(keyword.getKeyword().length()).trim();
+
+        return resolveStep(trimmedStep, keyword.getAnnotation());
+    }
+
+    /**
+     * @param step The step description with the keyword. (NonNull)
+     * @return The keyword of the step. (NonNull)
+     * @throws IllegalArgumentException If the step does not start with a keyword.
+     */
+    private StepKeyword getKeyword(final String step) {
+        for (final StepKeyword keyword : configuration.getKeywords().values()) {
+            if (step.startsWith(keyword.getKeyword())) {
+                return keyword;
             }
-            if (line.startsWith("Scenario")) {
-                if (scenarioBuilder == null) {
-                    scenarioBuilder = new StringBuilder(line);
-                    parseDescription = true;
-                } else {
-                    throw new MByHaveException("This scenario contains two scenario descriptions.");
-                }
-            } else if (line.startsWith("Given") || line.startsWith("When") || line.startsWith("Then")) {
-                if (parseDescription) {
-                    scenarioDescription = scenarioBuilder.toString();
-                    scenarioBuilder = new StringBuilder(line);
-                    parseDescription = false;
-                } else if (scenarioBuilder != null) {
-                    steps.add(scenarioBuilder.toString());
-                    scenarioBuilder = new StringBuilder(line);
-                } else {
-                    scenarioDescription = "Scenario"; //Default scenario description
-                    scenarioBuilder = new StringBuilder(line);
+        }
+        throw new IllegalArgumentException("The step does not start with a keyword: " + step);
+    }
+
+//> BINDING
+
+    /** The number of distinct steps above which the binding is done in parallel. */
+    private static final int PARALLEL_BINDING_THRESHOLD = 256;
+
+    /**
+     * Binds all the steps of all the scenarios of the stories to step candidates. Each distinct
+     * step of a {@link StepTable} is bound once and its bound step is shared by its occurrences.
+     * Large story sets are bound in parallel.
+     *
+     * @param stories The stories. (NonNull)
+     * @return The bound steps of the scenarios. (NonNull)
+     */
+    private Map<Scenario, List<BoundStep>> bindStories(final List<org.moresbycoffee.have.domain.Story> stories) {
+        /* The distinct steps and step templates of the step tables by step id. */
+        final Map<StepTable, DistinctStep[]> steps     = new IdentityHashMap<StepTable, DistinctStep[]>();
+        final Map<StepTable, DistinctStep[]> templates = new IdentityHashMap<StepTable, DistinctStep[]>();
+        final List<DistinctStep>             distinctSteps = new ArrayList<DistinctStep>();
+        final Map<Scenario, DistinctStep[]>  occurrences   = new IdentityHashMap<Scenario, DistinctStep[]>();
+
+        for (final org.moresbycoffee.have.domain.Story story : stories) {
+            for (final Scenario scenario : story.getScenario()) {
+                final StepTable    table  = scenario.getStepTable();
+                final List<String> header = scenario instanceof ScenarioOutline ? ((ScenarioOutline) scenario).getExamples().getHeader() : null;
+
+                final DistinctStep[] scenarioSteps = new DistinctStep[scenario.getStepCount()];
+                for (int i = 0; i < scenarioSteps.length; i++) {
+                    final int     id       = scenario.getStepId(i);
+                    final String  step     = table.getStep(id);
+                    final boolean template = header != null && ScenarioOutline.hasPlaceholder(step, header);
+
+                    final Map<StepTable, DistinctStep[]> byTable = template ? templates : steps;
+                    DistinctStep[] byId = byTable.get(table);
+                    if (byId == null || id >= byId.length) {
+                        /* The table may grow while the stories of other tests are parsed. */
+                        byId = byId == null ? new DistinctStep[Math.max(id + 1, table.size())] : Arrays.copyOf(byId, Math.max(id + 1, table.size()));
+                        byTable.put(table, byId);
+                    }
+                    if (byId[id] == null) {
+                        byId[id] = new DistinctStep(step, template);
+                        distinctSteps.add(byId[id]);
+                    }
+                    scenarioSteps[i] = byId[id];
                 }
-            } else if (scenarioBuilder != null) {
-                scenarioBuilder.append(line + "\n");
+                occurrences.put(scenario, scenarioSteps);
             }
         }
-        if (scenarioBuilder != null) {
-            if (parseDescription) {
-                throw new MByHaveException("The scenario description does not contain any step description"); //TODO get the scenario description from somewhere.
+
+        bindDistinctSteps(distinctSteps);
+
+        final Map<Scenario, List<BoundStep>> mutablePlan = new IdentityHashMap<Scenario, List<BoundStep>>();
+        for (final Map.Entry<Scenario, DistinctStep[]> occurrence : occurrences.entrySet()) {
+            final BoundStep[] boundSteps = new BoundStep[occurrence.getValue().length];
+            for (int i = 0; i < boundSteps.length; i++) {
+                boundSteps[i] = occurrence.getValue()[i].boundStep;
             }
-            steps.add(scenarioBuilder.toString());
+            mutablePlan.put(occurrence.getKey(), Collections.unmodifiableList(Arrays.asList(boundSteps)));
         }
-        return new Scenario(scenarioDescription, steps);
+        return Collections.unmodifiableMap(mutablePlan);
     }
-    
-    private Type getTypeFromReturnValue(final Type type) {
-        if (type instanceof ParameterizedType) {
-            return ((ParameterizedType) type).getActualTypeArguments()[0];
-        } else {
-            return TypeToken.of(Object.class).getType();
-        }
-        
-    }
-    
-    /**
-     * Returns the first matching result from the result history. The result history contains all the results of steps.
-     * 
-     * @param type The type what has to be matched. (NonNull)
-     * @return The found result. If there is no matching result, it will return <tt>null</tt>. (Nullable)
-     */
-    @SuppressWarnings("rawtypes")
-    private ReturnValue getReturnValueFromHistoryByType(final Type type) {
-        
-        final TypeToken returnValueType = TypeToken.of(getTypeFromReturnValue(type));
-        for (ReturnValue returnValue : returnValueHistory) {
-            if (returnValueType.isAssignableFrom(returnValue.getType())) {
-                return returnValue;
-            }
-        }
-        return null;
-    }
-    
-    private void runCandidate(final Object testObject, final StepCandidate candidate, final Matcher matcher, final String step) throws MByHaveException {
-
-    	LOG.fine("Run stepCandiate: " + candidate.getStepDefinition());
-    	final Map<Integer, MethodParameter> positions = candidate.getParameterPositions();
-        int i = 1;
-
-        final SortedMap<Integer, Object> methodParameters = new TreeMap<Integer, Object>();
-        for (final MethodParameter param : candidate.getReturnValueParameters()) {
-            
-            @SuppressWarnings("rawtypes")
-            final ReturnValue paramObject = getReturnValueFromHistoryByType(param.getType());
-            
-            methodParameters.put(Integer.valueOf(param.getParamPos()), paramObject);
-        }
-        
-        for (final MethodParameter param : positions.values()) {
-            
-            final int starts = matcher.start(i);
-            final int ends   = matcher.end(i);
-
-            final String paramValue = step.substring(starts, ends);
-            
-            LOG.finer("Param Value: " + paramValue + " Group: " + matcher.group(i));
-            i++;
-            
-            final Object paramObject;
-            if (TypeToken.of(Container.class).isAssignableFrom(param.getType())) {
-                
-                if (containerMap.containsKey(paramValue)) {
-                    //TODO check the type.
-                    paramObject = containerMap.get(paramValue);
-                } else {
-                    
-                    try {
-                        @SuppressWarnings("rawtypes")
-                        Container container = Container.class.getDeclaredConstructor(Type.class).newInstance(param.getType());
-                        containerMap.put(paramValue, container);
-                        paramObject = container;
-                    } catch (Exception e) {
-                        /* This exception should not occur ever. */
-                        throw new MByHaveException("Container object can't be instantiated.", e);
-                    } 
-                }
-            } else {
-                paramObject = paramValue;
+
+    private void bindDistinctSteps(final List<DistinctStep> distinctSteps) {
+        final int threads = Math.min(Runtime.getRuntime().availableProcessors(), distinctSteps.size() / PARALLEL_BINDING_THRESHOLD);
+        if (threads <= 1) {
+            for (final DistinctStep distinctStep : distinctSteps) {
+                distinctStep.bind();
             }
-            
-            methodParameters.put(Integer.valueOf(param.getParamPos()), paramObject);
+            return;
+        }
 
-            LOG.finer("Parameter name: " + param.getParamName() + " Value: " + paramObject);
+        LOG.info("Bind " + distinctSteps.size() + " distinct steps on " + threads + " threads.");
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int thread = 0; thread < threads; thread++) {
+                final int first = thread;
+                futures.add(executor.submit(new Callable<Void>() {
+                    public Void call() {
+                        for (int i = first; i < distinctSteps.size(); i += threads) {
+                            distinctSteps.get(i).bind();
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MByHaveException("The step binding has been interrupted.", e);
+        } catch (final ExecutionException e) {
+            throw new MByHaveException("The step binding did not succeed.", e.getCause());
+        } finally {
+            executor.shutdownNow();
         }
+    }
+
+    /** A distinct step of the stories. The bound step is shared by all the occurrences of the step. */
+    private final class DistinctStep {
 
-        LOG.finer("Num of params: " + candidate.getMethod().getParameterTypes().length);
+        private final String  step;
+        private final boolean template;
+        private BoundStep     boundStep;
 
-        final Object result = invokeMethod(candidate.getMethod(), testObject, methodParameters.values().toArray());
-        
-        if (!Void.TYPE.equals(candidate.getMethod().getReturnType())) {
-            final Type returnType = candidate.getMethod().getGenericReturnType();
-            @SuppressWarnings({ "rawtypes", "unchecked" })
-            final ReturnValue resultObject = new ReturnValue(returnType, result);
-            returnValueHistory.addFirst(resultObject);
+        private DistinctStep(final String step, final boolean template) {
+            this.step     = step;
+            this.template = template;
         }
 
+        private void bind() {
+            boundStep = template ? bindTemplate(step) : bindStep(step);
+        }
     }
 
-    private void invokeMethods(final Collection<Method> methods, final Object target) {
-        for (final Method method : methods) {
-            invokeMethod(method, target);
+    /**
+     * Matches the step and converts its arguments. The converted values are shared by all the
+     * occurrences of the step.
+     *
+     * @param step The step with its keyword. (NonNull)
+     * @return The bound step or the step with the binding error. (NonNull)
+     */
+    private BoundStep bindStep(final String step) {
+        try {
+            final StepMatch match = resolveStep(step);
+            return new BoundStep(step, match, match.getCandidate().convertArguments(match.getArguments()));
+        } catch (final AssertionError e) {
+            return new BoundStep(step, e);
+        } catch (final RuntimeException e) {
+            return new BoundStep(step, e);
         }
     }
 
-    private Object invokeMethod(final Method method, final Object target, final Object... parameters) {
+    /**
+     * Binds a step template of a scenario outline without converting its arguments. The step
+     * candidate of the template is kept only if it is the candidate of every example: it has no
+     * typed slot and no higher ranked candidate could match a substituted step. Otherwise, e.g.
+     * a placeholder stands in the literal part of the step definition or in a typed slot, the
+     * step will be resolved for each example.
+     *
+     * @param step The step template. (NonNull)
+     * @return The bound step template. (NonNull)
+     */
+    private BoundStep bindTemplate(final String step) {
         try {
-            return method.invoke(target, parameters);
-        } catch (final IllegalArgumentException e) {
-            throw new MByHaveException("The parameters could not be matched.", e);
-        } catch (final IllegalAccessException e) {
-            throw new MByHaveException("The annotated method should be public.", e);
-        } catch (final InvocationTargetException e) {
-            if (e.getTargetException() instanceof AssertionError) {
-                throw (AssertionError) e.getTargetException();
-            }
-            throw new MByHaveException(e);
+            final StepMatch match = resolveStep(step);
+            return new BoundStep(step, isCandidateOfEveryExample(step, match.getCandidate()) ? match : null);
+        } catch (final AssertionError e) {
+            return new BoundStep(step, (StepMatch) null);
+        } catch (final RuntimeException e) {
+            return new BoundStep(step, (StepMatch) null);
         }
     }
 
-
-    private void runStep(final Object testObject, final String step, final Collection<StepCandidate> stepCandidates) throws MByHaveException {
-        boolean found = false;
-        for (final StepCandidate candidate : stepCandidates) {
-
-            final Matcher matcher = candidate.getPattern().matcher(step.replace('\n', ' '));
-            if (matcher.find()) {
-                found = true;
-                runCandidate(testObject, candidate, matcher, step);
-                break;
+    /**
+     * Decides whether the candidate matching a step template is the candidate of all the
+     * substituted steps if they match it at all. A higher ranked candidate could match a
+     * substituted step only if its literal prefix agrees with the step up to the first
+     * placeholder.
+     *
+     * @param step The step template with the keyword. (NonNull)
+     * @param candidate The candidate matching the template. (NonNull)
+     * @return <tt>true</tt> if the candidate can be kept for all the examples.
+     */
+    private boolean isCandidateOfEveryExample(final String step, final StepCandidate candidate) {
+        final StepTemplate template = candidate.getTemplate();
+        for (int slot = 0; slot < template.getSlotCount(); slot++) {
+            if (template.getSlotType(slot) != StepTemplate.SlotType.ANY) {
+                return false;
             }
         }
-        if (!found) {
-            throw new MByHaveAssertionError("No maching step to the \"" + step + "\" step definition.");
+        final StepKeyword keyword     = getKeyword(step);
+        final String      trimmedStep = step.substring(keyword.getKeyword().length()).trim().replace('\n', ' ');
+        final int         placeholder = trimmedStep.indexOf('<');
+        final int         fixedLength = placeholder < 0 ? trimmedStep.length() : placeholder;
+        for (final StepCandidate other : configuration.getMatchers().get(keyword.getAnnotation()).getCandidates()) {
+            if (other == candidate) {
+                return true;
+            }
+            final String prefix = other.getTemplate().getLiteralPrefix();
+            if (prefix.regionMatches(0, trimmedStep, 0, Math.min(prefix.length(), fixedLength))) {
+                return false;
+            }
         }
+        return false;
+    }
 
+    /**
+     * Completes the step templates of a scenario outline by the values of an example.
+     * The steps without placeholders are bound already. The substituted steps are matched
+     * against the candidate of their template, so the arguments are split as if the step was
+     * resolved, or resolved if the template has no candidate or the step does not match it.
+     *
+     * @param template The bound steps of the outline. (NonNull)
+     * @param header The names of the placeholders. (NonNull)
+     * @param row The values of the placeholders. (NonNull)
+     * @return The bound steps of the example. (NonNull)
+     */
+    private List<BoundStep> bindExample(final List<BoundStep> template, final List<String> header, final List<String> row) {
+        final List<BoundStep> boundSteps = new ArrayList<BoundStep>(template.size());
+        for (final BoundStep templateStep : template) {
+            if (!templateStep.isTemplate()) {
+                boundSteps.add(templateStep);
+                continue;
+            }
+            final String step = ScenarioOutline.substitute(templateStep.getStep(), header, row);
+            try {
+                StepMatch match = null;
+                if (templateStep.getMatch() != null) {
+                    final StepCandidate candidate = templateStep.getMatch().getCandidate();
+                    final String[]      arguments = candidate.getTemplate().match(step.substring(getKeyword(step).getKeyword().length()).trim());
+                    match = arguments != null ? new StepMatch(candidate, arguments) : null;
+                }
+                if (match == null) {
+                    match = resolveStep(step);
+                }
+                boundSteps.add(new BoundStep(step, match, match.getCandidate().convertArguments(match.getArguments())));
+            } catch (final AssertionError e) {
+                boundSteps.add(new BoundStep(step, e));
+            } catch (final RuntimeException e) {
+                boundSteps.add(new BoundStep(step, e));
+            }
+        }
+        return boundSteps;
     }
 
-    private void processScenario(final Object testObject, final Scenario scenario) throws MByHaveException {
-        LOG.info("Process Scenario: " + scenario.getDescription());
-        /* Clean up the cached values. */
-        returnValueHistory.clear();
-        containerMap.clear();
-        
-        /* Run the steps. */
-        for (final String step : scenario.getSteps()) {
-            processStep(testObject, step);
+    /**
+     * Reports the scenarios containing steps which could not be bound before the
+     * {@link org.junit.BeforeClass} methods run. Each of these scenarios is started and finished
+     * within its started story. The scenarios are not executed and they are skipped when their
+     * stories are run.
+     *
+     * @param notifier The JUnit notifier. (NonNull)
+     */
+    private void reportBindingErrors(final RunNotifier notifier) {
+        for (final StoryDescription storyDescription : storyDescriptions) {
+            boolean storyStarted = false;
+            for (final ScenarioDescription scenarioDescription : storyDescription.getScenarios()) {
+                if (!isUnbound(scenarioDescription)) {
+                    continue;
+                }
+                if (!storyStarted) {
+                    notifier.fireTestStarted(storyDescription.getDescription());
+                    storyStarted = true;
+                }
+                notifier.fireTestStarted(scenarioDescription.getDescription());
+                if (scenarioDescription instanceof ScenarioTestDescription) {
+                    reportBindingErrors((ScenarioTestDescription) scenarioDescription, notifier);
+                } else {
+                    reportBindingErrors(scenarioDescription, notifier);
+                }
+                notifier.fireTestFinished(scenarioDescription.getDescription());
+            }
+            if (storyStarted) {
+                notifier.fireTestFinished(storyDescription.getDescription());
+            }
         }
     }
 
-    private void processStep(final Object testObject, final String step) throws MByHaveException {
-        LOG.info("Process step: " + step);
+    /**
+     * Reports the steps of a started scenario which could not be bound as failures and the
+     * other steps as ignored. Scenarios containing such steps will not be executed.
+     *
+     * @param scenarioDescription The scenario. (NonNull)
+     * @param notifier The JUnit notifier. (NonNull)
+     */
+    private static void reportBindingErrors(final ScenarioDescription scenarioDescription, final RunNotifier notifier) {
+        for (final StepDescription stepDescription : scenarioDescription.getSteps()) {
+            if (stepDescription.getStep().isBound()) {
+                notifier.fireTestIgnored(stepDescription.getDescription());
+            } else {
+                notifier.fireTestStarted(stepDescription.getDescription());
+                notifier.fireTestFailure(new Failure(stepDescription.getDescription(), stepDescription.getStep().getError()));
+                notifier.fireTestFinished(stepDescription.getDescription());
+            }
+        }
+    }
 
-        for (final StepKeyword keyword : configuration.getKeywords().values()) {
-            if (step.startsWith(keyword.getKeyword())) {
+    /**
+     * Reports the steps of a started scenario test which could not be bound as the failures of the scenario.
+     *
+     * @param scenarioDescription The scenario test. (NonNull)
+     * @param notifier The JUnit notifier. (NonNull)
+     */
+    private static void reportBindingErrors(final ScenarioTestDescription scenarioDescription, final RunNotifier notifier) {
+        for (final BoundStep boundStep : scenarioDescription.getBoundSteps()) {
+            if (!boundStep.isBound()) {
+                notifier.fireTestFailure(new Failure(scenarioDescription.getDescription(), createStepFailure(boundStep.getStep(), boundStep.getError())));
+            }
+        }
+    }
 
-            	/* Gets rid of the keyword and the leading and trailing whitespace. */
-            	final String trimmedStep = step.substring(keyword.getKeyword().length()).trim();
+    /**
+     * @return <tt>true</tt> if the scenario is not an outline and it has a step which could not be
+     *         bound, so it is reported before the execution.
+     */
+    private static boolean isUnbound(final ScenarioDescription scenarioDescription) {
+        return !(scenarioDescription instanceof OutlineDescription) && !isBound(scenarioDescription);
+    }
 
-                runStep(testObject, trimmedStep, configuration.getCandidates().get(keyword.getAnnotation()));
-                return;
+    /**
+     * @return <tt>true</tt> if all the scenarios of the story have been reported before the
+     *         execution, so the story is not run.
+     */
+    private static boolean isReported(final StoryDescription storyDescription) {
+        for (final ScenarioDescription scenarioDescription : storyDescription.getScenarios()) {
+            if (!isUnbound(scenarioDescription)) {
+                return false;
             }
         }
-        throw new IllegalArgumentException(); //TODO
+        return !storyDescription.getScenarios().isEmpty();
+    }
 
+    private static boolean isBound(final ScenarioDescription scenarioDescription) {
+        for (final BoundStep boundStep : scenarioDescription.getBoundSteps()) {
+            if (!boundStep.isBound()) {
+                return false;
+            }
+        }
+        return true;
     }
 
 //> JUNIT RUNNER
@@ -595,16 +907,41 @@ public class MByHaveRunner extends Runner {
 
             int scenarioIndex = 0;
             for (final Scenario scenario : story.getScenario()) {
-                final Description scenarioDescription = Description.createSuiteDescription(storyIndex + "." + (++scenarioIndex) + ". " + scenario.getDescription().replace("\n", " "));
-                final List<StepDescription> stepDescriptions = new ArrayList<StepDescription>();
-                int stepIndex = 0;
-                for (final String step : scenario.getSteps()) {
-                    final Description stepDescription = Description.createTestDescription(configuration.getTestClass(), storyIndex + "." + scenarioIndex + "." + (++stepIndex) + ". " + step.replace("\n", " "));
-                    stepDescriptions.add(new StepDescription(step, stepDescription));
+                final String scenarioName = storyIndex + "." + (++scenarioIndex) + ". " + scenario.getDescription().replace("\n", " ");
+
+                if (granularity == Reporting.Granularity.SCENARIO && !(scenario instanceof ScenarioOutline)) {
+                    final Description scenarioDescription = Description.createTestDescription(configuration.getTestClass(), scenarioName);
+                    scenarioDescriptions.add(new ScenarioTestDescription(scenarioDescription, plan.get(scenario), ReturnValueWiring.create(plan.get(scenario))));
+                    storyDescription.addChild(scenarioDescription);
+                    continue;
+                }
+
+                final Description scenarioDescription = Description.createSuiteDescription(scenarioName);
+                if (scenario instanceof ScenarioOutline) {
+                    final ScenarioOutline outline = (ScenarioOutline) scenario;
+                    final List<String>    header  = outline.getExamples().getHeader();
+                    final List<ExampleDescription> exampleDescriptions = new ArrayList<ExampleDescription>();
+                    for (final List<String> row : outline.getExamples()) {
+                        final Description exampleDescription = Description.createTestDescription(configuration.getTestClass(),
+                                storyIndex + "." + scenarioIndex + "." + (exampleDescriptions.size() + 1) + ". " + getExampleName(header, row));
+                        exampleDescriptions.add(new ExampleDescription(exampleDescriptions.size(), exampleDescription));
+                        scenarioDescription.addChild(exampleDescription);
+                    }
+                    scenarioDescriptions.add(new OutlineDescription(scenarioDescription, outline, header, plan.get(scenario), exampleDescriptions));
+                    storyDescription.addChild(scenarioDescription);
+                    continue;
+                }
+
+                final List<BoundStep>       boundSteps       = plan.get(scenario);
+                final List<StepDescription> stepDescriptions = new ArrayList<StepDescription>(boundSteps.size());
+                for (int i = 0; i < boundSteps.size(); i++) {
+                    final String      displayText     = scenario.getStepTable().getDisplayText(scenario.getStepId(i));
+                    final Description stepDescription = Description.createTestDescription(configuration.getTestClass(), storyIndex + "." + scenarioIndex + "." + (i + 1) + ". " + displayText);
+                    stepDescriptions.add(new StepDescription(boundSteps.get(i), stepDescription));
                     scenarioDescription.addChild(stepDescription);
                 }
 
-                scenarioDescriptions.add(new ScenarioDescription(scenarioDescription, stepDescriptions));
+                scenarioDescriptions.add(new ScenarioDescription(scenarioDescription, stepDescriptions, ReturnValueWiring.create(boundSteps)));
                 storyDescription.addChild(scenarioDescription);
             }
 
@@ -614,46 +951,571 @@ public class MByHaveRunner extends Runner {
         return mainDescription;
     }
 
+    private static String getExampleName(final List<String> header, final List<String> row) {
+        final StringBuilder name = new StringBuilder();
+        for (int i = 0; i < header.size(); i++) {
+            name.append(i == 0 ? "" : ", ").append(header.get(i)).append('=').append(row.get(i));
+        }
+        return name.toString().replace("\n", " ");
+    }
+
+    /**
+     * Keeps the scenarios selected by the filter. A scenario is selected if the filter accepts
+     * its description or the description of any of its steps. The steps of a scenario depend on
+     * each other, so a selected scenario is always run with all of its steps. If the filter
+     * accepts a story but none of its scenarios, the whole story is kept. The examples of the
+     * scenario outlines are selected one by one, like the scenarios reported as single tests. The
+     * filtered out scenarios are not instantiated and their {@link org.junit.Before} methods are
+     * not called.
+     *
+     * @param filter The JUnit filter. (NonNull)
+     * @throws NoTestsRemainException If no scenario is selected.
+     */
+    public void filter(final Filter filter) throws NoTestsRemainException {
+        getDescription();
+
+        final List<StoryDescription> filteredStories = new ArrayList<StoryDescription>();
+        for (final StoryDescription storyDescription : storyDescriptions) {
+            final List<ScenarioDescription> filteredScenarios = new ArrayList<ScenarioDescription>();
+            for (final ScenarioDescription scenarioDescription : storyDescription.getScenarios()) {
+                final ScenarioDescription filteredScenario = scenarioDescription.filter(filter);
+                if (filteredScenario != null) {
+                    filteredScenarios.add(filteredScenario);
+                }
+            }
+            if (!filteredScenarios.isEmpty()) {
+                filteredStories.add(storyDescription.copy(filteredScenarios));
+            } else if (filter.shouldRun(storyDescription.getDescription())) {
+                filteredStories.add(storyDescription.copy(storyDescription.getScenarios()));
+            }
+        }
+        if (filteredStories.isEmpty()) {
+            throw new NoTestsRemainException();
+        }
+        filtered = true;
+        setStoryDescriptions(filteredStories);
+    }
+
+    /**
+     * Sorts the stories and the scenarios in the stories. The steps are not reordered because
+     * they depend on each other. The descriptions keep their original names.
+     *
+     * @param sorter The JUnit sorter. (NonNull)
+     */
+    public void sort(final Sorter sorter) {
+        getDescription();
+
+        final List<StoryDescription> sortedStories = new ArrayList<StoryDescription>(storyDescriptions.size());
+        for (final StoryDescription storyDescription : storyDescriptions) {
+            final List<ScenarioDescription> sortedScenarios = new ArrayList<ScenarioDescription>(storyDescription.getScenarios());
+            Collections.sort(sortedScenarios, new Comparator<ScenarioDescription>() {
+                public int compare(final ScenarioDescription first, final ScenarioDescription second) {
+                    return sorter.compare(first.getDescription(), second.getDescription());
+                }
+            });
+            sortedStories.add(storyDescription.copy(sortedScenarios));
+        }
+        Collections.sort(sortedStories, new Comparator<StoryDescription>() {
+            public int compare(final StoryDescription first, final StoryDescription second) {
+                return sorter.compare(first.getDescription(), second.getDescription());
+            }
+        });
+        setStoryDescriptions(sortedStories);
+    }
+
+    /**
+     * Replaces the stories to be run and rebuilds the main description of them.
+     *
+     * @param newStoryDescriptions The stories to be run. (NonNull)
+     */
+    private void setStoryDescriptions(final List<StoryDescription> newStoryDescriptions) {
+        storyDescriptions = newStoryDescriptions;
+        mainDescription   = mainDescription.childlessCopy();
+        for (final StoryDescription storyDescription : newStoryDescriptions) {
+            mainDescription.addChild(storyDescription.getDescription());
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public void run(final RunNotifier notifier) {
         notifier.fireTestStarted(getDescription());
+        reportBindingErrors(notifier);
 
         try {
-            invokeMethods(configuration.getBeforeClassMethods(), null);
+            invokeMethods(configuration.getBeforeClassInvokers(), null);
+            if (executor != null) {
+                runScenariosConcurrently(notifier);
+            } else {
+                for (final StoryDescription storyDescription : storyDescriptions) {
+                    runStory(storyDescription, notifier);
+                }
+            }
+            invokeMethods(configuration.getAfterClassInvokers(), null);
+        } catch (final Throwable t) {
+            notifier.fireTestFailure(new Failure(mainDescription, t));
+        }
+        if (fingerprints != null) {
+            fingerprints.save(!filtered);
+        }
+        LOG.fine(configuration.getStepMatchCache().toString());
+        notifier.fireTestFinished(mainDescription);
+    }
+
+    /**
+     * Runs the scenarios of a story one after the other.
+     *
+     * @param storyDescription The story. (NonNull)
+     * @param notifier The notifier of the story, scenario and step events. (NonNull)
+     * @throws Exception If a scenario could not be run.
+     */
+    private void runStory(final StoryDescription storyDescription, final RunNotifier notifier) throws Exception {
+        if (isReported(storyDescription)) {
+            return;
+        }
+        notifier.fireTestStarted(storyDescription.getDescription());
+        for (final ScenarioDescription scenarioDescription : storyDescription.getScenarios()) {
+            runScenario(scenarioDescription, notifier);
+        }
+        notifier.fireTestFinished(storyDescription.getDescription());
+    }
+
+    /**
+     * Runs a scenario on a new test object with a new {@link ScenarioContext}.
+     *
+     * @param scenarioDescription The scenario. (NonNull)
+     * @param notifier The notifier of the scenario and step events. (NonNull)
+     * @throws Exception If the test object can not be instantiated or a lifecycle method fails.
+     */
+    private void runScenario(final ScenarioDescription scenarioDescription, final RunNotifier notifier) throws Exception {
+        if (scenarioDescription instanceof OutlineDescription) {
+            runOutline((OutlineDescription) scenarioDescription, notifier);
+            return;
+        } else if (scenarioDescription instanceof ScenarioTestDescription) {
+            runScenarioTest((ScenarioTestDescription) scenarioDescription, notifier);
+            return;
+        }
+        if (!isBound(scenarioDescription)) {
+            /* The binding errors have already been reported. */
+            return;
+        }
+        notifier.fireTestStarted(scenarioDescription.getDescription());
+
+        final String fingerprint = fingerprints != null ? fingerprints.fingerprint(scenarioDescription.getBoundSteps()) : null;
+        if (fingerprint != null && fingerprints.hasPassed(fingerprint)) {
+            for (final StepDescription stepDescription : scenarioDescription.getSteps()) {
+                notifier.fireTestStarted(stepDescription.getDescription());
+                notifier.fireTestAssumptionFailed(new Failure(stepDescription.getDescription(), createUnchangedException()));
+                notifier.fireTestFinished(stepDescription.getDescription());
+            }
+            fingerprints.record(fingerprint, true);
+            notifier.fireTestFinished(scenarioDescription.getDescription());
+            return;
+        }
+
+        final ScenarioContext   context      = new ScenarioContext();
+        final List<BoundStep>   boundSteps   = scenarioDescription.getBoundSteps();
+        @SuppressWarnings("rawtypes")
+        final ReturnValue[]     returnValues = new ReturnValue[boundSteps.size()];
+
+        boolean passed = true;
+        final Object testObject = configuration.getTestClass().getDeclaredConstructor().newInstance();
+        invokeMethods(configuration.getBeforeInvokers(), testObject);
+        for (int i = 0; i < boundSteps.size(); i++) {
+            final StepDescription stepDescription = scenarioDescription.getSteps().get(i);
+            notifier.fireTestStarted(stepDescription.getDescription());
+
+            try {
+                runWiredStep(context, testObject, boundSteps, i, scenarioDescription.getWiring(), returnValues);
+            } catch (final Throwable t) {
+                notifier.fireTestFailure(new Failure(stepDescription.getDescription(), t));
+                passed = false;
+                break;
+            }
+
+            notifier.fireTestFinished(stepDescription.getDescription());
+        }
+        invokeMethods(configuration.getAfterInvokers(), testObject);
+        if (fingerprint != null) {
+            fingerprints.record(fingerprint, passed);
+        }
+        notifier.fireTestFinished(scenarioDescription.getDescription());
+    }
+
+    /**
+     * Runs the selected examples of a scenario outline one after the other.
+     *
+     * @param outlineDescription The scenario outline. (NonNull)
+     * @param notifier The notifier of the outline and example events. (NonNull)
+     * @throws Exception If the test object can not be instantiated or a lifecycle method fails.
+     */
+    private void runOutline(final OutlineDescription outlineDescription, final RunNotifier notifier) throws Exception {
+        notifier.fireTestStarted(outlineDescription.getDescription());
+        outlineDescription.forEachExample(new ExampleHandler() {
+            @Override
+            protected void example(final ExampleDescription exampleDescription, final List<String> row) throws Exception {
+                runExample(outlineDescription, exampleDescription, row, notifier);
+            }
+        });
+        notifier.fireTestFinished(outlineDescription.getDescription());
+    }
+
+    /**
+     * Runs an example of a scenario outline on a new test object with a new {@link ScenarioContext}.
+     * The example is reported as a single test, its failures name the failed step.
+     *
+     * @param outlineDescription The scenario outline. (NonNull)
+     * @param exampleDescription The example. (NonNull)
+     * @param row The values of the example. (NonNull)
+     * @param notifier The notifier of the example events. (NonNull)
+     * @throws Exception If the test object can not be instantiated or a lifecycle method fails.
+     */
+    private void runExample(final OutlineDescription outlineDescription, final ExampleDescription exampleDescription,
+                            final List<String> row, final RunNotifier notifier) throws Exception {
+        final Description description = exampleDescription.getDescription();
+        notifier.fireTestStarted(description);
+
+        final List<BoundStep> boundSteps = bindExample(outlineDescription.getTemplate(), outlineDescription.getHeader(), row);
+        for (final BoundStep boundStep : boundSteps) {
+            if (!boundStep.isBound()) {
+                notifier.fireTestFailure(new Failure(description, createStepFailure(boundStep.getStep(), boundStep.getError())));
+                notifier.fireTestFinished(description);
+                return;
+            }
+        }
+
+        runSteps(description, boundSteps, ReturnValueWiring.create(boundSteps), notifier);
+    }
+
+    /**
+     * Runs a scenario reported as a single test on a new test object with a new {@link ScenarioContext}.
+     * Its failures name the failed step.
+     *
+     * @param scenarioDescription The scenario test. (NonNull)
+     * @param notifier The notifier of the scenario events. (NonNull)
+     * @throws Exception If the test object can not be instantiated or a lifecycle method fails.
+     */
+    private void runScenarioTest(final ScenarioTestDescription scenarioDescription, final RunNotifier notifier) throws Exception {
+        if (!isBound(scenarioDescription)) {
+            /* The binding errors have already been reported. */
+            return;
+        }
+        notifier.fireTestStarted(scenarioDescription.getDescription());
+        runSteps(scenarioDescription.getDescription(), scenarioDescription.getBoundSteps(), scenarioDescription.getWiring(), notifier);
+    }
+
+    /**
+     * Runs the bound steps of a started test and finishes the test. The failures name the failed step.
+     *
+     * @param description The test. (NonNull)
+     * @param boundSteps The bound steps. (NonNull)
+     * @param wiring The return value dataflow of the steps. (NonNull)
+     * @param notifier The notifier of the test events. (NonNull)
+     * @throws Exception If the test object can not be instantiated or a lifecycle method fails.
+     */
+    private void runSteps(final Description description, final List<BoundStep> boundSteps, final ReturnValueWiring wiring,
+                          final RunNotifier notifier) throws Exception {
+        final String fingerprint = fingerprints != null ? fingerprints.fingerprint(boundSteps) : null;
+        if (fingerprint != null && fingerprints.hasPassed(fingerprint)) {
+            notifier.fireTestAssumptionFailed(new Failure(description, createUnchangedException()));
+            fingerprints.record(fingerprint, true);
+            notifier.fireTestFinished(description);
+            return;
+        }
+
+        final ScenarioContext context      = new ScenarioContext();
+        @SuppressWarnings("rawtypes")
+        final ReturnValue[]   returnValues = new ReturnValue[boundSteps.size()];
+
+        boolean passed = true;
+        final Object testObject = configuration.getTestClass().getDeclaredConstructor().newInstance();
+        invokeMethods(configuration.getBeforeInvokers(), testObject);
+        for (int i = 0; i < boundSteps.size(); i++) {
+            try {
+                runWiredStep(context, testObject, boundSteps, i, wiring, returnValues);
+            } catch (final Throwable t) {
+                notifier.fireTestFailure(new Failure(description, createStepFailure(boundSteps.get(i).getStep(), t)));
+                passed = false;
+                break;
+            }
+        }
+        invokeMethods(configuration.getAfterInvokers(), testObject);
+        if (fingerprint != null) {
+            fingerprints.record(fingerprint, passed);
+        }
+        notifier.fireTestFinished(description);
+    }
+
+    private static AssumptionViolatedException createUnchangedException() {
+        return new AssumptionViolatedException("The scenario has passed in the previous run and it has not changed since.");
+    }
+
+    /**
+     * Wraps the failure of a step reported on a test covering more steps. The assertion
+     * failures remain assertion failures.
+     *
+     * @param step The failed step. (NonNull)
+     * @param failure The failure. (NonNull)
+     * @return The failure naming the step. (NonNull)
+     */
+    private static Throwable createStepFailure(final String step, final Throwable failure) {
+        final String message = "The \"" + step.trim() + "\" step failed: " + failure;
+        if (failure instanceof AssertionError) {
+            final MByHaveAssertionError error = new MByHaveAssertionError(message);
+            error.initCause(failure);
+            return error;
+        }
+        return new MByHaveException(message, failure);
+    }
+
+    /**
+     * Runs all the scenarios, or all the stories if {@link #parallelStories} is set, on the
+     * {@link #executor}, at most {@link #concurrency} at the same time. The events of each
+     * scenario (or story) are buffered and replayed on the calling thread in the order of the
+     * stories and scenarios, so the reported events are the same as in the serial execution.
+     *
+     * @param notifier The JUnit notifier. (NonNull)
+     * @throws Throwable If a scenario could not be run.
+     */
+    private void runScenariosConcurrently(final RunNotifier notifier) throws Throwable {
+        LOG.info("Run the " + (parallelStories ? "stories" : "scenarios") + " on " + executor + " executor, concurrency: "
+                 + (concurrency > 0 ? String.valueOf(concurrency) : "unlimited"));
+        final ExecutorService service = createExecutorService();
+        /* The virtual threads are not pooled, so their number is limited by permits. */
+        final Semaphore permits = executor == Parallel.Executor.VIRTUAL && concurrency > 0 ? new Semaphore(concurrency) : null;
+        try {
+            /* The buffers in the order of the events. The events without run (null) are recorded directly. */
+            final List<BufferedNotifier>         buffers = new ArrayList<BufferedNotifier>();
+            final List<Future<BufferedNotifier>> runs    = new ArrayList<Future<BufferedNotifier>>();
             for (final StoryDescription storyDescription : storyDescriptions) {
-                notifier.fireTestStarted(storyDescription.getDescription());
+                if (parallelStories) {
+                    final BufferedNotifier buffer = new BufferedNotifier();
+                    buffers.add(buffer);
+                    runs.add(service.submit(new PermittedRun(permits, buffer) {
+                        @Override
+                        protected void run() throws Exception {
+                            runStory(storyDescription, buffer);
+                        }
+                    }));
+                    continue;
+                }
+                if (isReported(storyDescription)) {
+                    continue;
+                }
+                addEvent(buffers, runs).fireTestStarted(storyDescription.getDescription());
                 for (final ScenarioDescription scenarioDescription : storyDescription.getScenarios()) {
-                    notifier.fireTestStarted(scenarioDescription.getDescription());
-
-                    /* Clean up the cached values. */
-                    returnValueHistory.clear();
-                    containerMap.clear();
-
-                    final Object testObject = configuration.getTestClass().newInstance();
-                    invokeMethods(configuration.getBeforeMethods(), testObject);
-                    for (final StepDescription stepDescription : scenarioDescription.getSteps()) {
-                        notifier.fireTestStarted(stepDescription.getDescription());
-
-                        try {
-                            processStep(testObject, stepDescription.getStep());
-                        } catch (final Throwable t) {
-                            notifier.fireTestFailure(new Failure(stepDescription.getDescription(), t));
-                            break;
+                    if (scenarioDescription instanceof OutlineDescription) {
+                        final OutlineDescription outlineDescription = (OutlineDescription) scenarioDescription;
+                        addEvent(buffers, runs).fireTestStarted(outlineDescription.getDescription());
+                        outlineDescription.forEachExample(new ExampleHandler() {
+                            @Override
+                            protected void example(final ExampleDescription exampleDescription, final List<String> row) {
+                                final BufferedNotifier buffer = new BufferedNotifier();
+                                buffers.add(buffer);
+                                runs.add(service.submit(new PermittedRun(permits, buffer) {
+                                    @Override
+                                    protected void run() throws Exception {
+                                        runExample(outlineDescription, exampleDescription, row, buffer);
+                                    }
+                                }));
+                            }
+                        });
+                        addEvent(buffers, runs).fireTestFinished(outlineDescription.getDescription());
+                        continue;
+                    }
+                    final BufferedNotifier buffer = new BufferedNotifier();
+                    buffers.add(buffer);
+                    runs.add(service.submit(new PermittedRun(permits, buffer) {
+                        @Override
+                        protected void run() throws Exception {
+                            runScenario(scenarioDescription, buffer);
                         }
+                    }));
+                }
+                addEvent(buffers, runs).fireTestFinished(storyDescription.getDescription());
+            }
 
-                        notifier.fireTestFinished(stepDescription.getDescription());
+            for (int i = 0; i < buffers.size(); i++) {
+                if (runs.get(i) != null) {
+                    try {
+                        runs.get(i).get();
+                    } catch (final ExecutionException e) {
+                        buffers.get(i).replay(notifier);
+                        throw e.getCause();
                     }
-                    invokeMethods(configuration.getAfterMethods(), testObject);
-                    notifier.fireTestFinished(scenarioDescription.getDescription());
                 }
-                notifier.fireTestFinished(storyDescription.getDescription());
+                buffers.get(i).replay(notifier);
             }
-            invokeMethods(configuration.getAfterClassMethods(), null);
-        } catch (final Throwable t) {
-            notifier.fireTestFailure(new Failure(mainDescription, t));
+        } finally {
+            service.shutdownNow();
         }
-        notifier.fireTestFinished(mainDescription);
+    }
+
+    /**
+     * @param buffers The buffers of the concurrent run. (NonNull)
+     * @param runs The runs of the buffers. (NonNull)
+     * @return A new buffer without run for the events fired between the runs. (NonNull)
+     */
+    private static BufferedNotifier addEvent(final List<BufferedNotifier> buffers, final List<Future<BufferedNotifier>> runs) {
+        final BufferedNotifier buffer = new BufferedNotifier();
+        buffers.add(buffer);
+        runs.add(null);
+        return buffer;
+    }
+
+    /**
+     * A concurrently executed part of the run (a story or a scenario) reporting to a
+     * {@link BufferedNotifier}. If there are permits, it runs only while holding one.
+     */
+    private abstract static class PermittedRun implements Callable<BufferedNotifier> {
+
+        private final Semaphore        permits;
+        private final BufferedNotifier buffer;
+
+        /**
+         * @param permits The permits limiting the concurrency. (Nullable)
+         * @param buffer The notifier of the run. (NonNull)
+         */
+        private PermittedRun(final Semaphore permits, final BufferedNotifier buffer) {
+            this.permits = permits;
+            this.buffer  = buffer;
+        }
+
+        /** {@inheritDoc} */
+        public BufferedNotifier call() throws Exception {
+            if (permits == null) {
+                run();
+                return buffer;
+            }
+            permits.acquire();
+            try {
+                run();
+            } finally {
+                permits.release();
+            }
+            return buffer;
+        }
+
+        protected abstract void run() throws Exception;
+    }
+
+    /**
+     * Creates the executor service of the scenarios. The virtual thread executor is looked up
+     * reflectively so the runner works on JVMs without virtual threads as well.
+     *
+     * @return The executor service. (NonNull)
+     */
+    private ExecutorService createExecutorService() {
+        if (executor == Parallel.Executor.FORK_JOIN) {
+            return new ForkJoinPool(concurrency);
+        }
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (final NoSuchMethodException e) {
+            LOG.warning("Virtual threads are not supported by this JVM, the scenarios run on platform threads.");
+        } catch (final Exception e) {
+            LOG.log(Level.WARNING, "The virtual thread executor could not be created, the scenarios run on platform threads.", e);
+        }
+        return createPlatformThreadPool(concurrency);
+    }
+
+    /**
+     * Creates the fallback of the virtual thread executor. The platform threads are expensive, so
+     * the pool is bounded by the number of the available processors if the concurrency is not limited.
+     *
+     * @param concurrency The maximum number of the scenarios running at the same time, <tt>0</tt> if it is not limited.
+     * @return The thread pool. (NonNull)
+     */
+    static ExecutorService createPlatformThreadPool(final int concurrency) {
+        return Executors.newFixedThreadPool(concurrency > 0 ? concurrency : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Returns the number of the scenarios to be run at the same time by the {@value #PARALLEL_PROPERTY}
+     * system property or the {@link Parallel} annotation of the test class.
+     *
+     * @param testClass The test class. (NonNull)
+     * @return The number of the threads. <tt>0</tt> means the default of the executor and
+     *         <tt>-1</tt> means serial execution.
+     * @throws MByHaveException If the system property is invalid.
+     */
+    private static int getParallelThreads(final Class<?> testClass) throws MByHaveException {
+        final String property = System.getProperty(PARALLEL_PROPERTY);
+        if (property != null) {
+            final String value = property.trim();
+            if ("false".equalsIgnoreCase(value)) {
+                return -1;
+            } else if ("true".equalsIgnoreCase(value)) {
+                return 0;
+            }
+            try {
+                return Math.max(0, Integer.parseInt(value));
+            } catch (final NumberFormatException e) {
+                throw new MByHaveException("Invalid " + PARALLEL_PROPERTY + " value: " + property, e);
+            }
+        } else if (testClass.isAnnotationPresent(Parallel.class)) {
+            return Math.max(0, testClass.getAnnotation(Parallel.class).threads());
+        }
+        return -1;
+    }
+
+    /**
+     * Returns whether the stories should be run concurrently by the {@value #PARALLEL_STORIES_PROPERTY}
+     * system property or the {@link Parallel} annotation of the test class.
+     *
+     * @param testClass The test class. (NonNull)
+     * @return <tt>true</tt> if the stories, and not the scenarios, run concurrently.
+     */
+    private static boolean isParallelStories(final Class<?> testClass) {
+        final String property = System.getProperty(PARALLEL_STORIES_PROPERTY);
+        if (property != null) {
+            return Boolean.parseBoolean(property.trim());
+        }
+        return testClass.isAnnotationPresent(Parallel.class) && testClass.getAnnotation(Parallel.class).stories();
+    }
+
+    /**
+     * Returns the executor of the scenarios by the {@value #PARALLEL_EXECUTOR_PROPERTY} system property
+     * or the {@link Parallel} annotation of the test class.
+     *
+     * @param testClass The test class. (NonNull)
+     * @return The executor. (NonNull)
+     * @throws MByHaveException If the system property is invalid.
+     */
+    private static Parallel.Executor getParallelExecutor(final Class<?> testClass) throws MByHaveException {
+        final String property = System.getProperty(PARALLEL_EXECUTOR_PROPERTY);
+        if (property != null) {
+            try {
+                return Parallel.Executor.valueOf(property.trim().toUpperCase(Locale.ENGLISH));
+            } catch (final IllegalArgumentException e) {
+                throw new MByHaveException("Invalid " + PARALLEL_EXECUTOR_PROPERTY + " value: " + property, e);
+            }
+        } else if (testClass.isAnnotationPresent(Parallel.class)) {
+            return testClass.getAnnotation(Parallel.class).executor();
+        }
+        return Parallel.Executor.FORK_JOIN;
+    }
+
+    /**
+     * Returns the granularity of the reported tests by the {@value #REPORTING_PROPERTY} system
+     * property or the {@link Reporting} annotation of the test class.
+     *
+     * @param testClass The test class. (NonNull)
+     * @return The granularity. (NonNull)
+     * @throws MByHaveException If the system property is invalid.
+     */
+    private static Reporting.Granularity getReportingGranularity(final Class<?> testClass) throws MByHaveException {
+        final String property = System.getProperty(REPORTING_PROPERTY);
+        if (property != null) {
+            try {
+                return Reporting.Granularity.valueOf(property.trim().toUpperCase(Locale.ENGLISH));
+            } catch (final IllegalArgumentException e) {
+                throw new MByHaveException("Invalid " + REPORTING_PROPERTY + " value: " + property, e);
+            }
+        } else if (testClass.isAnnotationPresent(Reporting.class)) {
+            return testClass.getAnnotation(Reporting.class).value();
+        }
+        return Reporting.Granularity.STEP;
     }
 
     private static class StoryDescription {
@@ -685,6 +1547,24 @@ public class MByHaveRunner extends Runner {
             return scenarios;
         }
 
+        /**
+         * Creates a copy of the story with a new JUnit description of the same name. The
+         * scenarios are copied as well.
+         *
+         * @param newScenarios The scenarios of the copy. (NonNull)
+         * @return The copy. (NonNull)
+         */
+        private StoryDescription copy(final List<ScenarioDescription> newScenarios) {
+            final Description               newDescription  = description.childlessCopy();
+            final List<ScenarioDescription> copiedScenarios = new ArrayList<ScenarioDescription>(newScenarios.size());
+            for (final ScenarioDescription scenario : newScenarios) {
+                final ScenarioDescription copiedScenario = scenario.copy();
+                copiedScenarios.add(copiedScenario);
+                newDescription.addChild(copiedScenario.getDescription());
+            }
+            return new StoryDescription(newDescription, copiedScenarios);
+        }
+
     }
 
 
@@ -692,21 +1572,24 @@ public class MByHaveRunner extends Runner {
 
         private final Description           description;
         private final List<StepDescription> steps;
+        private final ReturnValueWiring     wiring;
 
         /**
          * @param description The JUnit description.
          * @param steps The description wrapper objects of the steps of the scenario.
+         * @param wiring The return value dataflow of the steps. <tt>null</tt> for the scenario outlines.
          */
-        private ScenarioDescription(final Description description, final List<StepDescription> steps) {
+        private ScenarioDescription(final Description description, final List<StepDescription> steps, final ReturnValueWiring wiring) {
             super();
             this.description = description;
             this.steps       = steps;
+            this.wiring      = wiring;
         }
 
         /**
          * @return The JUnit description.
          */
-        private Description getDescription() {
+        Description getDescription() {
             return description;
         }
 
@@ -717,29 +1600,250 @@ public class MByHaveRunner extends Runner {
             return steps;
         }
 
+        /**
+         * @return The return value dataflow of the steps. <tt>null</tt> for the scenario outlines.
+         */
+        ReturnValueWiring getWiring() {
+            return wiring;
+        }
+
+        /**
+         * @return The bound steps of the scenario. (NonNull)
+         */
+        protected List<BoundStep> getBoundSteps() {
+            final List<BoundStep> boundSteps = new ArrayList<BoundStep>(steps.size());
+            for (final StepDescription step : steps) {
+                boundSteps.add(step.getStep());
+            }
+            return boundSteps;
+        }
+
+        /**
+         * The scenario is selected if the filter accepts its description or the description of
+         * any of its steps.
+         *
+         * @param filter The JUnit filter. (NonNull)
+         * @return The selected scenario or <tt>null</tt> if it is filtered out. (Nullable)
+         */
+        protected ScenarioDescription filter(final Filter filter) {
+            if (filter.shouldRun(description)) {
+                return this;
+            }
+            for (final StepDescription stepDescription : steps) {
+                if (filter.shouldRun(stepDescription.getDescription())) {
+                    return this;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return A copy of the scenario with a new JUnit description of the same name and the
+         *         original step descriptions. (NonNull)
+         */
+        protected ScenarioDescription copy() {
+            final Description newDescription = description.childlessCopy();
+            for (final StepDescription step : steps) {
+                newDescription.addChild(step.getDescription());
+            }
+            return new ScenarioDescription(newDescription, steps, wiring);
+        }
 
+
+    }
+
+
+    /** A scenario reported as a single test. Its steps are not reported one by one. */
+    private static final class ScenarioTestDescription extends ScenarioDescription {
+
+        private final List<BoundStep> boundSteps;
+
+        /**
+         * @param description The JUnit description of the test.
+         * @param boundSteps The bound steps of the scenario.
+         * @param wiring The return value dataflow of the steps.
+         */
+        private ScenarioTestDescription(final Description description, final List<BoundStep> boundSteps, final ReturnValueWiring wiring) {
+            super(description, Collections.<StepDescription>emptyList(), wiring);
+            this.boundSteps = boundSteps;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected List<BoundStep> getBoundSteps() {
+            return boundSteps;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected ScenarioDescription filter(final Filter filter) {
+            return filter.shouldRun(getDescription()) ? this : null;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected ScenarioDescription copy() {
+            return new ScenarioTestDescription(getDescription().childlessCopy(), boundSteps, getWiring());
+        }
+    }
+
+
+    /** A scenario outline. Its examples are the tests, its steps are not reported one by one. */
+    private static final class OutlineDescription extends ScenarioDescription {
+
+        private final ScenarioOutline          outline;
+        private final List<String>             header;
+        private final List<BoundStep>          template;
+        /** The selected examples in the order of the rows. */
+        private final List<ExampleDescription> examples;
+
+        /**
+         * @param description The JUnit description.
+         * @param outline The scenario outline.
+         * @param header The header of the examples.
+         * @param template The bound steps of the outline.
+         * @param examples The selected examples in the order of the rows.
+         */
+        private OutlineDescription(final Description description, final ScenarioOutline outline, final List<String> header,
+                                   final List<BoundStep> template, final List<ExampleDescription> examples) {
+            super(description, Collections.<StepDescription>emptyList(), null);
+            this.outline  = outline;
+            this.header   = header;
+            this.template = template;
+            this.examples = examples;
+        }
+
+        /**
+         * @return The header of the examples.
+         */
+        private List<String> getHeader() {
+            return header;
+        }
+
+        /**
+         * @return The bound steps of the outline.
+         */
+        private List<BoundStep> getTemplate() {
+            return template;
+        }
+
+        /**
+         * Reads the rows of the examples one by one and passes the selected ones to the handler.
+         *
+         * @param handler The handler of the selected examples. (NonNull)
+         * @throws Exception If the handler fails.
+         */
+        private void forEachExample(final ExampleHandler handler) throws Exception {
+            final Iterator<ExampleDescription> selected = examples.iterator();
+            ExampleDescription next = selected.hasNext() ? selected.next() : null;
+
+            int rowIndex = 0;
+            /* The rows are read to the end, so the external examples are closed. */
+            for (final List<String> row : outline.getExamples()) {
+                if (next != null && next.getIndex() == rowIndex) {
+                    handler.example(next, row);
+                    next = selected.hasNext() ? selected.next() : null;
+                }
+                rowIndex++;
+            }
+        }
+
+        /**
+         * The examples accepted by the filter are selected. If the filter accepts none of them
+         * but the outline itself, the whole outline is selected. (The JUnit filters accept the
+         * suites of the accepted tests, so the examples have to be checked first.)
+         */
+        @Override
+        protected ScenarioDescription filter(final Filter filter) {
+            final List<ExampleDescription> filteredExamples = new ArrayList<ExampleDescription>();
+            for (final ExampleDescription example : examples) {
+                if (filter.shouldRun(example.getDescription())) {
+                    filteredExamples.add(example);
+                }
+            }
+            if (!filteredExamples.isEmpty()) {
+                return copy(filteredExamples);
+            }
+            return filter.shouldRun(getDescription()) ? this : null;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected ScenarioDescription copy() {
+            return copy(examples);
+        }
+
+        private OutlineDescription copy(final List<ExampleDescription> newExamples) {
+            final Description newDescription = getDescription().childlessCopy();
+            for (final ExampleDescription example : newExamples) {
+                newDescription.addChild(example.getDescription());
+            }
+            return new OutlineDescription(newDescription, outline, header, template, newExamples);
+        }
+    }
+
+
+    private static final class ExampleDescription {
+
+        private final int         index;
+        private final Description description;
+
+        /**
+         * @param index The index of the row in the examples.
+         * @param description The JUnit description of the example.
+         */
+        private ExampleDescription(final int index, final Description description) {
+            this.index       = index;
+            this.description = description;
+        }
+
+        /**
+         * @return The index of the row in the examples.
+         */
+        private int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return The JUnit description of the example.
+         */
+        private Description getDescription() {
+            return description;
+        }
+    }
+
+
+    /** Receives the selected examples of a scenario outline. */
+    private abstract static class ExampleHandler {
+
+        /**
+         * @param exampleDescription The example. (NonNull)
+         * @param row The values of the example. (NonNull)
+         * @throws Exception If the example can not be handled.
+         */
+        protected abstract void example(ExampleDescription exampleDescription, List<String> row) throws Exception;
     }
 
 
     private static class StepDescription {
 
-        private final String      step;
+        private final BoundStep   step;
         private final Description description;
 
         /**
-         * @param step The <i>step</i>
+         * @param step The bound <i>step</i>
          * @param description The JUnit description of the step.
          */
-        private StepDescription(final String step, final Description description) {
+        private StepDescription(final BoundStep step, final Description description) {
             super();
             this.step        = step;
             this.description = description;
         }
 
         /**
-         * @return The <i>step</i>
+         * @return The bound <i>step</i>
          */
-        private String getStep() {
+        private BoundStep getStep() {
             return step;
         }
 
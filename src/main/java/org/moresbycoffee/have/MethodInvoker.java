@@ -0,0 +1,164 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Locale;
+
+import org.moresbycoffee.have.exceptions.MByHaveException;
+
+/**
+ * <p>Invokes a step method or a JUnit lifecycle method of the test class.</p>
+ * <p>By default the method is invoked through a {@link MethodHandle} adapted once to the
+ * <tt>(Object target, Object[] parameters)Object</tt> shape, so the JIT can inline the
+ * step dispatch. The {@link Mode#REFLECTION} mode uses {@link Method#invoke(Object, Object...)}.
+ * The mode can be selected by the <tt>mbyhave.invocation</tt> system property
+ * (<tt>method_handle</tt> or <tt>reflection</tt>).</p>
+ * <p>In both modes the {@link AssertionError}s thrown by the method are rethrown unchanged
+ * and the other exceptions are wrapped into {@link MByHaveException}.</p>
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public final class MethodInvoker {
+
+    /** The name of the system property selecting the {@link Mode}. */
+    public static final String MODE_PROPERTY = "mbyhave.invocation";
+
+    /** The invocation modes. */
+    public enum Mode {
+        /** Invokes the methods through {@link MethodHandle}s. */
+        METHOD_HANDLE,
+        /** Invokes the methods by reflection. */
+        REFLECTION;
+
+        /**
+         * @return The mode selected by the {@value MethodInvoker#MODE_PROPERTY} system property. (NonNull)
+         */
+        public static Mode fromSystemProperty() {
+            final String mode = System.getProperty(MODE_PROPERTY);
+            return mode == null ? METHOD_HANDLE : valueOf(mode.trim().toUpperCase(Locale.ENGLISH));
+        }
+    }
+
+    private final Method       method;
+    /** The adapted method handle. <tt>null</tt> in {@link Mode#REFLECTION} mode. */
+    private final MethodHandle handle;
+
+    /**
+     * @param method The method to invoke. (NonNull)
+     * @param mode The invocation mode. (NonNull)
+     * @throws MByHaveException If the method is not accessible.
+     */
+    public MethodInvoker(final Method method, final Mode mode) throws MByHaveException {
+        this.method = method;
+        this.handle = mode == Mode.METHOD_HANDLE ? adapt(method) : null;
+    }
+
+    /**
+     * @param method The method to invoke. (NonNull)
+     * @return The invoker of the method in the mode selected by the {@value #MODE_PROPERTY} system property. (NonNull)
+     * @throws MByHaveException If the method is not accessible.
+     */
+    public static MethodInvoker create(final Method method) throws MByHaveException {
+        return new MethodInvoker(method, Mode.fromSystemProperty());
+    }
+
+    /**
+     * @return The invoked method. (NonNull)
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Invokes the method.
+     *
+     * @param target The test object. <tt>null</tt> for static methods. (Nullable)
+     * @param parameters The method parameters. (NonNull)
+     * @return The return value of the method. <tt>null</tt> for <tt>void</tt> methods. (Nullable)
+     * @throws AssertionError If the method has thrown an {@link AssertionError}.
+     * @throws MByHaveException If the method has thrown any other exception.
+     */
+    public Object invoke(final Object target, final Object[] parameters) throws MByHaveException {
+        if (handle == null) {
+            return invokeReflectively(target, parameters);
+        }
+        try {
+            return (Object) handle.invokeExact(target, parameters);
+        } catch (final AssertionError e) {
+            throw e;
+        } catch (final Throwable t) {
+            throw new MByHaveException(t);
+        }
+    }
+
+    private Object invokeReflectively(final Object target, final Object[] parameters) {
+        try {
+            return method.invoke(target, parameters);
+        } catch (final IllegalArgumentException e) {
+            throw new MByHaveException("The parameters could not be matched.", e);
+        } catch (final IllegalAccessException e) {
+            throw new MByHaveException("The annotated method should be public.", e);
+        } catch (final InvocationTargetException e) {
+            if (e.getTargetException() instanceof AssertionError) {
+                throw (AssertionError) e.getTargetException();
+            }
+            throw new MByHaveException(e);
+        }
+    }
+
+    /**
+     * Adapts the method handle of the method to the <tt>(Object, Object[])Object</tt> type.
+     *
+     * @param method The method. (NonNull)
+     * @return The adapted method handle. (NonNull)
+     */
+    private static MethodHandle adapt(final Method method) throws MByHaveException {
+        final int arity = method.getParameterTypes().length;
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.lookup().unreflect(method);
+        } catch (final IllegalAccessException e) {
+            throw new MByHaveException("The annotated method should be public: " + method, e);
+        }
+        if (Modifier.isStatic(method.getModifiers())) {
+            /* Static methods ignore the target. */
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+        return handle.asType(MethodType.genericMethodType(arity + 1))
+                     .asSpreader(Object[].class, arity);
+    }
+
+}
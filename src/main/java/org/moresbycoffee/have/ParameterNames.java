@@ -0,0 +1,90 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+
+import org.moresbycoffee.have.exceptions.MByHaveException;
+
+/**
+ * <p>Looks up the parameter names of the step methods. The names are taken from</p>
+ * <ol>
+ * <li>the {@link Parameter}s of the method if the class has been compiled with <tt>-parameters</tt>,</li>
+ * <li>otherwise the local variable table of the class file read once per class by the {@link ClassFileReader}.</li>
+ * </ol>
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+final class ParameterNames {
+
+    /**
+     * @param method The method. (NonNull)
+     * @return The names of the parameters of the method. (NonNull)
+     * @throws MByHaveException If the names are not available.
+     */
+    static String[] lookup(final Method method) throws MByHaveException {
+        final Parameter[] parameters = method.getParameters();
+        final String[]    names      = new String[parameters.length];
+        if (parameters.length == 0) {
+            return names;
+        }
+
+        if (parameters[0].isNamePresent()) {
+            for (int i = 0; i < parameters.length; i++) {
+                names[i] = parameters[i].getName();
+            }
+            return names;
+        }
+
+        final String[] localVariableNames = ClassFileReader.forClass(method.getDeclaringClass()).getLocalVariableNames(method);
+        if (localVariableNames != null) {
+            /* The parameters follow "this" in the local variable slots, long and double take two. */
+            int slot = Modifier.isStatic(method.getModifiers()) ? 0 : 1;
+            final Class<?>[] types = method.getParameterTypes();
+            for (int i = 0; i < types.length && slot < localVariableNames.length; i++) {
+                names[i] = localVariableNames[slot];
+                slot += types[i] == Long.TYPE || types[i] == Double.TYPE ? 2 : 1;
+            }
+            if (names[names.length - 1] != null) {
+                return names;
+            }
+        }
+        throw new MByHaveException("The parameter names of the " + method + " method are not available. "
+                                   + "The class has to be compiled with debug information or with the -parameters option.");
+    }
+
+    /** Hidden constructor of utiltity class. */
+    private ParameterNames() {
+        /* NOP */
+    }
+
+}
@@ -38,6 +38,9 @@ import java.lang.reflect.Type;
  * <p>The return value parameter will always represent the last return value of which the type matches
  * to the ReturnValue's generic parameter (<code>T</code>).</p>
  * <p>If there is no matching return value, a <tt>null</tt> object will be provided.</p>
+ * <p>A step method returning a <tt>Supplier&lt;T&gt;</tt> or a <tt>Callable&lt;T&gt;</tt> produces a
+ * lazy <tt>ReturnValue&lt;T&gt;</tt>: the supplier is called on the first {@link #getValue()} and its
+ * result is kept for the rest of the scenario.</p>
  *
  * @param <T> The type of the cached return value.
  *
@@ -0,0 +1,120 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+import org.moresbycoffee.have.StepCandidate.MethodParameter;
+
+/**
+ * <p>The static dataflow of the {@link ReturnValue}s of a bound scenario. The return value
+ * recorded for a {@link ReturnValue} parameter is the latest one whose declared type is
+ * assignable, so the producing step of each parameter is known from the method signatures
+ * before the scenario is run.</p>
+ * <p>The runner keeps the return values of a run in an array of slots, one for each step. The
+ * parameters are taken from the slots of their {@link #getSource(int, int) sources} and only the
+ * {@link #isConsumed(int) consumed} return values are recorded.</p>
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+final class ReturnValueWiring {
+
+    /** The source of the parameters which no step produces. */
+    static final int NO_SOURCE = -1;
+
+    private static final int[] NO_PARAMETERS = new int[0];
+
+    /** The producing step of each {@link ReturnValue} parameter of each step. */
+    private final int[][]   sources;
+    /** Whether the return value of the step is consumed by a later step. */
+    private final boolean[] consumed;
+
+    private ReturnValueWiring(final int[][] sources, final boolean[] consumed) {
+        this.sources  = sources;
+        this.consumed = consumed;
+    }
+
+    /**
+     * Wires the {@link ReturnValue} parameters of the steps to the steps producing them.
+     *
+     * @param boundSteps The bound steps of the scenario. The steps which are not bound neither
+     *        produce nor consume return values. (NonNull)
+     * @return The wiring. (NonNull)
+     */
+    static ReturnValueWiring create(final List<BoundStep> boundSteps) {
+        final int[][]   sources  = new int[boundSteps.size()][];
+        final boolean[] consumed = new boolean[boundSteps.size()];
+        for (int step = 0; step < sources.length; step++) {
+            final StepCandidate candidate = getCandidate(boundSteps.get(step));
+            if (candidate == null || candidate.getReturnValueParameterArray().length == 0) {
+                sources[step] = NO_PARAMETERS;
+                continue;
+            }
+            final MethodParameter[] params = candidate.getReturnValueParameterArray();
+            sources[step] = new int[params.length];
+            for (int param = 0; param < params.length; param++) {
+                sources[step][param] = NO_SOURCE;
+                for (int producer = step - 1; producer >= 0; producer--) {
+                    final StepCandidate producerCandidate = getCandidate(boundSteps.get(producer));
+                    final Type          returnType        = producerCandidate != null ? producerCandidate.getReturnType() : null;
+                    if (returnType != null && params[param].getReturnValueType().isAssignableFrom(returnType)) {
+                        sources[step][param] = producer;
+                        consumed[producer]   = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return new ReturnValueWiring(sources, consumed);
+    }
+
+    private static StepCandidate getCandidate(final BoundStep boundStep) {
+        return boundStep.getMatch() != null ? boundStep.getMatch().getCandidate() : null;
+    }
+
+    /**
+     * @param step The index of the step.
+     * @param param The index of the parameter in the {@link StepCandidate#getReturnValueParameterArray() return value parameters}.
+     * @return The index of the step producing the value of the parameter or {@link #NO_SOURCE}.
+     */
+    int getSource(final int step, final int param) {
+        return sources[step][param];
+    }
+
+    /**
+     * @param step The index of the step.
+     * @return <tt>true</tt> if the return value of the step is the parameter of a later step.
+     */
+    boolean isConsumed(final int step) {
+        return consumed[step];
+    }
+
+}
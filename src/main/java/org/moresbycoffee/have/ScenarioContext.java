@@ -0,0 +1,127 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.reflect.TypeToken;
+
+/**
+ * <p>The state of a running scenario: the named {@link Container}s and the history of the
+ * {@link ReturnValue}s of the steps.</p>
+ * <p>Every scenario run by the {@link MByHaveRunner} gets its own context, so the scenarios
+ * can be run concurrently. A context is used only by one thread at a time.</p>
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+final class ScenarioContext {
+
+    /** Containers store any value for further use. The containers can identified by the container name. */
+    @SuppressWarnings("rawtypes")
+    private final Map<String, Container>           containerMap       = new HashMap<String, Container>();
+    /** The history of the return values of the steps. The latest is the last. */
+    @SuppressWarnings("rawtypes")
+    private final List<ReturnValue>                returnValueHistory = new ArrayList<ReturnValue>();
+    /**
+     * The latest assignable return value of each requested type. The types are indexed when they
+     * are first requested and kept up to date as the return values are added. The value is
+     * <tt>null</tt> if there is no assignable return value.
+     */
+    @SuppressWarnings("rawtypes")
+    private final Map<TypeToken<?>, ReturnValue>   latestByType       = new HashMap<TypeToken<?>, ReturnValue>();
+
+    /**
+     * Returns the container registered by the name. If there is no such container a new one
+     * will be created.
+     *
+     * @param name The name of the container. (NonNull)
+     * @param type The type of the container parameter. (NonNull)
+     * @return The container. (NonNull)
+     */
+    @SuppressWarnings("rawtypes")
+    Container getContainer(final String name, final Type type) {
+        Container container = containerMap.get(name);
+        if (container == null) {
+            container = new Container<Object>(type);
+            containerMap.put(name, container);
+        }
+        //TODO check the type.
+        return container;
+    }
+
+    /**
+     * Returns the latest return value assignable to the type. The result history contains all the results of steps.
+     *
+     * @param type The {@link StepCandidate.MethodParameter#getReturnValueType() type of the values} of the
+     *        {@link ReturnValue} parameter. (NonNull)
+     * @return The found result. If there is no matching result, it will return <tt>null</tt>. (Nullable)
+     */
+    @SuppressWarnings("rawtypes")
+    ReturnValue getReturnValue(final TypeToken<?> type) {
+        if (latestByType.containsKey(type)) {
+            return latestByType.get(type);
+        }
+        ReturnValue latest = null;
+        for (int i = returnValueHistory.size() - 1; i >= 0 && latest == null; i--) {
+            if (type.isAssignableFrom(returnValueHistory.get(i).getType())) {
+                latest = returnValueHistory.get(i);
+            }
+        }
+        latestByType.put(type, latest);
+        return latest;
+    }
+
+    /**
+     * @param returnValue The return value of a step. (NonNull)
+     */
+    @SuppressWarnings("rawtypes")
+    void addReturnValue(final ReturnValue returnValue) {
+        returnValueHistory.add(returnValue);
+        for (final Map.Entry<TypeToken<?>, ReturnValue> latest : latestByType.entrySet()) {
+            if (latest.getKey().isAssignableFrom(returnValue.getType())) {
+                latest.setValue(returnValue);
+            }
+        }
+    }
+
+    /**
+     * Forgets the containers and the return values.
+     */
+    void clear() {
+        returnValueHistory.clear();
+        latestByType.clear();
+        containerMap.clear();
+    }
+
+}
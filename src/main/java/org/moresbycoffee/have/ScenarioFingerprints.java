@@ -0,0 +1,354 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.moresbycoffee.have.annotations.Converters;
+import org.moresbycoffee.have.converters.ParameterConverter;
+
+/**
+ * <p>The fingerprints of the scenarios passed in the previous runs of a test class, for the
+ * incremental mode enabled by the <tt>mbyhave.incremental.dir</tt> system property, e.g.
+ * <tt>target/mbyhave-incremental</tt>.</p>
+ * <p>The fingerprint of a scenario is the hash of its steps and the {@link ClassFileReader#getCodeHash(Method)
+ * code hashes} of the methods bound to them, together with the code of the test class and its
+ * superclasses (including the constructors and the field initializers), the methods of its
+ * {@link Converters custom converters} and the matcher engine and invocation mode the steps are
+ * bound by. A scenario which has passed with the same fingerprint does not have to be run again.
+ * The code of the other classes called by the step methods is not covered, so the incremental
+ * mode fits the step classes keeping their logic in the test class.</p>
+ * <p>The fingerprints are stored in one file per test class. A run of all the scenarios replaces
+ * the file, a filtered run keeps the fingerprints of the scenarios which have not been run.</p>
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+final class ScenarioFingerprints {
+
+    /** Logger. */
+    private static final Logger LOG = Logger.getLogger(ScenarioFingerprints.class.getName());
+
+    /** The name of the system property defining the directory of the fingerprint files. */
+    public static final String DIR_PROPERTY = "mbyhave.incremental.dir";
+
+    private static final String CHARSET = "UTF-8";
+
+    private final File        file;
+    /** The hash of the test class, its lifecycle methods, converters and binding settings. <tt>null</tt> if they can not be hashed. */
+    private final byte[]      classHash;
+    private final Set<String> passedBefore;
+    private final Set<String> passed = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final Set<String> failed = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * @param file The fingerprint file of the test class. (NonNull)
+     * @param configuration The configuration of the test class. (NonNull)
+     */
+    ScenarioFingerprints(final File file, final MByHaveConfiguration configuration) {
+        this.file         = file;
+        this.classHash    = hashClass(configuration);
+        this.passedBefore = read(file);
+    }
+
+    /**
+     * @param configuration The configuration of the test class. (NonNull)
+     * @return The fingerprints of the test class in the directory defined by the {@value #DIR_PROPERTY}
+     *         system property or <tt>null</tt> if the incremental mode is not enabled. (Nullable)
+     */
+    static ScenarioFingerprints fromSystemProperty(final MByHaveConfiguration configuration) {
+        final String directory = System.getProperty(DIR_PROPERTY);
+        if (directory == null || directory.trim().isEmpty()) {
+            return null;
+        }
+        return new ScenarioFingerprints(new File(directory.trim(), configuration.getTestClass().getName() + ".fingerprints"), configuration);
+    }
+
+    /**
+     * @param boundSteps The bound steps of a scenario. (NonNull)
+     * @return The fingerprint of the scenario or <tt>null</tt> if the code of a method is not
+     *         available, so the scenario has to be run. (Nullable)
+     */
+    String fingerprint(final List<BoundStep> boundSteps) {
+        if (classHash == null) {
+            return null;
+        }
+        final MessageDigest digest = createDigest();
+        digest.update(classHash);
+        try {
+            for (final BoundStep boundStep : boundSteps) {
+                if (!boundStep.isBound() || boundStep.getMatch() == null) {
+                    return null;
+                }
+                digest.update(boundStep.getStep().getBytes(CHARSET));
+                digest.update((byte) 0);
+                if (!update(digest, boundStep.getMatch().getCandidate().getMethod())) {
+                    return null;
+                }
+            }
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * @param fingerprint The fingerprint of a scenario. (NonNull)
+     * @return <tt>true</tt> if the scenario has passed with the same fingerprint in the previous run.
+     */
+    boolean hasPassed(final String fingerprint) {
+        return passedBefore.contains(fingerprint) && !failed.contains(fingerprint);
+    }
+
+    /**
+     * Records the outcome of a scenario.
+     *
+     * @param fingerprint The fingerprint of the scenario. (NonNull)
+     * @param success <tt>true</tt> if the scenario has passed or has been skipped as passed.
+     */
+    void record(final String fingerprint, final boolean success) {
+        if (success) {
+            passed.add(fingerprint);
+        } else {
+            failed.add(fingerprint);
+        }
+    }
+
+    /**
+     * Stores the fingerprints of the passed scenarios.
+     *
+     * @param complete <tt>true</tt> if all the scenarios have been run, so the fingerprints of the
+     *        previous run can be dropped.
+     */
+    void save(final boolean complete) {
+        final Set<String> fingerprints = new TreeSet<String>(passed);
+        if (!complete) {
+            fingerprints.addAll(passedBefore);
+        }
+        fingerprints.removeAll(failed);
+
+        File tempFile = null;
+        try {
+            final File directory = file.getAbsoluteFile().getParentFile();
+            if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+                throw new IOException("The fingerprint directory can not be created: " + directory);
+            }
+            tempFile = File.createTempFile(file.getName(), ".tmp", directory);
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), CHARSET));
+            try {
+                for (final String fingerprint : fingerprints) {
+                    writer.write(fingerprint);
+                    writer.write('\n');
+                }
+            } finally {
+                writer.close();
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tempFile = null;
+        } catch (final IOException e) {
+            LOG.log(Level.WARNING, "The fingerprint file is not writable: " + file, e);
+        } finally {
+            if (tempFile != null && !tempFile.delete()) {
+                tempFile.deleteOnExit();
+            }
+        }
+    }
+
+    private static Set<String> read(final File file) {
+        if (!file.isFile()) {
+            return Collections.emptySet();
+        }
+        final Set<String> fingerprints = new HashSet<String>();
+        try {
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), CHARSET));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.trim().isEmpty()) {
+                        fingerprints.add(line.trim());
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (final IOException e) {
+            LOG.log(Level.WARNING, "The fingerprint file is not readable: " + file, e);
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(fingerprints);
+    }
+
+    private static byte[] hashClass(final MByHaveConfiguration configuration) {
+        final MessageDigest digest = createDigest();
+        try {
+            digest.update(configuration.getTestClass().getName().getBytes(CHARSET));
+            /* The configuration is created with the engine and the mode of the system properties. */
+            digest.update((StepMatcher.Engine.fromSystemProperty() + "|" + MethodInvoker.Mode.fromSystemProperty()).getBytes(CHARSET));
+            if (!update(digest, configuration.getBeforeClassMethods()) || !update(digest, configuration.getBeforeMethods())
+                    || !update(digest, configuration.getAfterMethods()) || !update(digest, configuration.getAfterClassMethods())) {
+                LOG.warning("The code of the lifecycle methods is not available, the scenarios of "
+                            + configuration.getTestClass().getName() + " are always run.");
+                return null;
+            }
+            if (!updateClasses(digest, configuration.getTestClass())) {
+                LOG.warning("The class files of the test class are not available, the scenarios of "
+                            + configuration.getTestClass().getName() + " are always run.");
+                return null;
+            }
+            if (!updateConverters(digest, configuration.getTestClass())) {
+                LOG.warning("The code of the converters is not available, the scenarios of "
+                            + configuration.getTestClass().getName() + " are always run.");
+                return null;
+            }
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Hashes the code of the test class and its superclasses. A new test object is created for
+     * each scenario, so the constructors and the field initializers take part in the hash, as well
+     * as the methods called by the step methods within the test class.
+     *
+     * @return <tt>false</tt> if a class file is not available.
+     */
+    private static boolean updateClasses(final MessageDigest digest, final Class<?> testClass) {
+        digest.update((byte) 0);
+        for (Class<?> type = testClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            final byte[] classHash = ClassFileReader.forClass(type).getClassHash();
+            if (classHash == null) {
+                return false;
+            }
+            digest.update(classHash);
+        }
+        return true;
+    }
+
+    /**
+     * Hashes the methods of the custom converter classes and their superclasses in the order of
+     * their signatures. The constructors are not covered.
+     *
+     * @return <tt>false</tt> if the code of a method is not available.
+     */
+    @SuppressWarnings("rawtypes")
+    private static boolean updateConverters(final MessageDigest digest, final Class<?> testClass) throws IOException {
+        digest.update((byte) 0);
+        if (!testClass.isAnnotationPresent(Converters.class)) {
+            return true;
+        }
+        for (final Class<? extends ParameterConverter> converterClass : testClass.getAnnotation(Converters.class).value()) {
+            for (Class<?> type = converterClass; type != Object.class; type = type.getSuperclass()) {
+                final List<Method> methods = new ArrayList<Method>();
+                for (final Method method : type.getDeclaredMethods()) {
+                    if (!Modifier.isAbstract(method.getModifiers())) {
+                        methods.add(method);
+                    }
+                }
+                Collections.sort(methods, new Comparator<Method>() {
+                    public int compare(final Method first, final Method second) {
+                        return (first.getName() + ClassFileReader.getDescriptor(first)).compareTo(second.getName() + ClassFileReader.getDescriptor(second));
+                    }
+                });
+                if (!update(digest, methods)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return <tt>false</tt> if the code of a method is not available.
+     */
+    private static boolean update(final MessageDigest digest, final List<Method> methods) throws IOException {
+        digest.update((byte) 0);
+        for (final Method method : methods) {
+            if (!update(digest, method)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return <tt>false</tt> if the code of the method is not available.
+     */
+    private static boolean update(final MessageDigest digest, final Method method) throws IOException {
+        final byte[] codeHash = ClassFileReader.forClass(method.getDeclaringClass()).getCodeHash(method);
+        if (codeHash == null) {
+            return false;
+        }
+        digest.update((method.getDeclaringClass().getName() + '.' + method.getName() + ClassFileReader.getDescriptor(method)).getBytes(CHARSET));
+        digest.update(codeHash);
+        return true;
+    }
+
+    private static String toHex(final byte[] bytes) {
+        final StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (final byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (final NoSuchAlgorithmException e) {
+            /* Every Java platform supports SHA-1. */
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -29,19 +29,28 @@
 package org.moresbycoffee.have;
 
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
+import org.moresbycoffee.have.converters.ParameterConverter;
+import org.moresbycoffee.have.exceptions.MByHaveAssertionError;
+
+import com.google.common.reflect.TypeToken;
+
 /**
  * Represents a method in the test class which is annotated to be a step and
  * can be matched to a step description.<br>
  * The class consists of the original step definition, the {@link Method method object}
- * the method parameters (in a map which maintains the order of the parameters) and
- * the {@link Pattern regex pattern} through which the step descriptions will be
- * matched to this {@link StepCandidate}.
+ * the method parameters (in a map which maintains the order of the parameters),
+ * the {@link StepTemplate compiled template} through which the step descriptions will be
+ * matched to this {@link StepCandidate} and the equivalent {@link Pattern regex pattern}.
  *
  * TODO remove map and use an sorted list.
  *
@@ -55,6 +64,12 @@ public class StepCandidate implements Comparable<StepCandidate> {
         private final String paramName;
         private final int    paramPos;
         private final Type   paramType;
+        /** <tt>true</tt> if the parameter is a {@link Container}. */
+        private final boolean container;
+        /** The converter of the parameter value. <tt>null</tt> if no conversion is needed. */
+        private final ParameterConverter<?> converter;
+        /** The type of the values of a {@link ReturnValue} parameter. <tt>null</tt> for the other parameters. */
+        private final TypeToken<?>          returnValueType;
         
         /**
          * @param paramName The name of the parameter.
@@ -62,10 +77,23 @@ public class StepCandidate implements Comparable<StepCandidate> {
          * @param paramType The type of the parameter.
          */
         public MethodParameter(final String paramName, final int paramPos, final Type paramType) {
+            this(paramName, paramPos, paramType, null);
+        }
+
+        /**
+         * @param paramName The name of the parameter.
+         * @param paramPos The position of the parameter.
+         * @param paramType The type of the parameter.
+         * @param converter The converter of the parameter value. <tt>null</tt> if no conversion is needed.
+         */
+        public MethodParameter(final String paramName, final int paramPos, final Type paramType, final ParameterConverter<?> converter) {
             super();
             this.paramName = paramName;
             this.paramPos  = paramPos;
             this.paramType = paramType;
+            this.container = TypeToken.of(Container.class).isAssignableFrom(paramType);
+            this.converter = converter;
+            this.returnValueType = TypeToken.of(ReturnValue.class).isAssignableFrom(paramType) ? TypeToken.of(getTypeFromReturnValue(paramType)) : null;
         }
 
         public String getParamName() {
@@ -80,36 +108,119 @@ public class StepCandidate implements Comparable<StepCandidate> {
             return paramType;
         }
 
+        /**
+         * @return <tt>true</tt> if the parameter is a {@link Container}.
+         */
+        public boolean isContainer() {
+            return container;
+        }
+
+        /**
+         * @return The converter of the parameter value. <tt>null</tt> if no conversion is needed. (Nullable)
+         */
+        public ParameterConverter<?> getConverter() {
+            return converter;
+        }
+
+        /**
+         * @return The type of the values of a {@link ReturnValue} parameter, e.g. <tt>String</tt> for
+         *         <tt>ReturnValue&lt;String&gt;</tt> and <tt>Object</tt> for the raw <tt>ReturnValue</tt>.
+         *         <tt>null</tt> for the other parameters. (Nullable)
+         */
+        public TypeToken<?> getReturnValueType() {
+            return returnValueType;
+        }
+
+        private static Type getTypeFromReturnValue(final Type type) {
+            if (type instanceof ParameterizedType) {
+                return ((ParameterizedType) type).getActualTypeArguments()[0];
+            } else {
+                return Object.class;
+            }
+        }
+
     }
 
     private final String                        stepDefinition;
     private final Method                        method;
+    private final MethodInvoker                 invoker;
+    private final StepTemplate                  template;
     private final Pattern                       pattern;
     private final Map<Integer, MethodParameter> parameterPositions;
     private final List<MethodParameter>         returnValueParameters;
     /** The priority of the step candidate. The higher value should be picked up first. */
     private final int                           priority;
+    /** The parameters having placeholders in the order of the placeholders. */
+    private final MethodParameter[]             slotParameters;
+    /** The {@link ReturnValue} parameters. */
+    private final MethodParameter[]             returnValueParameterArray;
+    /** <tt>true</tt> if any parameter value has to be converted. */
+    private final boolean                       converting;
+    /** The number of the method parameters. */
+    private final int                           arity;
+    /**
+     * The type of the return values recorded for the method: its generic return type or the type
+     * supplied by its <tt>Supplier</tt> or <tt>Callable</tt>. <tt>null</tt> if the method is <tt>void</tt>.
+     */
+    private final Type                          returnType;
+    /** <tt>true</tt> if the method returns a <tt>Supplier</tt> or <tt>Callable</tt> of its return value. */
+    private final boolean                       lazyReturnValue;
 
 
     /**
      * @param stepDefinition The step definition
      * @param method The method
      * @param parameterPositions The method parameters
-     * @param regEx The regular expression
+     * @param template The compiled step definition
      * @param int priority The priority of the step candidate. The higher value should be picked up first.
      */
     public StepCandidate(final String stepDefinition,
     					 final Method method,
     					 final Map<Integer, MethodParameter> parameterPositions,
     					 final List<MethodParameter> returnValueParameters,
-    					 final String regEx,
+    					 final StepTemplate template,
     					 final int priority) {
         this.stepDefinition        = stepDefinition;
         this.method                = method;
+        this.invoker               = MethodInvoker.create(method);
         this.parameterPositions    = Collections.unmodifiableMap(parameterPositions);
         this.returnValueParameters = Collections.unmodifiableList(returnValueParameters);
-        this.pattern               = Pattern.compile(regEx);
+        this.template              = template;
+        this.pattern               = Pattern.compile(template.toRegEx());
         this.priority              = priority;
+
+        this.slotParameters            = parameterPositions.values().toArray(new MethodParameter[parameterPositions.size()]);
+        this.returnValueParameterArray = returnValueParameters.toArray(new MethodParameter[returnValueParameters.size()]);
+        this.arity                     = method.getParameterTypes().length;
+
+        boolean hasConverter = false;
+        for (final MethodParameter param : slotParameters) {
+            hasConverter |= param.getConverter() != null;
+        }
+        this.converting = hasConverter;
+        this.lazyReturnValue           = Supplier.class.equals(method.getReturnType()) || Callable.class.equals(method.getReturnType());
+        if (Void.TYPE.equals(method.getReturnType())) {
+            this.returnType = null;
+        } else if (lazyReturnValue) {
+            this.returnType = getSuppliedType(method.getGenericReturnType());
+        } else {
+            this.returnType = method.getGenericReturnType();
+        }
+    }
+
+    /**
+     * @param supplierType The generic <tt>Supplier</tt> or <tt>Callable</tt> return type. (NonNull)
+     * @return The supplied type. <tt>Object</tt> for the raw types and the upper bound for the wildcards. (NonNull)
+     */
+    private static Type getSuppliedType(final Type supplierType) {
+        if (!(supplierType instanceof ParameterizedType)) {
+            return Object.class;
+        }
+        final Type suppliedType = ((ParameterizedType) supplierType).getActualTypeArguments()[0];
+        if (suppliedType instanceof WildcardType) {
+            return ((WildcardType) suppliedType).getUpperBounds()[0];
+        }
+        return suppliedType;
     }
 
     public String getStepDefinition() {
@@ -120,6 +231,13 @@ public class StepCandidate implements Comparable<StepCandidate> {
         return method;
     }
 
+    /**
+     * @return The invoker of the method. (NonNull)
+     */
+    public MethodInvoker getInvoker() {
+        return invoker;
+    }
+
     public Map<Integer, MethodParameter> getParameterPositions() {
         return parameterPositions;
     }
@@ -128,10 +246,101 @@ public class StepCandidate implements Comparable<StepCandidate> {
         return returnValueParameters;
     }
 
+    public StepTemplate getTemplate() {
+        return template;
+    }
+
     public Pattern getPattern() {
         return pattern;
     }
     
+    /**
+     * @return The parameters having placeholders in the order of the placeholders.
+     *         The array must not be modified. (NonNull)
+     */
+    MethodParameter[] getSlotParameters() {
+        return slotParameters;
+    }
+
+    /**
+     * @return The {@link ReturnValue} parameters. The array must not be modified. (NonNull)
+     */
+    MethodParameter[] getReturnValueParameterArray() {
+        return returnValueParameterArray;
+    }
+
+    /**
+     * Converts the parameter values picked up from a step description to the types of the
+     * method parameters. The {@link Container} parameter values are kept as container names.
+     *
+     * @param arguments The parameter values in the order of the placeholders. (NonNull)
+     * @return The converted values in the order of the placeholders. (NonNull)
+     * @throws MByHaveAssertionError If a value can not be converted.
+     */
+    public Object[] convertArguments(final String[] arguments) throws MByHaveAssertionError {
+        if (!converting) {
+            return arguments;
+        }
+        final Object[] values = new Object[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            final ParameterConverter<?> converter = slotParameters[i].getConverter();
+            if (converter == null) {
+                values[i] = arguments[i];
+                continue;
+            }
+            try {
+                values[i] = converter.convert(arguments[i]);
+            } catch (final RuntimeException e) {
+                final MByHaveAssertionError error = new MByHaveAssertionError("The \"" + arguments[i] + "\" value of the "
+                        + slotParameters[i].getParamName() + " parameter can not be converted to " + slotParameters[i].getType()
+                        + " in the \"" + stepDefinition + "\" step.");
+                error.initCause(e);
+                throw error;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @return The number of the method parameters.
+     */
+    public int getArity() {
+        return arity;
+    }
+
+    /**
+     * Returns the type of the return values recorded for the method. It is the generic return type
+     * of the method, except for the methods returning a <tt>Supplier&lt;T&gt;</tt> or a
+     * <tt>Callable&lt;T&gt;</tt> whose return values are recorded as lazy <tt>ReturnValue&lt;T&gt;</tt>s.
+     *
+     * @return The type of the return values. <tt>null</tt> if the method is <tt>void</tt>. (Nullable)
+     */
+    public Type getReturnType() {
+        return returnType;
+    }
+
+    /**
+     * Creates the return value recorded for a result of the method. The returned <tt>Supplier</tt>s
+     * and <tt>Callable</tt>s are evaluated on the first {@link ReturnValue#getValue()} call.
+     *
+     * @param result The result of the method. (Nullable)
+     * @return The return value. (NonNull)
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    ReturnValue<?> createReturnValue(final Object result) {
+        if (!lazyReturnValue || result == null) {
+            return new ReturnValue(returnType, result);
+        } else if (result instanceof Supplier) {
+            final Supplier<?> supplier = (Supplier<?>) result;
+            return new LazyReturnValue(returnType, new Callable<Object>() {
+                public Object call() {
+                    return supplier.get();
+                }
+            });
+        }
+        return new LazyReturnValue(returnType, (Callable<?>) result);
+    }
+
     /**
      * @return the priority The priority of the step candidate. The higher value should be picked up first.
      */
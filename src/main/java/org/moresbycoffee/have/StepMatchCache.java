@@ -0,0 +1,170 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import java.lang.annotation.Annotation;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * <p>A bounded, least recently used cache of the resolved steps. The cache maps the keyword and
+ * the step description (without the keyword) to the matched {@link StepMatch step candidate and
+ * parameter values}, so the same step description appearing in many scenarios is matched only once.</p>
+ * <p>The size of the cache can be set by the <tt>mbyhave.stepMatchCache.size</tt> system property.
+ * The default size is {@value #DEFAULT_MAXIMUM_SIZE}, the <tt>0</tt> value turns off the caching.
+ * The hit and miss counters can be used to find the right size.</p>
+ * <p>The cache is safe to use from concurrently run scenarios. The lookups do not block each
+ * other, the least recently used order is kept per segment of the underlying {@link Cache}.</p>
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class StepMatchCache {
+
+    /** The name of the system property defining the maximum size of the cache. */
+    public static final String SIZE_PROPERTY        = "mbyhave.stepMatchCache.size";
+    /** The default maximum size of the cache. */
+    public static final int    DEFAULT_MAXIMUM_SIZE = 1024;
+
+    private final int                   maximumSize;
+    private final Cache<Key, StepMatch> entries;
+
+    /** The reusable key of the lookups of each thread. */
+    private final ThreadLocal<Key> lookupKey = new ThreadLocal<Key>() {
+        @Override
+        protected Key initialValue() {
+            return new Key(null, null);
+        }
+    };
+
+    /**
+     * @param maximumSize The maximum number of the cached steps.
+     */
+    public StepMatchCache(final int maximumSize) {
+        this.maximumSize = maximumSize;
+        this.entries     = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+    }
+
+    /**
+     * @return A cache with the size defined by the {@value #SIZE_PROPERTY} system property. (NonNull)
+     */
+    public static StepMatchCache create() {
+        return new StepMatchCache(Integer.getInteger(SIZE_PROPERTY, DEFAULT_MAXIMUM_SIZE).intValue());
+    }
+
+    /**
+     * @param keyword The keyword annotation of the step. (NonNull)
+     * @param step The step description without the keyword. (NonNull)
+     * @return The cached match or <tt>null</tt> if the step is not in the cache. (Nullable)
+     */
+    public StepMatch get(final Class<? extends Annotation> keyword, final String step) {
+        final Key key = lookupKey.get();
+        key.keyword = keyword;
+        key.step    = step;
+        final StepMatch match = entries.getIfPresent(key);
+        key.step    = null;
+        return match;
+    }
+
+    /**
+     * @param keyword The keyword annotation of the step. (NonNull)
+     * @param step The step description without the keyword. (NonNull)
+     * @param match The match of the step. (NonNull)
+     */
+    public void put(final Class<? extends Annotation> keyword, final String step, final StepMatch match) {
+        if (maximumSize > 0) {
+            entries.put(new Key(keyword, step), match);
+        }
+    }
+
+    /**
+     * @return The maximum number of the cached steps.
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * @return The number of the cached steps.
+     */
+    public int size() {
+        return (int) entries.size();
+    }
+
+    /**
+     * @return The number of the lookups found in the cache.
+     */
+    public long getHitCount() {
+        return entries.stats().hitCount();
+    }
+
+    /**
+     * @return The number of the lookups not found in the cache.
+     */
+    public long getMissCount() {
+        return entries.stats().missCount();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return "StepMatchCache [size=" + entries.size() + ", maximumSize=" + maximumSize + ", hits=" + getHitCount() + ", misses=" + getMissCount() + "]";
+    }
+
+    /** The key of the cache entries. Only the {@link StepMatchCache#lookupKey lookup keys} are modified. */
+    private static final class Key {
+
+        private Class<? extends Annotation> keyword;
+        private String                      step;
+
+        private Key(final Class<? extends Annotation> keyword, final String step) {
+            this.keyword = keyword;
+            this.step    = step;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * keyword.hashCode() + step.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key that = (Key) obj;
+            return keyword == that.keyword && step.equals(that.step);
+        }
+    }
+
+}
@@ -0,0 +1,306 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Matches the step descriptions of one keyword to the {@link StepCandidate}s.</p>
+ * <p>Most of the step definitions start with a literal text before the first parameter
+ * placeholder. These literal prefixes are stored in a character trie, so walking the
+ * step description down the trie selects the candidates whose prefix matches the step
+ * description (and the candidates starting with a placeholder, which are stored at the
+ * root). The selection only depends on the deepest trie node reached, so each node has
+ * its own combined pattern compiled from the patterns of the selected candidates.</p>
+ * <p>The selected candidates are matched in the order of their rank
+ * ({@link StepCandidate#compareTo(StepCandidate)}) by one of the two {@link Engine engine}s:</p>
+ * <ul>
+ * <li>{@link Engine#TEMPLATE} matches the {@link StepTemplate}s of the candidates by literal
+ *     searches.</li>
+ * <li>{@link Engine#REGEX} (default) matches the selected candidates in one pass by an alternation of
+ *     their patterns. The first matching alternative is the highest ranked matching candidate.</li>
+ * </ul>
+ * <p>The engine can be selected by the <tt>mbyhave.matcher</tt> system property
+ * (<tt>template</tt> or <tt>regex</tt>).</p>
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class StepMatcher {
+
+    /** The name of the system property selecting the {@link Engine}. */
+    public static final String ENGINE_PROPERTY = "mbyhave.matcher";
+
+    /** The matching engines. */
+    public enum Engine {
+        /** Matches the {@link StepTemplate}s of the candidates. */
+        TEMPLATE,
+        /** Matches the {@link StepCandidate#getPattern() patterns} of the candidates. */
+        REGEX;
+
+        /**
+         * @return The engine selected by the {@value StepMatcher#ENGINE_PROPERTY} system property. (NonNull)
+         */
+        public static Engine fromSystemProperty() {
+            final String engine = System.getProperty(ENGINE_PROPERTY);
+            return engine == null ? REGEX : valueOf(engine.trim().toUpperCase(Locale.ENGLISH));
+        }
+    }
+
+    /** The candidates in the order of their rank. (NonNull) */
+    private final List<StepCandidate> candidates;
+    /** The root of the literal prefix trie. (NonNull) */
+    private final Node                root;
+    private final Engine              engine;
+    /** The highest number of parameter slots of the candidates. */
+    private final int                 maxSlotCount;
+    /** The reusable slot bounds array of the {@link Engine#TEMPLATE template engine}. */
+    private final ThreadLocal<int[]>  bounds = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[2 * maxSlotCount];
+        }
+    };
+
+    /**
+     * @param candidates The step candidates in the order of their rank. (NonNull)
+     * @param engine The matching engine. (NonNull)
+     */
+    public StepMatcher(final List<StepCandidate> candidates, final Engine engine) {
+        this.candidates = Collections.unmodifiableList(new ArrayList<StepCandidate>(candidates));
+        this.root       = new Node(null);
+        this.engine     = engine;
+
+        int slots = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            final StepTemplate template = candidates.get(i).getTemplate();
+            slots = Math.max(slots, template.getSlotCount());
+            final String prefix = template.getLiteralPrefix();
+            Node node = root;
+            for (int c = 0; c < prefix.length(); c++) {
+                node = node.getOrAddChild(prefix.charAt(c));
+            }
+            node.addCandidate(i);
+        }
+        this.maxSlotCount = slots;
+    }
+
+    /**
+     * @return The candidates in the order of their rank. (NonNull)
+     */
+    public List<StepCandidate> getCandidates() {
+        return candidates;
+    }
+
+    /**
+     * Matches the step description to the candidates.
+     *
+     * @param step The step description without the keyword. (NonNull)
+     * @return The highest ranked matching candidate with the parameter values or
+     *         <tt>null</tt> if there is no matching candidate. (Nullable)
+     */
+    public StepMatch match(final String step) {
+        Node node = root;
+        for (int c = 0; c < step.length(); c++) {
+            final char key   = step.charAt(c);
+            final Node child = node.getChild(key == '\n' ? ' ' : key);
+            if (child == null) {
+                break;
+            }
+            node = child;
+        }
+
+        return engine == Engine.TEMPLATE ? matchTemplates(node.getSelected(), step) : matchAlternation(node.getAlternation(), step);
+    }
+
+    private StepMatch matchTemplates(final int[] selected, final String step) {
+        final int[] bounds = this.bounds.get();
+        for (final int index : selected) {
+            final StepCandidate candidate = candidates.get(index);
+            if (candidate.getTemplate().match(step, bounds)) {
+                final String[] arguments = new String[candidate.getTemplate().getSlotCount()];
+                for (int i = 0; i < arguments.length; i++) {
+                    arguments[i] = step.substring(bounds[2 * i], bounds[2 * i + 1]);
+                }
+                return new StepMatch(candidate, arguments);
+            }
+        }
+        return null;
+    }
+
+    private StepMatch matchAlternation(final Alternation alternation, final String step) {
+        if (alternation == null) {
+            return null;
+        }
+        /* The parameter values can contain line breaks, but the patterns are matched line by line. */
+        final Matcher matcher = alternation.matcher.get().reset(step.replace('\n', ' '));
+        if (!matcher.matches()) {
+            return null;
+        }
+        int index = 0;
+        while (matcher.start(alternation.groupOffsets[index]) < 0) {
+            index++;
+        }
+        final StepCandidate candidate = candidates.get(alternation.candidateIndexes[index]);
+        final String[]      arguments = new String[candidate.getParameterPositions().size()];
+        for (int i = 0; i < arguments.length; i++) {
+            final int group = alternation.groupOffsets[index] + i + 1;
+            /* The values are picked up from the original step description to keep the line breaks. */
+            arguments[i] = step.substring(matcher.start(group), matcher.end(group));
+        }
+        return new StepMatch(candidate, arguments);
+    }
+
+    /** A node of the literal prefix trie. */
+    private final class Node {
+
+        private final Node parent;
+        private char[]     keys                 = new char[0];
+        private Node[]     children             = new Node[0];
+        /** The indexes of the candidates whose literal prefix ends at this node. */
+        private int[]      candidateIndexes     = new int[0];
+        /** Lazily computed. */
+        private volatile int[]       selected;
+        /** Lazily compiled. */
+        private volatile Alternation alternation;
+        private volatile boolean     alternationCompiled;
+
+        private Node(final Node parent) {
+            this.parent = parent;
+        }
+
+        private Node getChild(final char key) {
+            final int index = Arrays.binarySearch(keys, key);
+            return index < 0 ? null : children[index];
+        }
+
+        private Node getOrAddChild(final char key) {
+            int index = Arrays.binarySearch(keys, key);
+            if (index < 0) {
+                index = -index - 1;
+                final char[] newKeys     = new char[keys.length + 1];
+                final Node[] newChildren = new Node[children.length + 1];
+                System.arraycopy(keys,     0,     newKeys,     0,         index);
+                System.arraycopy(keys,     index, newKeys,     index + 1, keys.length - index);
+                System.arraycopy(children, 0,     newChildren, 0,         index);
+                System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+                newKeys[index]     = key;
+                newChildren[index] = new Node(this);
+                keys     = newKeys;
+                children = newChildren;
+            }
+            return children[index];
+        }
+
+        private void addCandidate(final int candidateIndex) {
+            candidateIndexes = Arrays.copyOf(candidateIndexes, candidateIndexes.length + 1);
+            candidateIndexes[candidateIndexes.length - 1] = candidateIndex;
+        }
+
+        /**
+         * @return The indexes of the candidates stored at this node and at its ancestors
+         *         in the order of their rank. (NonNull)
+         */
+        private int[] getSelected() {
+            int[] result = selected;
+            if (result == null) {
+                int count = 0;
+                for (Node node = this; node != null; node = node.parent) {
+                    count += node.candidateIndexes.length;
+                }
+                result = new int[count];
+                int i = 0;
+                for (Node node = this; node != null; node = node.parent) {
+                    System.arraycopy(node.candidateIndexes, 0, result, i, node.candidateIndexes.length);
+                    i += node.candidateIndexes.length;
+                }
+                /* The candidate indexes follow the rank of the candidates. */
+                Arrays.sort(result);
+                selected = result;
+            }
+            return result;
+        }
+
+        /**
+         * @return The alternation of the {@link #getSelected() selected candidates}.
+         *         <tt>null</tt> if there is no such candidate. (Nullable)
+         */
+        private Alternation getAlternation() {
+            if (!alternationCompiled) {
+                final int[] indexes = getSelected();
+                alternation = indexes.length == 0 ? null : new Alternation(indexes);
+                alternationCompiled = true;
+            }
+            return alternation;
+        }
+    }
+
+    /** The combined pattern of the selected candidates. */
+    private final class Alternation {
+
+        /** The indexes of the selected candidates in the order of their rank. */
+        private final int[]   candidateIndexes;
+        /** The index of the group wrapping the alternative of the selected candidate with the same index. */
+        private final int[]   groupOffsets;
+        private final Pattern pattern;
+        /** The reusable matcher of the pattern. */
+        private final ThreadLocal<Matcher> matcher = new ThreadLocal<Matcher>() {
+            @Override
+            protected Matcher initialValue() {
+                return pattern.matcher("");
+            }
+        };
+
+        private Alternation(final int[] candidateIndexes) {
+            this.candidateIndexes = candidateIndexes;
+            this.groupOffsets     = new int[candidateIndexes.length];
+
+            final StringBuilder regEx = new StringBuilder();
+            int group = 1;
+            for (int i = 0; i < candidateIndexes.length; i++) {
+                final Pattern candidatePattern = candidates.get(candidateIndexes[i]).getPattern();
+                if (i > 0) {
+                    regEx.append('|');
+                }
+                /* Each alternative is wrapped into a group to find out which candidate has matched. */
+                regEx.append('(').append(candidatePattern.pattern()).append(')');
+                groupOffsets[i] = group;
+                group += candidatePattern.matcher("").groupCount() + 1;
+            }
+            this.pattern = Pattern.compile(regEx.toString());
+        }
+    }
+
+}
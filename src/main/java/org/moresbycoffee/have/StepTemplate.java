@@ -0,0 +1,425 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * <p>A compiled step definition. The step definition is split up into literal segments
+ * and parameter slots (<strong><tt>$paramname</tt></strong> placeholders), and the step
+ * descriptions are matched by literal searches without regular expressions. Each literal is
+ * searched once from right to left, so an untyped template is matched in <tt>O(n&middot;m)</tt>
+ * time in the worst case (<tt>n</tt> is the length of the step, <tt>m</tt> is the length of the
+ * literals) without any backtracking.</p>
+ * <p>The bindings are the same as the {@link #toRegEx() equivalent} greedy regular expression
+ * would produce: the literals are placed from right to left at their rightmost possible
+ * position, which gives the longest possible value to the first parameter, then to the second
+ * one and so on. Line breaks in the step description are matched as spaces.</p>
+ * <p>A placeholder can be narrowed by a type constraint: <tt>$count:int</tt> (an integer),
+ * <tt>$amount:number</tt> (a decimal number) or <tt>$name:word</tt> (a text without whitespace).
+ * The constraints are checked on the rightmost placement of the literals first. If a constraint
+ * rejects its value, the placements are searched from left to right like the regular expression
+ * backtracks, so the typed templates bind the same values as the regular expression engine. The
+ * failed searches are remembered by slot and start index, so each of them runs at most once and
+ * the search takes <tt>O(k&middot;n&middot;n&middot;m)</tt> time in the worst case (<tt>k</tt> is
+ * the number of the slots) instead of growing exponentially.</p>
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class StepTemplate {
+
+    /** The type constraints of the parameter slots. */
+    public enum SlotType {
+
+        /** Any text. */
+        ANY(null, "(.*)"),
+        /** An integer with an optional sign. */
+        INT("int", "([-+]?\\d+)"),
+        /** A decimal number with an optional sign. */
+        NUMBER("number", "([-+]?\\d+(?:\\.\\d+)?)"),
+        /** A text without whitespace. */
+        WORD("word", "(\\S+)");
+
+        private final String name;
+        private final String regEx;
+
+        private SlotType(final String name, final String regEx) {
+            this.name  = name;
+            this.regEx = regEx;
+        }
+
+        /**
+         * @return The name of the constraint used after the placeholder (<tt>$param:name</tt>).
+         *         <tt>null</tt> for {@link #ANY}. (Nullable)
+         */
+        public String getName() {
+            return name;
+        }
+
+        private boolean accepts(final String step, final int start, final int end) {
+            switch (this) {
+                case INT:
+                    return digits(step, signed(step, start, end), end) == end;
+                case NUMBER: {
+                    final int integerEnd = digits(step, signed(step, start, end), end);
+                    if (integerEnd == end || integerEnd < 0) {
+                        return integerEnd == end;
+                    }
+                    return step.charAt(integerEnd) == '.' && digits(step, integerEnd + 1, end) == end;
+                }
+                case WORD:
+                    if (start == end) {
+                        return false;
+                    }
+                    for (int i = start; i < end; i++) {
+                        if (isRegExWhitespace(step.charAt(i))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                default:
+                    /* The . of the regular expression matches anything but the line terminators (\n is matched as a space). */
+                    for (int i = start; i < end; i++) {
+                        if (isLineTerminator(step.charAt(i))) {
+                            return false;
+                        }
+                    }
+                    return true;
+            }
+        }
+
+        /**
+         * Returns the last index the value starting at <tt>start</tt> may end at. The constraint
+         * accepts a value ending before it if {@link #acceptsEnd(String, int, int)} does.
+         *
+         * @return The last possible end index or <tt>-1</tt> if no value is accepted.
+         */
+        private int getMaxEnd(final String step, final int start, final int limit) {
+            switch (this) {
+                case INT:
+                    return digits(step, signed(step, start, limit), limit);
+                case NUMBER: {
+                    final int integerEnd = digits(step, signed(step, start, limit), limit);
+                    if (integerEnd < 0 || integerEnd == limit || step.charAt(integerEnd) != '.') {
+                        return integerEnd;
+                    }
+                    final int fractionEnd = digits(step, integerEnd + 1, limit);
+                    return fractionEnd < 0 ? integerEnd : fractionEnd;
+                }
+                case WORD: {
+                    int i = start;
+                    while (i < limit && !isRegExWhitespace(step.charAt(i))) {
+                        i++;
+                    }
+                    return i == start ? -1 : i;
+                }
+                default: {
+                    int i = start;
+                    while (i < limit && !isLineTerminator(step.charAt(i))) {
+                        i++;
+                    }
+                    return i;
+                }
+            }
+        }
+
+        /**
+         * Checks a value not ending after the {@link #getMaxEnd(String, int, int) last possible end}
+         * in constant time.
+         */
+        private boolean acceptsEnd(final String step, final int start, final int end) {
+            switch (this) {
+                case INT:
+                    return end > signed(step, start, end);
+                case NUMBER:
+                    return end > signed(step, start, end) && step.charAt(end - 1) != '.';
+                case WORD:
+                    return end > start;
+                default:
+                    return true;
+            }
+        }
+
+        /** The line terminators of the regular expressions (\n is matched as a space). */
+        private static boolean isLineTerminator(final char c) {
+            return c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+        }
+
+        /** The <tt>\s</tt> class of the regular expressions. The line breaks are matched as spaces. */
+        private static boolean isRegExWhitespace(final char c) {
+            return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+        }
+
+        private static int signed(final String step, final int start, final int end) {
+            return start < end && (step.charAt(start) == '-' || step.charAt(start) == '+') ? start + 1 : start;
+        }
+
+        /** @return The end of the digits starting at <tt>start</tt> or <tt>-1</tt> if there is no digit. */
+        private static int digits(final String step, final int start, final int end) {
+            int i = start;
+            while (i < end && step.charAt(i) >= '0' && step.charAt(i) <= '9') {
+                i++;
+            }
+            return i == start ? -1 : i;
+        }
+    }
+
+    /** The literal segments. There is one more literal than slot. (NonNull) */
+    private final String[]   literals;
+    /** The names of the parameters of the slots. (NonNull) */
+    private final String[]   slotNames;
+    /** The type constraints of the slots. (NonNull) */
+    private final SlotType[] slotTypes;
+
+    private StepTemplate(final String[] literals, final String[] slotNames, final SlotType[] slotTypes) {
+        this.literals  = literals;
+        this.slotNames = slotNames;
+        this.slotTypes = slotTypes;
+    }
+
+    /**
+     * Compiles the step definition. The <tt>$</tt> signs not followed by a parameter name are
+     * treated as literals. If more parameter names match at a placeholder, the longest one wins.
+     *
+     * @param stepDefinition The step definition. (NonNull)
+     * @param paramNames The names of the parameters having placeholders. (NonNull)
+     * @return The compiled template. (NonNull)
+     */
+    public static StepTemplate compile(final String stepDefinition, final Collection<String> paramNames) {
+        final List<String>   literals  = new ArrayList<String>();
+        final List<String>   slotNames = new ArrayList<String>();
+        final List<SlotType> slotTypes = new ArrayList<SlotType>();
+
+        int literalStart = 0;
+        int i = stepDefinition.indexOf('$');
+        while (i >= 0) {
+            String paramName = null;
+            for (final String name : paramNames) {
+                if (stepDefinition.startsWith(name, i + 1) && (paramName == null || name.length() > paramName.length())) {
+                    paramName = name;
+                }
+            }
+            if (paramName == null) {
+                i = stepDefinition.indexOf('$', i + 1);
+                continue;
+            }
+            int placeholderEnd = i + 1 + paramName.length();
+            SlotType slotType = SlotType.ANY;
+            for (final SlotType type : SlotType.values()) {
+                if (type.getName() != null && stepDefinition.startsWith(":" + type.getName(), placeholderEnd)) {
+                    slotType = type;
+                    placeholderEnd += type.getName().length() + 1;
+                    break;
+                }
+            }
+            literals.add(stepDefinition.substring(literalStart, i));
+            slotNames.add(paramName);
+            slotTypes.add(slotType);
+            literalStart = placeholderEnd;
+            i = stepDefinition.indexOf('$', placeholderEnd);
+        }
+        literals.add(stepDefinition.substring(literalStart));
+
+        return new StepTemplate(literals.toArray(new String[literals.size()]),
+                                slotNames.toArray(new String[slotNames.size()]),
+                                slotTypes.toArray(new SlotType[slotTypes.size()]));
+    }
+
+    /**
+     * @return The number of the parameter slots.
+     */
+    public int getSlotCount() {
+        return slotNames.length;
+    }
+
+    /**
+     * @param slot The index of the slot.
+     * @return The name of the parameter of the slot. (NonNull)
+     */
+    public String getSlotName(final int slot) {
+        return slotNames[slot];
+    }
+
+    /**
+     * @param slot The index of the slot.
+     * @return The type constraint of the slot. (NonNull)
+     */
+    public SlotType getSlotType(final int slot) {
+        return slotTypes[slot];
+    }
+
+    /**
+     * @return The literal text before the first parameter slot. (NonNull)
+     */
+    public String getLiteralPrefix() {
+        return literals[0];
+    }
+
+    /**
+     * Creates the equivalent regular expression of the template.
+     *
+     * @return The regular expression. (NonNull)
+     */
+    public String toRegEx() {
+        final StringBuilder regEx = new StringBuilder("^").append(Pattern.quote(literals[0]));
+        for (int i = 0; i < slotTypes.length; i++) {
+            regEx.append(slotTypes[i].regEx).append(Pattern.quote(literals[i + 1]));
+        }
+        return regEx.append('$').toString();
+    }
+
+    /**
+     * Matches the step description to the template.
+     *
+     * @param step The step description. (NonNull)
+     * @return The values of the slots or <tt>null</tt> if the step does not match. (Nullable)
+     */
+    public String[] match(final String step) {
+        final int[] bounds = new int[2 * slotNames.length];
+        if (!match(step, bounds)) {
+            return null;
+        }
+        final String[] values = new String[slotNames.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = step.substring(bounds[2 * i], bounds[2 * i + 1]);
+        }
+        return values;
+    }
+
+    /**
+     * Matches the step description to the template and stores the start and end index of the
+     * value of each slot in the <tt>bounds</tt> array.
+     *
+     * @param step The step description. (NonNull)
+     * @param bounds The array of the start and end indexes. Its length has to be at least twice
+     *        the {@link #getSlotCount() number of the slots}. (NonNull)
+     * @return <tt>true</tt> if the step matches.
+     */
+    public boolean match(final String step, final int[] bounds) {
+        final String prefix = literals[0];
+        if (!regionMatches(step, 0, prefix)) {
+            return false;
+        }
+        final int slotCount = slotNames.length;
+        if (slotCount == 0) {
+            return step.length() == prefix.length();
+        }
+
+        /* The last literal has to be the suffix. */
+        final String suffix = literals[slotCount];
+        int limit = step.length() - suffix.length();
+        if (limit < prefix.length() || !regionMatches(step, limit, suffix)) {
+            return false;
+        }
+        /* The other literals are placed from right to left at their rightmost position. */
+        for (int slot = slotCount - 1; slot > 0; slot--) {
+            final String literal = literals[slot];
+            int position = limit - literal.length();
+            while (position >= prefix.length() && !regionMatches(step, position, literal)) {
+                position--;
+            }
+            if (position < prefix.length()) {
+                return false;
+            }
+            bounds[2 * slot]     = position + literal.length();
+            bounds[2 * slot + 1] = limit;
+            limit = position;
+        }
+        bounds[0] = prefix.length();
+        bounds[1] = limit;
+
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (!slotTypes[slot].accepts(step, bounds[2 * slot], bounds[2 * slot + 1])) {
+                /* The rightmost placement is rejected, the other placements are searched. */
+                return matchSlots(step, 0, prefix.length(), bounds, new boolean[slotCount * (step.length() + 1)]);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Searches the placements of the literals after the slot from left to right, trying the
+     * longest value of the slot first, like the greedy regular expression backtracks.
+     *
+     * @param step The step description. (NonNull)
+     * @param slot The index of the slot.
+     * @param start The start index of the value of the slot.
+     * @param bounds The array of the start and end indexes. (NonNull)
+     * @param failed The slot and start index pairs which can not be bound, indexed by
+     *        <tt>slot * (step.length() + 1) + start</tt>. (NonNull)
+     * @return <tt>true</tt> if the slot and the following ones can be bound.
+     */
+    private boolean matchSlots(final String step, final int slot, final int start, final int[] bounds, final boolean[] failed) {
+        final int state = slot * (step.length() + 1) + start;
+        if (failed[state]) {
+            return false;
+        }
+        final int suffixStart = step.length() - literals[slotNames.length].length();
+        if (slot == slotNames.length - 1) {
+            if (suffixStart < start || !slotTypes[slot].accepts(step, start, suffixStart)) {
+                failed[state] = true;
+                return false;
+            }
+            bounds[2 * slot]     = start;
+            bounds[2 * slot + 1] = suffixStart;
+            return true;
+        }
+        final String literal = literals[slot + 1];
+        final int    maxEnd  = Math.min(slotTypes[slot].getMaxEnd(step, start, suffixStart), suffixStart - literal.length());
+        for (int end = maxEnd; end >= start; end--) {
+            if (regionMatches(step, end, literal) && slotTypes[slot].acceptsEnd(step, start, end)
+                    && matchSlots(step, slot + 1, end + literal.length(), bounds, failed)) {
+                bounds[2 * slot]     = start;
+                bounds[2 * slot + 1] = end;
+                return true;
+            }
+        }
+        failed[state] = true;
+        return false;
+    }
+
+    /** Compares a region of the step to the literal. The line breaks of the step are compared as spaces. */
+    private static boolean regionMatches(final String step, final int offset, final String literal) {
+        if (offset < 0 || offset + literal.length() > step.length()) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            final char c = step.charAt(offset + i);
+            if ((c == '\n' ? ' ' : c) != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,316 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.moresbycoffee.have.domain.Examples;
+import org.moresbycoffee.have.domain.Scenario;
+import org.moresbycoffee.have.domain.ScenarioOutline;
+import org.moresbycoffee.have.domain.StepTable;
+import org.moresbycoffee.have.domain.Story;
+
+/**
+ * <p>Optional on-disk cache of the parsed story files. It is enabled by the
+ * <tt>mbyhave.storyCache.dir</tt> system property, e.g. <tt>target/mbyhave-story-cache</tt>.</p>
+ * <p>Every story file has one cache file named by the hash of its URL. The cache file starts with
+ * the URL and the SHA-1 hash of the content of the story file, followed by the scenarios in a
+ * compact binary form. A cache file is used only if the content hash matches, so the changed
+ * story files are parsed again and their cache files are rewritten. The external examples of the
+ * scenario outlines are not cached, they are always read when the outlines run.</p>
+ * <p>The cache files are written to a temporary file and moved in place, so concurrent JVMs
+ * sharing the directory never read a partially written file. Any problem with the cache,
+ * including a corrupt cache file, is logged and the story file is parsed.</p>
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+final class StoryCache {
+
+    /** Logger. */
+    private static final Logger LOG = Logger.getLogger(StoryCache.class.getName());
+
+    /** The name of the system property defining the cache directory. */
+    public static final String DIR_PROPERTY = "mbyhave.storyCache.dir";
+
+    private static final int MAGIC   = 0x4D427953; // "MByS"
+    private static final int VERSION = 2;
+
+    private static final byte SCENARIO         = 0;
+    private static final byte INLINE_OUTLINE   = 1;
+    private static final byte EXTERNAL_OUTLINE = 2;
+
+    private final File directory;
+
+    /**
+     * @param directory The cache directory. It is created if it does not exist. (NonNull)
+     */
+    StoryCache(final File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return The cache in the directory defined by the {@value #DIR_PROPERTY} system property
+     *         or <tt>null</tt> if the cache is not enabled. (Nullable)
+     */
+    static StoryCache fromSystemProperty() {
+        final String directory = System.getProperty(DIR_PROPERTY);
+        return directory == null || directory.trim().isEmpty() ? null : new StoryCache(new File(directory.trim()));
+    }
+
+    /**
+     * @param content The content of a story file. Its position is moved to its limit. (NonNull)
+     * @return The SHA-1 hash of the content. (NonNull)
+     */
+    static byte[] hash(final ByteBuffer content) {
+        final MessageDigest digest = createDigest();
+        digest.update(content);
+        return digest.digest();
+    }
+
+    /**
+     * Returns the cached story if the content of the story file has not changed since it was cached.
+     *
+     * @param storyName The name of the story. (NonNull)
+     * @param storyUrl The URL of the story file. (NonNull)
+     * @param contentHash The hash of the current content of the story file. (NonNull)
+     * @param stepTable The table the steps of the story are interned into. (NonNull)
+     * @return The cached story or <tt>null</tt> if there is no valid cache entry. (Nullable)
+     */
+    Story get(final String storyName, final URL storyUrl, final byte[] contentHash, final StepTable stepTable) {
+        final File cacheFile = getCacheFile(storyUrl);
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+        try {
+            /* The cache file is read in memory, so the lengths can be checked against the remaining bytes. */
+            final DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(cacheFile.toPath())));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION || !storyUrl.toExternalForm().equals(readString(in))) {
+                    return null;
+                }
+                final byte[] cachedHash = new byte[readCount(in, in.readUnsignedShort())];
+                in.readFully(cachedHash);
+                if (!Arrays.equals(cachedHash, contentHash)) {
+                    return null;
+                }
+                return readStory(storyName, in, stepTable);
+            } finally {
+                in.close();
+            }
+        } catch (final IOException e) {
+            LOG.log(Level.WARNING, "The story cache file is not readable: " + cacheFile, e);
+            return null;
+        } catch (final RuntimeException e) {
+            LOG.log(Level.WARNING, "The story cache file is corrupt: " + cacheFile, e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the story in the cache.
+     *
+     * @param storyUrl The URL of the story file. (NonNull)
+     * @param contentHash The hash of the content of the story file. (NonNull)
+     * @param story The parsed story. (NonNull)
+     */
+    void put(final URL storyUrl, final byte[] contentHash, final Story story) {
+        final File cacheFile = getCacheFile(storyUrl);
+        File tempFile = null;
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+                throw new IOException("The story cache directory can not be created: " + directory);
+            }
+            tempFile = File.createTempFile(cacheFile.getName(), ".tmp", directory);
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeString(out, storyUrl.toExternalForm());
+                out.writeShort(contentHash.length);
+                out.write(contentHash);
+                writeStory(out, story);
+            } finally {
+                out.close();
+            }
+            Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tempFile = null;
+        } catch (final IOException e) {
+            LOG.log(Level.WARNING, "The story cache file is not writable: " + cacheFile, e);
+        } finally {
+            if (tempFile != null && !tempFile.delete()) {
+                tempFile.deleteOnExit();
+            }
+        }
+    }
+
+    File getCacheFile(final URL storyUrl) {
+        final MessageDigest digest = createDigest();
+        final byte[] urlHash = digest.digest(storyUrl.toExternalForm().getBytes(StoryParser.UTF_8));
+        final StringBuilder fileName = new StringBuilder(urlHash.length * 2 + 10);
+        for (final byte b : urlHash) {
+            fileName.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return new File(directory, fileName.append(".story.bin").toString());
+    }
+
+    private static void writeStory(final DataOutputStream out, final Story story) throws IOException {
+        out.writeInt(story.getScenario().size());
+        for (final Scenario scenario : story.getScenario()) {
+            writeString(out, scenario.getDescription());
+            out.writeInt(scenario.getSteps().size());
+            for (final String step : scenario.getSteps()) {
+                writeString(out, step);
+            }
+            if (!(scenario instanceof ScenarioOutline)) {
+                out.writeByte(SCENARIO);
+                continue;
+            }
+            final Examples examples = ((ScenarioOutline) scenario).getExamples();
+            if (examples.getResource() != null) {
+                /* The external examples are read at the execution. */
+                out.writeByte(EXTERNAL_OUTLINE);
+                writeString(out, examples.getResource().toExternalForm());
+                continue;
+            }
+            out.writeByte(INLINE_OUTLINE);
+            writeStrings(out, examples.getHeader());
+            final List<List<String>> rows = new ArrayList<List<String>>();
+            for (final List<String> row : examples) {
+                rows.add(row);
+            }
+            out.writeInt(rows.size());
+            for (final List<String> row : rows) {
+                writeStrings(out, row);
+            }
+        }
+    }
+
+    private static Story readStory(final String storyName, final DataInputStream in, final StepTable stepTable) throws IOException {
+        final int scenarioCount = readCount(in, in.readInt());
+        final List<Scenario> scenarios = new ArrayList<Scenario>(scenarioCount);
+        for (int i = 0; i < scenarioCount; i++) {
+            final String description = readString(in);
+            final int stepCount = readCount(in, in.readInt());
+            final List<String> steps = new ArrayList<String>(stepCount);
+            for (int j = 0; j < stepCount; j++) {
+                steps.add(readString(in));
+            }
+            final byte kind = in.readByte();
+            if (kind == SCENARIO) {
+                scenarios.add(new Scenario(description, steps, stepTable));
+            } else if (kind == EXTERNAL_OUTLINE) {
+                scenarios.add(new ScenarioOutline(description, steps, stepTable, new Examples(new URL(readString(in)))));
+            } else if (kind == INLINE_OUTLINE) {
+                final List<String> header   = readStrings(in);
+                final int          rowCount = readCount(in, in.readInt());
+                final List<List<String>> rows = new ArrayList<List<String>>(rowCount);
+                for (int j = 0; j < rowCount; j++) {
+                    rows.add(readStrings(in));
+                }
+                scenarios.add(new ScenarioOutline(description, steps, stepTable, new Examples(header, rows)));
+            } else {
+                throw new IOException("Unknown scenario kind: " + kind);
+            }
+        }
+        return new Story(storyName, scenarios);
+    }
+
+    /** Writes a string of any length, {@link DataOutputStream#writeUTF(String)} is limited to 64KB. */
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StoryParser.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[readCount(in, in.readInt())];
+        in.readFully(bytes);
+        return new String(bytes, StoryParser.UTF_8);
+    }
+
+    private static void writeStrings(final DataOutputStream out, final List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (final String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static List<String> readStrings(final DataInputStream in) throws IOException {
+        final int size = readCount(in, in.readInt());
+        final List<String> values = new ArrayList<String>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    /**
+     * Checks a length or a count read from the cache file. Every element takes at least one byte,
+     * so a valid count is never greater than the number of the remaining bytes.
+     *
+     * @param in The cache file. (NonNull)
+     * @param count The length or count read from the cache file.
+     * @return The count.
+     * @throws IOException If the count is negative or greater than the number of the remaining bytes.
+     */
+    private static int readCount(final DataInputStream in, final int count) throws IOException {
+        if (count < 0 || count > in.available()) {
+            throw new IOException("Corrupt story cache file, invalid length: " + count);
+        }
+        return count;
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (final NoSuchAlgorithmException e) {
+            /* Every Java platform supports SHA-1. */
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
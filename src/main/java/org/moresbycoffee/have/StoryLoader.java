@@ -0,0 +1,373 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.List;
+import java.util.Map;
+
+import org.moresbycoffee.have.domain.StepTable;
+import org.moresbycoffee.have.domain.Story;
+import org.moresbycoffee.have.exceptions.MByHaveException;
+
+/**
+ * <p>Finds and loads the story files.</p>
+ * <p>The story files found as plain files on the file system are memory-mapped and decoded
+ * directly into the buffer of the {@link StoryParser}. The other story files (e.g. in jars)
+ * are read as streams. The parsed stories can be cached on the disk by the {@link StoryCache}.</p>
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public final class StoryLoader {
+
+    /**
+     * Finds a story file. The story file can be in the <tt>root</tt> or in the package of the test class.
+     * It is looked up by the test class's ClassLoader, this class's ClassLoader and the system
+     * ClassLoader as well. The found URLs are cached per class loader.
+     *
+     * @param storyFile The name of the story file. (NonNull)
+     * @param testClass The test class. (NonNull)
+     * @return The URL of the story file. (NonNull)
+     * @throws MByHaveException If the file is not found. The message lists the searched places.
+     */
+    public static URL resolve(final String storyFile, final Class<?> testClass) throws MByHaveException {
+        final List<ClassLoader> classLoaders = StoryLocator.getClassLoaders(testClass);
+        return StoryLocator.forClassLoader(classLoaders.get(0)).resolve(storyFile, StoryLocator.getPackagePath(testClass), classLoaders);
+    }
+
+    /**
+     * Finds the story files matching a glob pattern (e.g. <tt>stories/&#42;&#42;/&#42;.story</tt>) in the
+     * <tt>root</tt> or, if there is no match, in the package of the test class. The directories and
+     * jars of the class path are scanned in parallel and the results are cached per class loader.
+     *
+     * @param pattern The glob pattern. (NonNull)
+     * @param testClass The test class. (NonNull)
+     * @return The URLs of the story files by their resource paths in alphabetical order. (NonNull)
+     * @throws MByHaveException If no story file matches. The message lists the searched places.
+     * @see StoryLocator
+     */
+    public static Map<String, URL> discover(final String pattern, final Class<?> testClass) throws MByHaveException {
+        final List<ClassLoader> classLoaders = StoryLocator.getClassLoaders(testClass);
+        return StoryLocator.forClassLoader(classLoaders.get(0)).discover(pattern, StoryLocator.getPackagePath(testClass), classLoaders);
+    }
+
+    /**
+     * @param storyFile The name or the glob pattern of story files. (NonNull)
+     * @return <tt>true</tt> if it is a glob pattern.
+     */
+    public static boolean isPattern(final String storyFile) {
+        return StoryLocator.isPattern(storyFile);
+    }
+
+    /**
+     * Loads and parses a story file. If the {@link StoryCache} is enabled the story is read from
+     * the cache if the story file has not changed since it was cached.
+     *
+     * @param storyName The name of the story. (NonNull)
+     * @param storyUrl The URL of the story file. (NonNull)
+     * @return The parsed story. Its steps are interned into a new step table. (NonNull)
+     * @throws MByHaveException If the story file can not be read or parsed.
+     */
+    public static Story load(final String storyName, final URL storyUrl) throws MByHaveException {
+        return load(storyName, storyUrl, new StepTable());
+    }
+
+    /**
+     * Loads and parses a story file. If the {@link StoryCache} is enabled the story is read from
+     * the cache if the story file has not changed since it was cached.
+     *
+     * @param storyName The name of the story. (NonNull)
+     * @param storyUrl The URL of the story file. (NonNull)
+     * @param stepTable The table the steps of the story are interned into, shared by the stories
+     *        of a runner. (NonNull)
+     * @return The parsed story. (NonNull)
+     * @throws MByHaveException If the story file can not be read or parsed.
+     */
+    public static Story load(final String storyName, final URL storyUrl, final StepTable stepTable) throws MByHaveException {
+        final StoryCache cache = StoryCache.fromSystemProperty();
+        if (cache == null) {
+            return parse(storyName, storyUrl, stepTable);
+        }
+        try {
+            final ByteBuffer content     = readContent(storyUrl);
+            final byte[]     contentHash = StoryCache.hash(content.duplicate());
+
+            final Story cachedStory = cache.get(storyName, storyUrl, contentHash, stepTable);
+            if (cachedStory != null) {
+                return cachedStory;
+            }
+            final Story story = StoryParser.parseStory(storyName, new ByteBufferReader(content, StoryParser.UTF_8), storyUrl, stepTable);
+            cache.put(storyUrl, contentHash, story);
+            return story;
+        } catch (final IOException e) {
+            throw new MByHaveException("The story file is not readable. " + storyName, e);
+        }
+    }
+
+    private static Story parse(final String storyName, final URL storyUrl, final StepTable stepTable) throws MByHaveException {
+        try {
+            final Reader reader = openReader(storyUrl, StoryParser.UTF_8);
+            try {
+                return StoryParser.parseStory(storyName, reader, storyUrl, stepTable);
+            } finally {
+                reader.close();
+            }
+        } catch (final IOException e) {
+            throw new MByHaveException("The story file is not readable. " + storyName, e);
+        }
+    }
+
+    /**
+     * Opens a reader of the story file. The files are memory-mapped, the other resources are streamed.
+     *
+     * @param storyUrl The URL of the story file. (NonNull)
+     * @param charset The charset of the story file. (NonNull)
+     * @return The reader. (NonNull)
+     * @throws IOException If the story file can not be opened.
+     */
+    public static Reader openReader(final URL storyUrl, final Charset charset) throws IOException {
+        final File storyFile = toFile(storyUrl);
+        if (storyFile != null && storyFile.isFile() && storyFile.length() <= Integer.MAX_VALUE) {
+            return openMappedReader(storyFile, charset);
+        }
+        return openStreamReader(storyUrl, charset);
+    }
+
+    /**
+     * Reads the whole content of the story file. The files are memory-mapped.
+     *
+     * @param storyUrl The URL of the story file. (NonNull)
+     * @return The content. (NonNull)
+     * @throws IOException If the story file can not be read.
+     */
+    private static ByteBuffer readContent(final URL storyUrl) throws IOException {
+        final File storyFile = toFile(storyUrl);
+        if (storyFile != null && storyFile.isFile() && storyFile.length() <= Integer.MAX_VALUE) {
+            return map(storyFile);
+        }
+        final InputStream storyIs = storyUrl.openStream();
+        try {
+            final ByteArrayOutputStream content = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = storyIs.read(buffer)) != -1) {
+                content.write(buffer, 0, read);
+            }
+            return ByteBuffer.wrap(content.toByteArray());
+        } finally {
+            storyIs.close();
+        }
+    }
+
+    /**
+     * @param storyFile The story file. (NonNull)
+     * @param charset The charset of the story file. (NonNull)
+     * @return A reader decoding the memory-mapped content of the file. (NonNull)
+     * @throws IOException If the story file can not be mapped.
+     */
+    static Reader openMappedReader(final File storyFile, final Charset charset) throws IOException {
+        return new ByteBufferReader(map(storyFile), charset);
+    }
+
+    private static ByteBuffer map(final File storyFile) throws IOException {
+        final RandomAccessFile file = new RandomAccessFile(storyFile, "r");
+        try {
+            final FileChannel channel = file.getChannel();
+            /* The mapping stays valid after the channel is closed. */
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * @param storyUrl The URL of the story file. (NonNull)
+     * @param charset The charset of the story file. (NonNull)
+     * @return A reader of the resource stream. (NonNull)
+     * @throws IOException If the story file can not be opened.
+     */
+    static Reader openStreamReader(final URL storyUrl, final Charset charset) throws IOException {
+        return new InputStreamReader(storyUrl.openStream(), charset);
+    }
+
+    private static File toFile(final URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return new File(url.toURI());
+        } catch (final URISyntaxException e) {
+            return null;
+        } catch (final IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A reader decoding a byte buffer straight into the buffer of the caller. Malformed and
+     * unmappable input is replaced, as the {@link InputStreamReader} does.
+     */
+    static final class ByteBufferReader extends Reader {
+
+        /**
+         * The size of the heap window the direct (mapped) buffers are copied through. The
+         * decoders are several times faster on heap buffers than on direct buffers.
+         */
+        private static final int WINDOW_SIZE = 64 * 1024;
+
+        private final ByteBuffer     bytes;
+        /** The bytes under decoding. The buffer itself if it is a heap buffer. */
+        private final ByteBuffer     window;
+        private final CharsetDecoder decoder;
+
+        /** The second half of a surrogate pair which did not fit into the caller's buffer. */
+        private char    pendingChar;
+        private boolean hasPendingChar;
+        /** Whether all the bytes have been decoded. */
+        private boolean endOfInput;
+        /** Whether the decoder has been flushed after the end of the input. */
+        private boolean finished;
+
+        /**
+         * @param bytes The bytes to decode. (NonNull)
+         * @param charset The charset of the bytes. (NonNull)
+         */
+        ByteBufferReader(final ByteBuffer bytes, final Charset charset) {
+            this.bytes   = bytes;
+            if (bytes.hasArray()) {
+                this.window = bytes;
+            } else {
+                this.window = ByteBuffer.allocate(WINDOW_SIZE);
+                this.window.flip();
+            }
+            this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int read(final char[] buffer, final int offset, final int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            int read = 0;
+            if (hasPendingChar) {
+                buffer[offset] = pendingChar;
+                hasPendingChar = false;
+                read = 1;
+            }
+            if (read == length || finished) {
+                return read > 0 ? read : -1;
+            }
+
+            final CharBuffer out = CharBuffer.wrap(buffer, offset + read, length - read);
+            decode(out);
+            read += out.position() - (offset + read);
+            if (read == 0 && !finished) {
+                /* A surrogate pair does not fit into a single char buffer. */
+                final CharBuffer pair = CharBuffer.allocate(2);
+                decode(pair);
+                pair.flip();
+                if (!pair.hasRemaining()) {
+                    return -1;
+                }
+                buffer[offset] = pair.get();
+                if (pair.hasRemaining()) {
+                    pendingChar    = pair.get();
+                    hasPendingChar = true;
+                }
+                return 1;
+            }
+            return read > 0 ? read : -1;
+        }
+
+        private void decode(final CharBuffer out) throws IOException {
+            while (!endOfInput) {
+                if (window != bytes) {
+                    refillWindow();
+                }
+                /* A heap buffer is decoded in place, so there are no more bytes to feed. */
+                final boolean     last   = window == bytes || !bytes.hasRemaining();
+                final CoderResult result = decoder.decode(window, out, last);
+                if (result.isError()) {
+                    result.throwException();
+                }
+                if (result.isOverflow()) {
+                    return;
+                }
+                /* Underflow at the end of the input: all the bytes are consumed. */
+                endOfInput = last;
+            }
+            if (decoder.flush(out).isUnderflow()) {
+                finished = true;
+            }
+        }
+
+        /**
+         * Moves the next bytes to the window after the not yet decoded ones (e.g. a partial
+         * multi-byte character).
+         */
+        private void refillWindow() {
+            window.compact();
+            final int length = Math.min(window.remaining(), bytes.remaining());
+            final ByteBuffer chunk = bytes.duplicate();
+            chunk.limit(bytes.position() + length);
+            window.put(chunk);
+            bytes.position(bytes.position() + length);
+            window.flip();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void close() {
+            /* The mapping is released by the garbage collector. */
+        }
+    }
+
+    /** Hidden constructor of utiltity class. */
+    private StoryLoader() {
+        /* NOP */
+    }
+
+}
@@ -0,0 +1,376 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.regex.Pattern;
+
+import org.moresbycoffee.have.exceptions.MByHaveException;
+
+/**
+ * <p>Locates the story files on the classpath, by name or by glob pattern.</p>
+ * <p>The names are looked up by the class loaders one after the other, the first hit wins. The
+ * patterns are matched against the resource paths: <tt>*</tt> matches within a directory,
+ * <tt>**</tt> matches across directories and <tt>?</tt> matches a single character, e.g.
+ * <tt>stories/&#42;&#42;/&#42;.story</tt>. The directory before the first wildcard is looked up
+ * by the class loaders and all of its occurrences, directories and jars, are scanned in parallel.
+ * Jars are found only if they contain the entry of that directory.</p>
+ * <p>The results are cached per class loader, so the test classes sharing the stories do not
+ * repeat the lookups. Only the successful lookups are cached.</p>
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+final class StoryLocator {
+
+    /**
+     * The resolved names and patterns per class loader. The locators do not refer to their
+     * class loaders, so the class loaders can be collected.
+     */
+    private static final Map<ClassLoader, StoryLocator> LOCATORS = new WeakHashMap<ClassLoader, StoryLocator>();
+
+    private final ConcurrentMap<String, URL>              resources = new ConcurrentHashMap<String, URL>();
+    private final ConcurrentMap<String, Map<String, URL>> patterns  = new ConcurrentHashMap<String, Map<String, URL>>();
+
+    /**
+     * @param classLoader The first class loader of the lookups. (NonNull)
+     * @return The locator caching the lookups starting with the class loader. (NonNull)
+     */
+    static StoryLocator forClassLoader(final ClassLoader classLoader) {
+        synchronized (LOCATORS) {
+            StoryLocator locator = LOCATORS.get(classLoader);
+            if (locator == null) {
+                locator = new StoryLocator();
+                LOCATORS.put(classLoader, locator);
+            }
+            return locator;
+        }
+    }
+
+    /**
+     * @param testClass The test class. (NonNull)
+     * @return The class loader of the test class, the class loader of MBy.Have and the system
+     *         class loader in lookup order. (NonNull)
+     */
+    static List<ClassLoader> getClassLoaders(final Class<?> testClass) {
+        final Set<ClassLoader> classLoaders = new LinkedHashSet<ClassLoader>();
+        if (testClass.getClassLoader() != null) {
+            classLoaders.add(testClass.getClassLoader());
+        }
+        if (StoryLocator.class.getClassLoader() != null) {
+            classLoaders.add(StoryLocator.class.getClassLoader());
+        }
+        classLoaders.add(ClassLoader.getSystemClassLoader());
+        return new ArrayList<ClassLoader>(classLoaders);
+    }
+
+    /**
+     * @param testClass The test class. (NonNull)
+     * @return The path of the package of the test class, e.g. <tt>org/example</tt>. (NonNull)
+     */
+    static String getPackagePath(final Class<?> testClass) {
+        return testClass.getPackage() != null ? testClass.getPackage().getName().replace('.', '/') : "";
+    }
+
+    /**
+     * @param storyFile The name or the pattern of the story files. (NonNull)
+     * @return <tt>true</tt> if it is a glob pattern.
+     */
+    static boolean isPattern(final String storyFile) {
+        return storyFile.indexOf('*') >= 0 || storyFile.indexOf('?') >= 0;
+    }
+
+    /**
+     * Finds a story file in the root or in the package.
+     *
+     * @param storyFile The name of the story file. (NonNull)
+     * @param packagePath The path of the package of the test class, e.g. <tt>org/example</tt>. (NonNull)
+     * @param classLoaders The class loaders in lookup order. (NonNull)
+     * @return The URL of the story file. (NonNull)
+     * @throws MByHaveException If the file is not found. The message lists the searched places.
+     */
+    URL resolve(final String storyFile, final String packagePath, final List<ClassLoader> classLoaders) throws MByHaveException {
+        final String[] names = packagePath.isEmpty() ? new String[] { storyFile } : new String[] { storyFile, packagePath + "/" + storyFile };
+        for (final String name : names) {
+            URL storyUrl = resources.get(name);
+            if (storyUrl == null) {
+                storyUrl = getResource(name, classLoaders);
+                if (storyUrl != null) {
+                    resources.putIfAbsent(name, storyUrl);
+                }
+            }
+            if (storyUrl != null) {
+                return storyUrl;
+            }
+        }
+
+        final StringBuilder message = new StringBuilder("The story file is not found. ").append(storyFile).append(" Searched:");
+        for (final String name : names) {
+            for (final ClassLoader classLoader : classLoaders) {
+                message.append("\n  ").append(name).append(" in ").append(classLoader);
+            }
+        }
+        throw new MByHaveException(message.toString());
+    }
+
+    private static URL getResource(final String name, final List<ClassLoader> classLoaders) {
+        for (final ClassLoader classLoader : classLoaders) {
+            final URL storyUrl = classLoader.getResource(name);
+            if (storyUrl != null) {
+                return storyUrl;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the story files matching a glob pattern in the root or, if there is no match in the
+     * root, in the package.
+     *
+     * @param pattern The glob pattern. (NonNull)
+     * @param packagePath The path of the package of the test class, e.g. <tt>org/example</tt>. (NonNull)
+     * @param classLoaders The class loaders in lookup order. (NonNull)
+     * @return The URLs of the matching story files by their resource paths in alphabetical order. (NonNull)
+     * @throws MByHaveException If no story file matches. The message lists the searched places.
+     */
+    Map<String, URL> discover(final String pattern, final String packagePath, final List<ClassLoader> classLoaders) throws MByHaveException {
+        final String[] rootedPatterns = packagePath.isEmpty() ? new String[] { pattern } : new String[] { pattern, packagePath + "/" + pattern };
+        final Set<String> searched = new LinkedHashSet<String>();
+        for (final String rootedPattern : rootedPatterns) {
+            Map<String, URL> storyUrls = patterns.get(rootedPattern);
+            if (storyUrls == null) {
+                storyUrls = scan(rootedPattern, classLoaders, searched);
+                if (!storyUrls.isEmpty()) {
+                    patterns.putIfAbsent(rootedPattern, storyUrls);
+                }
+            }
+            if (!storyUrls.isEmpty()) {
+                return storyUrls;
+            }
+        }
+
+        final StringBuilder message = new StringBuilder("No story file matches the pattern. ").append(pattern).append(" Searched:");
+        for (final String place : searched) {
+            message.append("\n  ").append(place);
+        }
+        throw new MByHaveException(message.toString());
+    }
+
+    /**
+     * Scans the occurrences of the base directory of the pattern in parallel.
+     *
+     * @param pattern The glob pattern from the root. (NonNull)
+     * @param classLoaders The class loaders in lookup order. (NonNull)
+     * @param searched The searched places are added to it. (NonNull)
+     * @return The matching resources. (NonNull)
+     */
+    private static Map<String, URL> scan(final String pattern, final List<ClassLoader> classLoaders, final Set<String> searched) throws MByHaveException {
+        final int     wildcard  = Math.min(indexOf(pattern, '*'), indexOf(pattern, '?'));
+        final String  baseDir   = pattern.substring(0, pattern.lastIndexOf('/', wildcard) + 1);
+        final Pattern regex     = compileGlob(pattern);
+
+        final Set<String> roots = new LinkedHashSet<String>();
+        for (final ClassLoader classLoader : classLoaders) {
+            try {
+                final Enumeration<URL> baseUrls = classLoader.getResources(baseDir);
+                while (baseUrls.hasMoreElements()) {
+                    roots.add(baseUrls.nextElement().toExternalForm());
+                }
+            } catch (final IOException e) {
+                throw new MByHaveException("The class path can not be scanned: " + baseDir, e);
+            }
+            searched.add((baseDir.isEmpty() ? "the class path root" : baseDir) + " in " + classLoader);
+        }
+        searched.addAll(roots);
+
+        final List<Map<String, URL>> rootResults = new ArrayList<Map<String, URL>>(roots.size());
+        final int threads = Math.min(Runtime.getRuntime().availableProcessors(), roots.size());
+        if (threads <= 1) {
+            for (final String root : roots) {
+                rootResults.add(scanRoot(root, baseDir, regex));
+            }
+        } else {
+            final ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                final List<Future<Map<String, URL>>> futures = new ArrayList<Future<Map<String, URL>>>(roots.size());
+                for (final String root : roots) {
+                    futures.add(executor.submit(new Callable<Map<String, URL>>() {
+                        public Map<String, URL> call() {
+                            return scanRoot(root, baseDir, regex);
+                        }
+                    }));
+                }
+                for (final Future<Map<String, URL>> future : futures) {
+                    rootResults.add(future.get());
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MByHaveException("The story discovery has been interrupted.", e);
+            } catch (final ExecutionException e) {
+                if (e.getCause() instanceof MByHaveException) {
+                    throw (MByHaveException) e.getCause();
+                }
+                throw new MByHaveException("The story discovery did not succeed.", e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        /* The first occurrence of a resource wins, as in the class loaders. */
+        final Map<String, URL> storyUrls = new TreeMap<String, URL>();
+        for (final Map<String, URL> rootResult : rootResults) {
+            for (final Map.Entry<String, URL> entry : rootResult.entrySet()) {
+                if (!storyUrls.containsKey(entry.getKey())) {
+                    storyUrls.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return Collections.unmodifiableMap(new LinkedHashMap<String, URL>(storyUrls));
+    }
+
+    /**
+     * @param root The URL of an occurrence of the base directory. (NonNull)
+     * @param baseDir The base directory, empty or ending with <tt>/</tt>. (NonNull)
+     * @param regex The compiled pattern. (NonNull)
+     * @return The matching resources under the root. (NonNull)
+     */
+    private static Map<String, URL> scanRoot(final String root, final String baseDir, final Pattern regex) throws MByHaveException {
+        final Map<String, URL> storyUrls = new LinkedHashMap<String, URL>();
+        try {
+            final URL rootUrl = new URL(root);
+            if ("file".equals(rootUrl.getProtocol())) {
+                final Path rootPath = new File(rootUrl.toURI()).toPath();
+                Files.walkFileTree(rootPath, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) throws IOException {
+                        final String name = baseDir + rootPath.relativize(file).toString().replace(File.separatorChar, '/');
+                        if (attributes.isRegularFile() && regex.matcher(name).matches()) {
+                            storyUrls.put(name, file.toUri().toURL());
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } else if ("jar".equals(rootUrl.getProtocol())) {
+                final URLConnection connection = rootUrl.openConnection();
+                connection.setUseCaches(false);
+                final JarURLConnection jarConnection = (JarURLConnection) connection;
+                final JarFile jarFile = jarConnection.getJarFile();
+                try {
+                    final String jarUrl = jarConnection.getJarFileURL().toExternalForm();
+                    final Enumeration<JarEntry> entries = jarFile.entries();
+                    while (entries.hasMoreElements()) {
+                        final JarEntry entry = entries.nextElement();
+                        if (!entry.isDirectory() && entry.getName().startsWith(baseDir) && regex.matcher(entry.getName()).matches()) {
+                            storyUrls.put(entry.getName(), new URL("jar:" + jarUrl + "!/" + entry.getName()));
+                        }
+                    }
+                } finally {
+                    jarFile.close();
+                }
+            }
+        } catch (final IOException e) {
+            throw new MByHaveException("The story files can not be listed: " + root, e);
+        } catch (final URISyntaxException e) {
+            throw new MByHaveException("The story files can not be listed: " + root, e);
+        }
+        return storyUrls;
+    }
+
+    /**
+     * @param glob The glob pattern. (NonNull)
+     * @return The regular expression of the glob pattern. (NonNull)
+     */
+    static Pattern compileGlob(final String glob) {
+        final StringBuilder regex = new StringBuilder();
+        int literalStart = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            final char c = glob.charAt(i);
+            if (c != '*' && c != '?') {
+                continue;
+            }
+            if (literalStart < i) {
+                regex.append(Pattern.quote(glob.substring(literalStart, i)));
+            }
+            if (c == '?') {
+                regex.append("[^/]");
+            } else if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                if (i + 2 < glob.length() && glob.charAt(i + 2) == '/') {
+                    /* Any number of directories, even none. */
+                    regex.append("(?:.*/)?");
+                    i++;
+                } else {
+                    regex.append(".*");
+                }
+                i++;
+            } else {
+                regex.append("[^/]*");
+            }
+            literalStart = i + 1;
+        }
+        if (literalStart < glob.length()) {
+            regex.append(Pattern.quote(glob.substring(literalStart)));
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    private static int indexOf(final String text, final char c) {
+        final int index = text.indexOf(c);
+        return index < 0 ? text.length() : index;
+    }
+
+}
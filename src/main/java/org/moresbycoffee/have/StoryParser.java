@@ -0,0 +1,347 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.moresbycoffee.have.domain.Examples;
+import org.moresbycoffee.have.domain.Scenario;
+import org.moresbycoffee.have.domain.ScenarioOutline;
+import org.moresbycoffee.have.domain.StepTable;
+import org.moresbycoffee.have.domain.Story;
+import org.moresbycoffee.have.exceptions.MByHaveException;
+
+/**
+ * <p>Single pass streaming parser of the story files and scenarios. The input is read line by
+ * line and every scenario is passed to a {@link ScenarioHandler} as soon as its last step has
+ * been read, so the parser itself keeps only the current scenario in memory.</p>
+ * <p>The rules:</p>
+ * <ul>
+ * <li>The lines starting with <tt>#</tt> are comments.</li>
+ * <li>A line starting with <tt>Scenario</tt> starts a new scenario. The scenario description lasts
+ * until the first step.</li>
+ * <li>A line starting with <tt>Given</tt>, <tt>When</tt> or <tt>Then</tt> starts a new step. A step
+ * before any <tt>Scenario</tt> line starts a scenario with the default <tt>Scenario</tt> description.</li>
+ * <li>A line starting with <tt>Examples</tt> after the steps turns the scenario into a
+ * {@link ScenarioOutline}. The examples are either the table in the following lines starting with
+ * <tt>|</tt>, the first of them being the header, or the CSV resource named in the <tt>Examples</tt>
+ * line (e.g. <tt>Examples: cucumbers.csv</tt>) relative to the story file.</li>
+ * <li>The other lines continue the current description or step. The lines before the first
+ * scenario are ignored.</li>
+ * </ul>
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public final class StoryParser {
+
+    /** The charset of the story files. */
+    public static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /** The description of the scenarios without <tt>Scenario</tt> line. */
+    private static final String DEFAULT_DESCRIPTION = "Scenario";
+
+    /** Receives the parsed scenarios. */
+    public interface ScenarioHandler {
+
+        /**
+         * @param scenario The parsed scenario. (NonNull)
+         * @throws MByHaveException If the scenario can not be processed.
+         */
+        void scenario(Scenario scenario) throws MByHaveException;
+    }
+
+    /**
+     * Parses a story file.
+     *
+     * @param storyName The name of the story. (NonNull)
+     * @param storyIs The content of the story file. It will not be closed. (NonNull)
+     * @param charset The charset of the story file. (NonNull)
+     * @return The parsed story. (NonNull)
+     * @throws MByHaveException If a scenario does not contain any step.
+     * @throws IOException If the story file can not be read.
+     */
+    public static Story parseStory(final String storyName, final InputStream storyIs, final Charset charset) throws MByHaveException, IOException {
+        return parseStory(storyName, new InputStreamReader(storyIs, charset));
+    }
+
+    /**
+     * Parses a story file.
+     *
+     * @param storyName The name of the story. (NonNull)
+     * @param storyReader The content of the story file. It will not be closed. (NonNull)
+     * @return The parsed story. (NonNull)
+     * @throws MByHaveException If a scenario does not contain any step.
+     * @throws IOException If the story file can not be read.
+     */
+    public static Story parseStory(final String storyName, final Reader storyReader) throws MByHaveException, IOException {
+        return parseStory(storyName, storyReader, null);
+    }
+
+    /**
+     * Parses a story file.
+     *
+     * @param storyName The name of the story. (NonNull)
+     * @param storyReader The content of the story file. It will not be closed. (NonNull)
+     * @param storyUrl The URL of the story file the external examples are relative to. (Nullable)
+     * @return The parsed story. (NonNull)
+     * @throws MByHaveException If a scenario does not contain any step or its examples are invalid.
+     * @throws IOException If the story file can not be read.
+     */
+    public static Story parseStory(final String storyName, final Reader storyReader, final URL storyUrl) throws MByHaveException, IOException {
+        return parseStory(storyName, storyReader, storyUrl, new StepTable());
+    }
+
+    /**
+     * Parses a story file.
+     *
+     * @param storyName The name of the story. (NonNull)
+     * @param storyReader The content of the story file. It will not be closed. (NonNull)
+     * @param storyUrl The URL of the story file the external examples are relative to. (Nullable)
+     * @param stepTable The table the steps are interned into. (NonNull)
+     * @return The parsed story. (NonNull)
+     * @throws MByHaveException If a scenario does not contain any step or its examples are invalid.
+     * @throws IOException If the story file can not be read.
+     */
+    public static Story parseStory(final String storyName, final Reader storyReader, final URL storyUrl, final StepTable stepTable)
+            throws MByHaveException, IOException {
+        final List<Scenario> scenarios = new ArrayList<Scenario>();
+        parse(storyReader, storyUrl, stepTable, false, new ScenarioHandler() {
+            public void scenario(final Scenario scenario) {
+                scenarios.add(scenario);
+            }
+        });
+        return new Story(storyName, scenarios);
+    }
+
+    /**
+     * Parses a single scenario.
+     *
+     * @param scenarioReader The scenario. It will not be closed. (NonNull)
+     * @return The parsed scenario. (NonNull)
+     * @throws MByHaveException If there are two scenario descriptions or there is no step.
+     * @throws IOException If the scenario can not be read.
+     */
+    public static Scenario parseScenario(final Reader scenarioReader) throws MByHaveException, IOException {
+        final List<Scenario> scenarios = new ArrayList<Scenario>(1);
+        final StepTable stepTable = new StepTable();
+        parse(scenarioReader, null, stepTable, true, new ScenarioHandler() {
+            public void scenario(final Scenario scenario) {
+                scenarios.add(scenario);
+            }
+        });
+        return scenarios.isEmpty() ? new Scenario(null, new ArrayList<String>(), stepTable) : scenarios.get(0);
+    }
+
+    /**
+     * Parses the scenarios and passes them to the handler one by one.
+     *
+     * @param reader The story or the scenario. It will not be closed. (NonNull)
+     * @param singleScenario If it is <tt>true</tt> a second <tt>Scenario</tt> line is an error,
+     *        otherwise it starts a new scenario.
+     * @param handler The receiver of the scenarios. (NonNull)
+     * @throws MByHaveException If a scenario does not contain any step or there are two scenario
+     *         descriptions in single scenario mode.
+     * @throws IOException If the input can not be read.
+     */
+    public static void parse(final Reader reader, final boolean singleScenario, final ScenarioHandler handler) throws MByHaveException, IOException {
+        parse(reader, null, singleScenario, handler);
+    }
+
+    /**
+     * Parses the scenarios and passes them to the handler one by one.
+     *
+     * @param reader The story or the scenario. It will not be closed. (NonNull)
+     * @param storyUrl The URL of the story file the external examples are relative to. (Nullable)
+     * @param singleScenario If it is <tt>true</tt> a second <tt>Scenario</tt> line is an error,
+     *        otherwise it starts a new scenario.
+     * @param handler The receiver of the scenarios. (NonNull)
+     * @throws MByHaveException If a scenario does not contain any step, its examples are invalid or
+     *         there are two scenario descriptions in single scenario mode.
+     * @throws IOException If the input can not be read.
+     */
+    public static void parse(final Reader reader, final URL storyUrl, final boolean singleScenario, final ScenarioHandler handler) throws MByHaveException, IOException {
+        parse(reader, storyUrl, new StepTable(), singleScenario, handler);
+    }
+
+    /**
+     * Parses the scenarios and passes them to the handler one by one.
+     *
+     * @param reader The story or the scenario. It will not be closed. (NonNull)
+     * @param storyUrl The URL of the story file the external examples are relative to. (Nullable)
+     * @param stepTable The table the steps are interned into. (NonNull)
+     * @param singleScenario If it is <tt>true</tt> a second <tt>Scenario</tt> line is an error,
+     *        otherwise it starts a new scenario.
+     * @param handler The receiver of the scenarios. (NonNull)
+     * @throws MByHaveException If a scenario does not contain any step, its examples are invalid or
+     *         there are two scenario descriptions in single scenario mode.
+     * @throws IOException If the input can not be read.
+     */
+    public static void parse(final Reader reader, final URL storyUrl, final StepTable stepTable, final boolean singleScenario,
+                             final ScenarioHandler handler) throws MByHaveException, IOException {
+        final BufferedReader lineReader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+
+        /* The description of the current scenario, null until the first step. */
+        String        description  = null;
+        List<String>  steps        = null;
+        /* The current description (before the first step) or step. Null outside of the scenarios. */
+        StringBuilder current      = null;
+        /* The examples of the current scenario, null until the Examples line. */
+        ExamplesBuilder examples   = null;
+
+        String line;
+        while ((line = lineReader.readLine()) != null) {
+            if (line.startsWith("#")) {
+                continue;
+            }
+            if (line.startsWith("Scenario")) {
+                if (current != null || examples != null) {
+                    if (singleScenario) {
+                        throw new MByHaveException("This scenario contains two scenario descriptions.");
+                    }
+                    handler.scenario(createScenario(description, steps, current, examples, stepTable));
+                }
+                description = null;
+                steps       = new ArrayList<String>();
+                current     = new StringBuilder(line);
+                examples    = null;
+            } else if (line.startsWith("Examples")) {
+                if (current == null || description == null) {
+                    throw new MByHaveException("The examples do not follow the steps of a scenario: " + line);
+                }
+                steps.add(current.toString());
+                current  = null;
+                examples = new ExamplesBuilder(line.substring("Examples".length()), storyUrl);
+            } else if (examples != null) {
+                if (line.startsWith("Given") || line.startsWith("When") || line.startsWith("Then")) {
+                    throw new MByHaveException("The steps of the scenario have to precede its examples: " + line);
+                }
+                examples.addLine(line);
+            } else if (line.startsWith("Given") || line.startsWith("When") || line.startsWith("Then")) {
+                if (current == null) {
+                    description = DEFAULT_DESCRIPTION;
+                    steps       = new ArrayList<String>();
+                } else if (description == null) {
+                    description = current.toString();
+                } else {
+                    steps.add(current.toString());
+                }
+                current = new StringBuilder(line);
+            } else if (current != null) {
+                current.append(line).append('\n');
+            }
+        }
+        if (current != null || examples != null) {
+            handler.scenario(createScenario(description, steps, current, examples, stepTable));
+        }
+    }
+
+    private static Scenario createScenario(final String description, final List<String> steps, final StringBuilder lastStep,
+                                           final ExamplesBuilder examples, final StepTable stepTable) throws MByHaveException {
+        if (examples != null) {
+            return new ScenarioOutline(description, steps, stepTable, examples.build());
+        }
+        if (description == null) {
+            throw new MByHaveException("The scenario description does not contain any step description"); //TODO get the scenario description from somewhere.
+        }
+        steps.add(lastStep.toString());
+        return new Scenario(description, steps, stepTable);
+    }
+
+    /** Collects the examples of a scenario outline. */
+    private static final class ExamplesBuilder {
+
+        /** The external examples. <tt>null</tt> for the inline tables. */
+        private final URL                resource;
+        private final List<List<String>> table = new ArrayList<List<String>>();
+
+        /**
+         * @param examplesLine The rest of the <tt>Examples</tt> line. (NonNull)
+         * @param storyUrl The URL of the story file. (Nullable)
+         * @throws MByHaveException If there is an external resource which can not be resolved.
+         */
+        private ExamplesBuilder(final String examplesLine, final URL storyUrl) throws MByHaveException {
+            String resourceName = examplesLine.trim();
+            if (resourceName.startsWith(":")) {
+                resourceName = resourceName.substring(1).trim();
+            }
+            if (resourceName.isEmpty()) {
+                resource = null;
+            } else if (storyUrl == null) {
+                throw new MByHaveException("The external examples can be used only in story files: " + resourceName);
+            } else {
+                try {
+                    resource = new URL(storyUrl, resourceName);
+                } catch (final MalformedURLException e) {
+                    throw new MByHaveException("Invalid examples resource: " + resourceName, e);
+                }
+            }
+        }
+
+        private void addLine(final String line) throws MByHaveException {
+            final String trimmed = line.trim();
+            if (trimmed.isEmpty()) {
+                return;
+            }
+            if (!trimmed.startsWith("|") || resource != null) {
+                throw new MByHaveException("Invalid line in the examples: " + line);
+            }
+            final List<String> row = Examples.parseTableRow(trimmed);
+            if (!table.isEmpty() && row.size() != table.get(0).size()) {
+                throw new MByHaveException("The example row has " + row.size() + " values instead of " + table.get(0).size() + ": " + line);
+            }
+            table.add(row);
+        }
+
+        private Examples build() throws MByHaveException {
+            if (resource != null) {
+                return new Examples(resource);
+            }
+            if (table.isEmpty()) {
+                throw new MByHaveException("The examples table does not have header.");
+            }
+            return new Examples(table.get(0), table.subList(1, table.size()));
+        }
+    }
+
+    /** Hidden constructor of utiltity class. */
+    private StoryParser() {
+        /* NOP */
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Runs the scenarios of the annotated test class concurrently. Every scenario gets its own
+ * test object, so the step methods must not share mutable state through static fields.</p>
+ * <p>The <tt>mbyhave.parallel</tt> system property overrides the annotation: <tt>false</tt>
+ * runs the scenarios serially, <tt>true</tt> runs them on as many threads as processors and
+ * a number runs them on that many threads. The <tt>mbyhave.parallel.executor</tt> system property
+ * overrides the {@link #executor()}: <tt>fork_join</tt> or <tt>virtual</tt>. The
+ * <tt>mbyhave.parallel.stories</tt> system property overrides the {@link #stories()}.</p>
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Inherited
+public @interface Parallel {
+
+    /** The executors of the scenarios. */
+    enum Executor {
+        /** A fork-join pool of {@link Parallel#threads()} platform threads. */
+        FORK_JOIN,
+        /**
+         * A new virtual thread for each scenario, for scenarios mostly waiting on I/O.
+         * Falls back to platform threads if the JVM does not support virtual threads.
+         */
+        VIRTUAL
+    }
+
+    /**
+     * The maximum number of the scenarios running at the same time. <tt>0</tt> means the number of
+     * the available processors for {@link Executor#FORK_JOIN} and no limit for {@link Executor#VIRTUAL}.
+     * The platform threads replacing the virtual threads are limited by the number of the available
+     * processors as well.
+     */
+    int threads() default 0;
+
+    /** The executor of the scenarios. */
+    Executor executor() default Executor.FORK_JOIN;
+
+    /**
+     * If <tt>true</tt> the story files run concurrently instead of the scenarios, and the
+     * scenarios of a story run one after the other.
+     */
+    boolean stories() default false;
+
+}
@@ -34,7 +34,7 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 /**
- * TODO javadoc.
+ * Defines the story files of a test class run by the {@link org.moresbycoffee.have.MByHaveRunner}.
  *
  * @author Barnabas Sudy (barnabas.sudy@gmail.com)
  * @since 2012
@@ -43,5 +43,10 @@ import java.lang.annotation.Target;
 @Target(ElementType.TYPE)
 public @interface Story {
 
+    /**
+     * The story files, in the <tt>root</tt> of the class path or in the package of the test class.
+     * An entry can be a glob pattern as well, e.g. <tt>stories/&#42;&#42;/&#42;.story</tt>, which is
+     * replaced by the matching story files in alphabetical order.
+     */
     String[] files();
 }
@@ -0,0 +1,62 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have.converters;
+
+/**
+ * <p>Converts the parameter values picked up from the step descriptions to the type of
+ * the step method parameter.</p>
+ * <p>The converters are resolved once for each step method parameter when the test class
+ * is configured. Custom converters can be registered on the test class by the
+ * {@link org.moresbycoffee.have.annotations.Converters} annotation. They have to have a public
+ * no-arg constructor and they take precedence over the {@link ParameterConverters built-in ones}.</p>
+ * <p>A step is converted once however many times it occurs in the stories, so the converted
+ * values are shared by the occurrences and they should be immutable.</p>
+ *
+ * @param <T> The type of the converted values.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public interface ParameterConverter<T> {
+
+    /**
+     * @return The type of the converted values. (NonNull)
+     */
+    Class<T> getType();
+
+    /**
+     * Converts the parameter value.
+     *
+     * @param value The parameter value picked up from the step description. (NonNull)
+     * @return The converted value. (Nullable)
+     * @throws RuntimeException If the value can not be converted.
+     */
+    T convert(String value);
+
+}
@@ -0,0 +1,266 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have.converters;
+
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.Period;
+import java.time.Year;
+import java.time.YearMonth;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.moresbycoffee.have.exceptions.MByHaveException;
+
+import com.google.common.reflect.TypeToken;
+
+/**
+ * <p>The built-in {@link ParameterConverter}s and the converter resolution.</p>
+ * <p>The built-in converters support the primitive types and their wrappers, the enums,
+ * {@link BigDecimal}, {@link BigInteger} and the <tt>java.time</tt> value types
+ * ({@link LocalDate}, {@link LocalTime}, {@link LocalDateTime}, {@link Instant},
+ * {@link Duration}, {@link Period}, {@link OffsetDateTime}, {@link ZonedDateTime},
+ * {@link Year} and {@link YearMonth}). The leading and trailing whitespace of the
+ * values is ignored by the built-in converters, except the <tt>char</tt> converter, which
+ * accepts a single whitespace character as a value as well.</p>
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public final class ParameterConverters {
+
+    private static final Map<Class<?>, ParameterConverter<?>> DEFAULTS;
+
+    static {
+        final Map<Class<?>, ParameterConverter<?>> mutableDefaults = new HashMap<Class<?>, ParameterConverter<?>>();
+        put(mutableDefaults, int.class, new TypedConverter<Integer>(Integer.class) {
+            public Integer convert(final String value) {
+                return Integer.valueOf(value.trim());
+            }
+        });
+        put(mutableDefaults, long.class, new TypedConverter<Long>(Long.class) {
+            public Long convert(final String value) {
+                return Long.valueOf(value.trim());
+            }
+        });
+        put(mutableDefaults, short.class, new TypedConverter<Short>(Short.class) {
+            public Short convert(final String value) {
+                return Short.valueOf(value.trim());
+            }
+        });
+        put(mutableDefaults, byte.class, new TypedConverter<Byte>(Byte.class) {
+            public Byte convert(final String value) {
+                return Byte.valueOf(value.trim());
+            }
+        });
+        put(mutableDefaults, double.class, new TypedConverter<Double>(Double.class) {
+            public Double convert(final String value) {
+                return Double.valueOf(value.trim());
+            }
+        });
+        put(mutableDefaults, float.class, new TypedConverter<Float>(Float.class) {
+            public Float convert(final String value) {
+                return Float.valueOf(value.trim());
+            }
+        });
+        put(mutableDefaults, boolean.class, new TypedConverter<Boolean>(Boolean.class) {
+            public Boolean convert(final String value) {
+                final String trimmed = value.trim();
+                if ("true".equalsIgnoreCase(trimmed)) {
+                    return Boolean.TRUE;
+                }
+                if ("false".equalsIgnoreCase(trimmed)) {
+                    return Boolean.FALSE;
+                }
+                throw new IllegalArgumentException("Not a boolean value: " + value);
+            }
+        });
+        put(mutableDefaults, char.class, new TypedConverter<Character>(Character.class) {
+            public Character convert(final String value) {
+                if (value.length() != 1) {
+                    throw new IllegalArgumentException("Not a single character: " + value);
+                }
+                return Character.valueOf(value.charAt(0));
+            }
+        });
+        put(mutableDefaults, BigDecimal.class, new TypedConverter<BigDecimal>(BigDecimal.class) {
+            public BigDecimal convert(final String value) {
+                return new BigDecimal(value.trim());
+            }
+        });
+        put(mutableDefaults, BigInteger.class, new TypedConverter<BigInteger>(BigInteger.class) {
+            public BigInteger convert(final String value) {
+                return new BigInteger(value.trim());
+            }
+        });
+        put(mutableDefaults, LocalDate.class, new TypedConverter<LocalDate>(LocalDate.class) {
+            public LocalDate convert(final String value) {
+                return LocalDate.parse(value.trim());
+            }
+        });
+        put(mutableDefaults, LocalTime.class, new TypedConverter<LocalTime>(LocalTime.class) {
+            public LocalTime convert(final String value) {
+                return LocalTime.parse(value.trim());
+            }
+        });
+        put(mutableDefaults, LocalDateTime.class, new TypedConverter<LocalDateTime>(LocalDateTime.class) {
+            public LocalDateTime convert(final String value) {
+                return LocalDateTime.parse(value.trim());
+            }
+        });
+        put(mutableDefaults, Instant.class, new TypedConverter<Instant>(Instant.class) {
+            public Instant convert(final String value) {
+                return Instant.parse(value.trim());
+            }
+        });
+        put(mutableDefaults, Duration.class, new TypedConverter<Duration>(Duration.class) {
+            public Duration convert(final String value) {
+                return Duration.parse(value.trim());
+            }
+        });
+        put(mutableDefaults, Period.class, new TypedConverter<Period>(Period.class) {
+            public Period convert(final String value) {
+                return Period.parse(value.trim());
+            }
+        });
+        put(mutableDefaults, OffsetDateTime.class, new TypedConverter<OffsetDateTime>(OffsetDateTime.class) {
+            public OffsetDateTime convert(final String value) {
+                return OffsetDateTime.parse(value.trim());
+            }
+        });
+        put(mutableDefaults, ZonedDateTime.class, new TypedConverter<ZonedDateTime>(ZonedDateTime.class) {
+            public ZonedDateTime convert(final String value) {
+                return ZonedDateTime.parse(value.trim());
+            }
+        });
+        put(mutableDefaults, Year.class, new TypedConverter<Year>(Year.class) {
+            public Year convert(final String value) {
+                return Year.parse(value.trim());
+            }
+        });
+        put(mutableDefaults, YearMonth.class, new TypedConverter<YearMonth>(YearMonth.class) {
+            public YearMonth convert(final String value) {
+                return YearMonth.parse(value.trim());
+            }
+        });
+        DEFAULTS = Collections.unmodifiableMap(mutableDefaults);
+    }
+
+    /**
+     * Resolves the converter of a parameter type. The custom converters are checked first,
+     * then the built-in ones.
+     *
+     * @param type The type of the method parameter. (NonNull)
+     * @param customConverters The converters registered on the test class. (NonNull)
+     * @return The converter or <tt>null</tt> if the parameter value can be passed as a
+     *         {@link String} without conversion. (Nullable)
+     * @throws MByHaveException If there is no converter for the type.
+     */
+    public static ParameterConverter<?> resolve(final Type type, final Collection<ParameterConverter<?>> customConverters) throws MByHaveException {
+        final Class<?> rawType = TypeToken.of(type).getRawType();
+        if (rawType.isAssignableFrom(String.class)) {
+            return null;
+        }
+        for (final ParameterConverter<?> converter : customConverters) {
+            if (rawType.isAssignableFrom(converter.getType())) {
+                return converter;
+            }
+        }
+        final ParameterConverter<?> converter = DEFAULTS.get(rawType);
+        if (converter != null) {
+            return converter;
+        }
+        if (rawType.isEnum()) {
+            return createEnumConverter(rawType);
+        }
+        throw new MByHaveException("There is no converter for the " + type + " type.");
+    }
+
+    /**
+     * Creates the converter of an enum type. The type is not bound to {@link Enum}, so the raw
+     * type of a parameter can be passed without an unchecked cast.
+     *
+     * @param enumType The enum type. (NonNull)
+     * @return The converter matching the constant names, case insensitively as a fallback. (NonNull)
+     */
+    private static <E> ParameterConverter<E> createEnumConverter(final Class<E> enumType) {
+        final E[] constants = enumType.getEnumConstants();
+        return new TypedConverter<E>(enumType) {
+            public E convert(final String value) {
+                final String trimmed = value.trim();
+                for (final E constant : constants) {
+                    if (((Enum<?>) constant).name().equals(trimmed)) {
+                        return constant;
+                    }
+                }
+                for (final E constant : constants) {
+                    if (((Enum<?>) constant).name().equalsIgnoreCase(trimmed)) {
+                        return constant;
+                    }
+                }
+                throw new IllegalArgumentException("Not a constant of " + enumType.getName() + ": " + value);
+            }
+        };
+    }
+
+    private static <T> void put(final Map<Class<?>, ParameterConverter<?>> converters, final Class<?> primitiveOrType, final TypedConverter<T> converter) {
+        converters.put(primitiveOrType, converter);
+        converters.put(converter.getType(), converter);
+    }
+
+    /** Base class of the built-in converters. */
+    private abstract static class TypedConverter<T> implements ParameterConverter<T> {
+
+        private final Class<T> type;
+
+        private TypedConverter(final Class<T> type) {
+            this.type = type;
+        }
+
+        public Class<T> getType() {
+            return type;
+        }
+    }
+
+    /** Hidden constructor of utiltity class. */
+    private ParameterConverters() {
+        /* NOP */
+    }
+
+}
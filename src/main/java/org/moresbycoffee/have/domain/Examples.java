@@ -0,0 +1,254 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have.domain;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.moresbycoffee.have.exceptions.MByHaveException;
+
+/**
+ * <p>The examples of a {@link ScenarioOutline}: a header naming the placeholders and the rows
+ * of their values.</p>
+ * <p>The examples are either an inline table of the story file or an external CSV resource. The
+ * CSV resource is not loaded into the memory: each iteration streams its rows again. The first
+ * line of the CSV resource is the header. The values are separated by commas and can be quoted
+ * by <tt>"</tt>. The empty lines and the lines starting with <tt>#</tt> are skipped.</p>
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class Examples implements Iterable<List<String>> {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /** The CSV resource. <tt>null</tt> for the inline tables. */
+    private final URL                resource;
+    /** The inline rows. <tt>null</tt> for the CSV resources. */
+    private final List<List<String>> rows;
+    /** The header. It is read lazily from the CSV resources. */
+    private volatile List<String>    header;
+
+    /**
+     * @param header The names of the placeholders. (NonNull)
+     * @param rows The rows of the values in the order of the header. (NonNull)
+     */
+    public Examples(final List<String> header, final List<List<String>> rows) {
+        super();
+        this.resource = null;
+        this.header   = header;
+        this.rows     = rows;
+    }
+
+    /**
+     * @param resource The CSV resource. (NonNull)
+     */
+    public Examples(final URL resource) {
+        super();
+        this.resource = resource;
+        this.header   = null;
+        this.rows     = null;
+    }
+
+    /**
+     * @return The CSV resource or <tt>null</tt> if the examples are an inline table. (Nullable)
+     */
+    public URL getResource() {
+        return resource;
+    }
+
+    /**
+     * @return The names of the placeholders. (NonNull)
+     * @throws MByHaveException If the CSV resource can not be read or it is empty.
+     */
+    public List<String> getHeader() throws MByHaveException {
+        if (header == null) {
+            final CsvIterator iterator = new CsvIterator();
+            iterator.close();
+            header = iterator.header;
+        }
+        return header;
+    }
+
+    /**
+     * @return The rows of the values. The rows of the CSV resources are read one by one
+     *         as the iteration goes. (NonNull)
+     * @throws MByHaveException If the CSV resource can not be read or a row does not fit to the header.
+     */
+    public Iterator<List<String>> iterator() throws MByHaveException {
+        return rows != null ? rows.iterator() : new CsvIterator();
+    }
+
+    /**
+     * Splits a row of an inline table, e.g. <tt>| 12 | 5 | 7 |</tt>.
+     *
+     * @param line The row. It starts with <tt>|</tt>. (NonNull)
+     * @return The trimmed values. (NonNull)
+     */
+    public static List<String> parseTableRow(final String line) {
+        final String trimmed = line.trim();
+        final int    end     = trimmed.length() > 1 && trimmed.endsWith("|") ? trimmed.length() - 1 : trimmed.length();
+        final List<String> values = new ArrayList<String>();
+        int start = 1;
+        for (int i = 1; i <= end; i++) {
+            if (i == end || trimmed.charAt(i) == '|') {
+                values.add(trimmed.substring(start, i).trim());
+                start = i + 1;
+            }
+        }
+        return Collections.unmodifiableList(values);
+    }
+
+    /**
+     * Splits a line of a CSV resource. The values can be quoted by <tt>"</tt> and a quote in
+     * a quoted value is written as <tt>""</tt>.
+     *
+     * @param line The line. (NonNull)
+     * @return The values. The unquoted values are trimmed. (NonNull)
+     */
+    public static List<String> parseCsvRow(final String line) {
+        final List<String>  values = new ArrayList<String>();
+        final StringBuilder value  = new StringBuilder();
+        boolean quoted   = false;
+        boolean wasQuote = false;
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"' && value.toString().trim().isEmpty()) {
+                value.setLength(0);
+                quoted   = true;
+                wasQuote = true;
+            } else if (c == ',') {
+                values.add(wasQuote ? value.toString() : value.toString().trim());
+                value.setLength(0);
+                wasQuote = false;
+            } else if (!wasQuote || !Character.isWhitespace(c)) {
+                value.append(c);
+            }
+        }
+        values.add(wasQuote ? value.toString() : value.toString().trim());
+        return Collections.unmodifiableList(values);
+    }
+
+    /** Streams the rows of the CSV resource. The resource is closed at the end of the rows. */
+    private final class CsvIterator implements Iterator<List<String>> {
+
+        private BufferedReader reader;
+        private List<String>   header;
+        private List<String>   next;
+        private int            lineNumber;
+
+        private CsvIterator() throws MByHaveException {
+            try {
+                reader = new BufferedReader(new InputStreamReader(resource.openStream(), UTF_8));
+            } catch (final IOException e) {
+                throw new MByHaveException("The examples are not readable: " + resource, e);
+            }
+            header = readRow();
+            if (header == null) {
+                throw new MByHaveException("The examples do not have header: " + resource);
+            }
+            next = readRow();
+        }
+
+        private List<String> readRow() throws MByHaveException {
+            try {
+                String line;
+                while (reader != null && (line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (line.trim().isEmpty() || line.startsWith("#")) {
+                        continue;
+                    }
+                    final List<String> row = parseCsvRow(line);
+                    if (header != null && row.size() != header.size()) {
+                        throw new MByHaveException("The row " + lineNumber + " of " + resource + " has " + row.size()
+                                                   + " values instead of " + header.size() + ".");
+                    }
+                    return row;
+                }
+                close();
+                return null;
+            } catch (final IOException e) {
+                close();
+                throw new MByHaveException("The examples are not readable: " + resource, e);
+            } catch (final MByHaveException e) {
+                close();
+                throw e;
+            }
+        }
+
+        private void close() {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (final IOException e) {
+                    /* NOP */
+                }
+                reader = null;
+            }
+        }
+
+        /** {@inheritDoc} */
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        /** {@inheritDoc} */
+        public List<String> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            final List<String> row = next;
+            next = readRow();
+            return row;
+        }
+
+        /** {@inheritDoc} */
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}
@@ -28,35 +28,98 @@
  */
 package org.moresbycoffee.have.domain;
 
+import java.util.AbstractList;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
- * Represents a Scenario what consists of one or more steps.
+ * Represents a Scenario what consists of one or more steps. The steps are kept as the ids of
+ * a {@link StepTable}, {@link #getSteps()} is a view of them.
  *
  * @author Barnabas Sudy (barnabas.sudy@gmail.com)
  * @since 2012
  */
 public class Scenario {
 
-    private final String       description;
-    private final List<String> steps;
+    private final String    description;
+    private final StepTable stepTable;
+    private final int[]     stepIds;
 
     /**
      * @param description The description of the Scenarion
-     * @param steps The list of steps.
+     * @param steps The list of steps. They are interned into a new step table.
      */
     public Scenario(final String description, final List<String> steps) {
+        this(description, steps, new StepTable());
+    }
+
+    /**
+     * @param description The description of the Scenarion
+     * @param steps The list of steps.
+     * @param stepTable The step table the steps are interned into.
+     */
+    public Scenario(final String description, final List<String> steps, final StepTable stepTable) {
         super();
         this.description = description;
-        this.steps       = steps;
+        this.stepTable   = stepTable;
+        this.stepIds     = new int[steps.size()];
+        for (int i = 0; i < stepIds.length; i++) {
+            stepIds[i] = stepTable.intern(steps.get(i));
+        }
     }
 
     public String getDescription() {
         return description;
     }
+
+    /**
+     * @return The steps. The list is an unmodifiable view of the step ids, the steps of a
+     *         scenario can not be changed after its creation. (NonNull)
+     */
     public List<String> getSteps() {
-        return steps;
+        return new StepList();
     }
 
+    /**
+     * @return The table of the steps. (NonNull)
+     */
+    public StepTable getStepTable() {
+        return stepTable;
+    }
+
+    /**
+     * @return The ids of the steps in the {@link #getStepTable() step table}. (NonNull)
+     */
+    public int[] getStepIds() {
+        return stepIds.clone();
+    }
+
+    /**
+     * @param index The index of the step.
+     * @return The id of the step in the {@link #getStepTable() step table}.
+     */
+    public int getStepId(final int index) {
+        return stepIds[index];
+    }
+
+    /**
+     * @return The number of the steps.
+     */
+    public int getStepCount() {
+        return stepIds.length;
+    }
+
+    private final class StepList extends AbstractList<String> implements RandomAccess {
+
+        @Override
+        public String get(final int index) {
+            return stepTable.getStep(stepIds[index]);
+        }
+
+        @Override
+        public int size() {
+            return stepIds.length;
+        }
+    }
 
 }
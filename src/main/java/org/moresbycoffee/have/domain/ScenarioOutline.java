@@ -0,0 +1,152 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have.domain;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * <p>A scenario whose steps are templates with <tt>&lt;placeholder&gt;</tt>s. It is run once
+ * for each row of its {@link Examples}, with the placeholders replaced by the values of the row.</p>
+ * <p>The {@link #getSteps() steps} are the templates. The scenarios of the rows are created one by
+ * one by the {@link #iterator() iteration}, so they are never all kept in the memory.</p>
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class ScenarioOutline extends Scenario implements Iterable<Scenario> {
+
+    private final Examples examples;
+
+    /**
+     * @param description The description of the scenario outline.
+     * @param steps The step templates. They are interned into a new step table.
+     * @param examples The examples.
+     */
+    public ScenarioOutline(final String description, final List<String> steps, final Examples examples) {
+        this(description, steps, new StepTable(), examples);
+    }
+
+    /**
+     * @param description The description of the scenario outline.
+     * @param steps The step templates.
+     * @param stepTable The step table the templates are interned into.
+     * @param examples The examples.
+     */
+    public ScenarioOutline(final String description, final List<String> steps, final StepTable stepTable, final Examples examples) {
+        super(description, steps, stepTable);
+        this.examples = examples;
+    }
+
+    public Examples getExamples() {
+        return examples;
+    }
+
+    /**
+     * @return The scenarios of the rows of the examples. They are created as the iteration goes. (NonNull)
+     */
+    public Iterator<Scenario> iterator() {
+        final List<String>           header = examples.getHeader();
+        final Iterator<List<String>> rows   = examples.iterator();
+        return new Iterator<Scenario>() {
+            public boolean hasNext() {
+                return rows.hasNext();
+            }
+            public Scenario next() {
+                return getExample(header, rows.next());
+            }
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * @param header The header of the examples. (NonNull)
+     * @param row A row of the examples. (NonNull)
+     * @return The scenario of the row. Its steps are not interned into the step table of the outline. (NonNull)
+     */
+    public Scenario getExample(final List<String> header, final List<String> row) {
+        final List<String> steps = new ArrayList<String>(getSteps().size());
+        for (final String step : getSteps()) {
+            steps.add(substitute(step, header, row));
+        }
+        return new Scenario(getDescription(), steps, new StepTable());
+    }
+
+    /**
+     * Replaces the <tt>&lt;placeholder&gt;</tt>s of the header with the values of the row.
+     * The unknown placeholders are kept as they are.
+     *
+     * @param text The text with the placeholders. (NonNull)
+     * @param header The names of the placeholders. (NonNull)
+     * @param row The values of the placeholders. (NonNull)
+     * @return The text with the values. (NonNull)
+     */
+    public static String substitute(final String text, final List<String> header, final List<String> row) {
+        int open = text.indexOf('<');
+        if (open < 0) {
+            return text;
+        }
+        final StringBuilder result = new StringBuilder(text.length() + 16);
+        int position = 0;
+        while (open >= 0) {
+            final int close = text.indexOf('>', open + 1);
+            if (close < 0) {
+                break;
+            }
+            final int index = header.indexOf(text.substring(open + 1, close));
+            if (index < 0) {
+                /* Not a placeholder, the next one may start inside. */
+                open = text.indexOf('<', open + 1);
+                continue;
+            }
+            result.append(text, position, open).append(row.get(index));
+            position = close + 1;
+            open     = text.indexOf('<', position);
+        }
+        return result.append(text, position, text.length()).toString();
+    }
+
+    /**
+     * @param text The text. (NonNull)
+     * @param header The names of the placeholders. (NonNull)
+     * @return <tt>true</tt> if the text contains any of the placeholders.
+     */
+    public static boolean hasPlaceholder(final String text, final List<String> header) {
+        for (final String name : header) {
+            if (text.contains("<" + name + ">")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
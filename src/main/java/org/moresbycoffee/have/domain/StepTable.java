@@ -0,0 +1,132 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have.domain;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>Interns the steps of the scenarios. Each distinct step is stored once with its {@link Keyword}
+ * and identified by an <tt>int</tt> id, so the scenarios only keep the ids of their steps.</p>
+ * <p>The stories loaded for a runner share one table, so a step repeated across the stories is
+ * stored once, and the table is released together with the stories. The tables are thread-safe:
+ * the ids are assigned under a lock, the lookups are lock-free.</p>
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public final class StepTable {
+
+    private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+
+    /** The steps, their keywords and display texts by id. Replaced by larger copies as the table grows. */
+    private volatile Entries entries = new Entries(64);
+    private int              size;
+
+    /**
+     * @param step The step with its keyword. (NonNull)
+     * @return The id of the step. The equal steps get the same id. (NonNull)
+     */
+    public int intern(final String step) {
+        final Integer id = ids.get(step);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            final Integer existingId = ids.get(step);
+            if (existingId != null) {
+                return existingId;
+            }
+            Entries current = entries;
+            if (size == current.steps.length) {
+                current = current.grow();
+            }
+            current.steps[size]        = step;
+            current.keywords[size]     = Keyword.of(step);
+            current.displayTexts[size] = step.replace('\n', ' ');
+            /* The volatile write publishes the entry before its id is known by anyone. */
+            entries = current;
+            ids.put(step, size);
+            return size++;
+        }
+    }
+
+    /**
+     * @param id The id of a step. (NonNull)
+     * @return The step with its keyword. (NonNull)
+     */
+    public String getStep(final int id) {
+        return entries.steps[id];
+    }
+
+    /**
+     * @param id The id of a step. (NonNull)
+     * @return The keyword of the step or <tt>null</tt> if it does not start with a keyword. (Nullable)
+     */
+    public Keyword getKeyword(final int id) {
+        return entries.keywords[id];
+    }
+
+    /**
+     * @param id The id of a step. (NonNull)
+     * @return The step in a single line, the new lines are replaced by spaces. (NonNull)
+     */
+    public String getDisplayText(final int id) {
+        return entries.displayTexts[id];
+    }
+
+    /**
+     * @return The number of the distinct steps.
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    private static final class Entries {
+
+        private final String[]  steps;
+        private final Keyword[] keywords;
+        private final String[]  displayTexts;
+
+        private Entries(final int capacity) {
+            steps        = new String[capacity];
+            keywords     = new Keyword[capacity];
+            displayTexts = new String[capacity];
+        }
+
+        private Entries grow() {
+            final Entries grown = new Entries(steps.length * 2);
+            System.arraycopy(steps, 0, grown.steps, 0, steps.length);
+            System.arraycopy(keywords, 0, grown.keywords, 0, keywords.length);
+            System.arraycopy(displayTexts, 0, grown.displayTexts, 0, displayTexts.length);
+            return grown;
+        }
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.moresbycoffee.have.annotations.Given;
+import org.moresbycoffee.have.annotations.Story;
+import org.moresbycoffee.have.annotations.Then;
+
+/**
+ * Tests the ahead of time step binding of the {@link MByHaveRunner}.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class BindingTest {
+
+    private static final List<String> EVENTS = new ArrayList<String>();
+
+    @RunWith(MByHaveRunner.class)
+    @Story(files = "bindingTest.story")
+    public static class BindingStory {
+
+        private int steps = 0;
+
+        @BeforeClass
+        public static void beforeClass() {
+            EVENTS.add("beforeClass");
+        }
+
+        @Given("a bound step")
+        public void boundStep() {
+            EVENTS.add("bound step");
+            steps++;
+        }
+
+        @Then("the bound step has run")
+        public void checkBoundStep() {
+            assertEquals(1, steps);
+        }
+    }
+
+    @Test
+    public void testUnboundStepReportedBeforeExecution() {
+        EVENTS.clear();
+        final JUnitCore core = new JUnitCore();
+        core.addListener(new RunListener() {
+            @Override
+            public void testStarted(final Description description) {
+                if (description.isSuite()) {
+                    EVENTS.add("started: " + description.getDisplayName());
+                }
+            }
+            @Override
+            public void testFailure(final Failure failure) {
+                EVENTS.add("failure: " + failure.getDescription().getDisplayName());
+            }
+            @Override
+            public void testIgnored(final Description description) {
+                EVENTS.add("ignored: " + description.getDisplayName());
+            }
+        });
+        core.run(BindingStory.class);
+
+        final List<String> expected = new ArrayList<String>();
+        expected.add("started: " + BindingStory.class.getName());
+        /* The binding error is reported in its started story and scenario before the execution. */
+        expected.add("started: 1. bindingTest.story");
+        expected.add("started: 1.2. Scenario scenario with an unbound step");
+        expected.add("ignored: 1.2.1. Given a bound step(" + BindingStory.class.getName() + ")");
+        expected.add("failure: 1.2.2. When an unknown step(" + BindingStory.class.getName() + ")");
+        expected.add("ignored: 1.2.3. Then the bound step has run(" + BindingStory.class.getName() + ")");
+        expected.add("beforeClass");
+        expected.add("started: 1. bindingTest.story");
+        expected.add("started: 1.1. Scenario bound scenario");
+        /* Only the bound scenario is executed. */
+        expected.add("bound step");
+        assertEquals(expected, EVENTS);
+    }
+
+}
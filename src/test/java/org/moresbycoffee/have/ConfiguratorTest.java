@@ -0,0 +1,82 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.moresbycoffee.have.annotations.Given;
+
+/**
+ * Tests the configuration cache of the {@link MByHaveConfigurator}.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class ConfiguratorTest {
+
+    private int counter;
+
+    @Given("a step")
+    public void step() {
+        counter++;
+    }
+
+    @Test
+    public void testConfigurationIsShared() {
+        final MByHaveConfiguration configuration = MByHaveConfigurator.configure(ConfiguratorTest.class, false);
+
+        assertSame(configuration, MByHaveConfigurator.configure(ConfiguratorTest.class, false));
+        assertNotSame(configuration, MByHaveConfigurator.configure(ConfiguratorTest.class, true));
+    }
+
+    @Test
+    public void testSettingsChangeCreatesNewConfiguration() {
+        final MByHaveConfiguration configuration = MByHaveConfigurator.configure(ConfiguratorTest.class, false);
+
+        System.setProperty(MethodInvoker.MODE_PROPERTY, "reflection");
+        try {
+            assertNotSame(configuration, MByHaveConfigurator.configure(ConfiguratorTest.class, false));
+        } finally {
+            System.clearProperty(MethodInvoker.MODE_PROPERTY);
+        }
+        assertSame(configuration, MByHaveConfigurator.configure(ConfiguratorTest.class, false));
+    }
+
+    @Test
+    public void testMByHaveInstancesShareTheConfiguration() {
+        new MByHave(this).given("a step");
+        new MByHave(this).given("a step");
+
+        assertEquals(2, counter);
+        /* The second instance finds the step in the shared cache. */
+        assertTrue(MByHaveConfigurator.configure(ConfiguratorTest.class, false).getStepMatchCache().getHitCount() >= 1);
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.moresbycoffee.have.annotations.Converters;
+import org.moresbycoffee.have.annotations.Given;
+import org.moresbycoffee.have.annotations.Then;
+import org.moresbycoffee.have.annotations.When;
+import org.moresbycoffee.have.converters.ParameterConverter;
+import org.moresbycoffee.have.converters.ParameterConverters;
+import org.moresbycoffee.have.exceptions.MByHaveAssertionError;
+import org.moresbycoffee.have.exceptions.MByHaveException;
+
+/**
+ * Tests the conversion of the step parameters.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+@Converters(ConverterTest.PointConverter.class)
+public class ConverterTest {
+
+    public static class Point {
+        private final int x;
+        private final int y;
+
+        public Point(final int x, final int y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    public static class PointConverter implements ParameterConverter<Point> {
+
+        public Class<Point> getType() {
+            return Point.class;
+        }
+
+        public Point convert(final String value) {
+            final String[] coordinates = value.split(",");
+            return new Point(Integer.parseInt(coordinates[0].trim()), Integer.parseInt(coordinates[1].trim()));
+        }
+    }
+
+    private int        count;
+    private Long       total;
+    private boolean    flag;
+    private TimeUnit   unit;
+    private BigDecimal amount;
+    private LocalDate  date;
+    private Point      point;
+
+    @Given("$count items of $total in total")
+    public void numbers(final int count, final Long total) {
+        this.count = count;
+        this.total = total;
+    }
+
+    @Given("the flag is $flag and the unit is $unit")
+    public void flagAndUnit(final boolean flag, final TimeUnit unit) {
+        this.flag = flag;
+        this.unit = unit;
+    }
+
+    @When("$amount is paid on $date")
+    public void payment(final BigDecimal amount, final LocalDate date) {
+        this.amount = amount;
+        this.date   = date;
+    }
+
+    @Then("the point is at $point")
+    public void point(final Point point) {
+        this.point = point;
+    }
+
+    @Test
+    public void testBuiltInConverters() {
+        new MByHave(this).given("3 items of 12 in total")
+                         .given("the flag is true and the unit is seconds")
+                         .when("10.50 is paid on 2012-10-18");
+        assertEquals(3, count);
+        assertEquals(Long.valueOf(12), total);
+        assertTrue(flag);
+        assertEquals(TimeUnit.SECONDS, unit);
+        assertEquals(new BigDecimal("10.50"), amount);
+        assertEquals(LocalDate.of(2012, 10, 18), date);
+    }
+
+    @Test
+    public void testCustomConverter() {
+        new MByHave(this).then("the point is at 3, 4");
+        assertEquals(3, point.x);
+        assertEquals(4, point.y);
+    }
+
+    @Test
+    public void testCharConverterKeepsWhitespace() throws Exception {
+        final ParameterConverter<?> converter = ParameterConverters.resolve(char.class, Collections.<ParameterConverter<?>>emptyList());
+        assertEquals(Character.valueOf('a'), converter.convert("a"));
+        assertEquals(Character.valueOf(' '), converter.convert(" "));
+        try {
+            converter.convert(" a ");
+            fail();
+        } catch (final IllegalArgumentException e) {
+            assertEquals("Not a single character:  a ", e.getMessage());
+        }
+    }
+
+    @Test(expected = MByHaveAssertionError.class)
+    public void testConversionFailure() {
+        new MByHave(this).given("three items of 12 in total");
+    }
+
+    public static class UnsupportedParameter {
+        @Given("an unsupported $parameter")
+        public void unsupported(final Object[] parameter) {
+            fail();
+        }
+    }
+
+    @Test(expected = MByHaveException.class)
+    public void testUnsupportedParameterType() {
+        new MByHave(new UnsupportedParameter());
+    }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runner.manipulation.Filter;
+import org.junit.runner.manipulation.NoTestsRemainException;
+import org.junit.runner.manipulation.Sorter;
+import org.moresbycoffee.have.annotations.Given;
+import org.moresbycoffee.have.annotations.Story;
+import org.moresbycoffee.have.annotations.Then;
+import org.moresbycoffee.have.annotations.When;
+
+/**
+ * Tests the filtering and the sorting of the {@link MByHaveRunner}.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class FilterTest {
+
+    private static final List<String> EVENTS = new ArrayList<String>();
+
+    @RunWith(MByHaveRunner.class)
+    @Story(files = "storytest1.story")
+    public static class FilterStory {
+
+        public FilterStory() {
+            EVENTS.add("constructor");
+        }
+
+        @Before
+        public void before() {
+            EVENTS.add("before");
+        }
+
+        @Given("first method")
+        public void firstMethod() {
+            EVENTS.add("first");
+        }
+
+        @When("second method $param")
+        public void whenTestMethod(final String param) {
+            EVENTS.add("second " + param);
+        }
+
+        @Then("third $param1 $param2 method")
+        public void thenTwoParamMethod(final String param1, final String param2) {
+            EVENTS.add("third " + param1 + " " + param2);
+        }
+    }
+
+    private static Description stepDescription(final String name) {
+        return Description.createTestDescription(FilterStory.class, name);
+    }
+
+    @Test
+    public void testFilterByStep() {
+        EVENTS.clear();
+        final Result result = new JUnitCore().run(Request.aClass(FilterStory.class).filterWith(stepDescription("1.2.2. When second method trick")));
+
+        assertTrue(result.wasSuccessful());
+        /* The whole selected scenario runs, the other one is not even instantiated. */
+        assertEquals(Arrays.asList("constructor", "before", "first", "second trick", "third blah ehe"), EVENTS);
+    }
+
+    @Test
+    public void testFilterByScenario() throws Exception {
+        final MByHaveRunner runner = new MByHaveRunner(FilterStory.class);
+        runner.filter(new Filter() {
+            @Override
+            public boolean shouldRun(final Description description) {
+                return description.getDisplayName().equals("1.1. Scenario show how this works");
+            }
+            @Override
+            public String describe() {
+                return "first scenario";
+            }
+        });
+
+        final Description story = runner.getDescription().getChildren().get(0);
+        assertEquals(1, story.getChildren().size());
+        assertEquals("1.1. Scenario show how this works", story.getChildren().get(0).getDisplayName());
+        assertEquals(3, runner.getDescription().testCount());
+    }
+
+    @Test
+    public void testFilterByStory() throws Exception {
+        final MByHaveRunner runner = new MByHaveRunner(FilterStory.class);
+        runner.filter(new Filter() {
+            @Override
+            public boolean shouldRun(final Description description) {
+                return description.getDisplayName().equals("1. storytest1.story");
+            }
+            @Override
+            public String describe() {
+                return "the story";
+            }
+        });
+
+        assertEquals(6, runner.getDescription().testCount());
+    }
+
+    @Test(expected = NoTestsRemainException.class)
+    public void testNoTestsRemain() throws Exception {
+        new MByHaveRunner(FilterStory.class).filter(new Filter() {
+            @Override
+            public boolean shouldRun(final Description description) {
+                return description.equals(stepDescription("9.9.9. Given nothing"));
+            }
+            @Override
+            public String describe() {
+                return "nothing";
+            }
+        });
+    }
+
+    @Test
+    public void testSortScenarios() {
+        EVENTS.clear();
+        final Request request = Request.aClass(FilterStory.class).sortWith(new Comparator<Description>() {
+            public int compare(final Description first, final Description second) {
+                return second.getDisplayName().compareTo(first.getDisplayName());
+            }
+        });
+        final Result result = new JUnitCore().run(request);
+
+        assertTrue(result.wasSuccessful());
+        /* The scenarios are reversed, the steps keep their order. */
+        assertEquals(Arrays.asList("constructor", "before", "first", "second trick", "third blah ehe",
+                                   "constructor", "before", "first", "second param1", "third param1 param2"), EVENTS);
+
+        final MByHaveRunner runner = (MByHaveRunner) request.getRunner();
+        assertEquals("1.2. Scenario second scenario", runner.getDescription().getChildren().get(0).getChildren().get(0).getDisplayName());
+    }
+
+}
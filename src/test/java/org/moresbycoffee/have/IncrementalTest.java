@@ -0,0 +1,240 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+
+/**
+ * Tests the incremental mode of the {@link MByHaveRunner}.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class IncrementalTest {
+
+    private File fingerprintDir;
+    /** The directories of the compiled story classes. */
+    private final List<File> tempDirectories = new ArrayList<File>();
+
+    @Before
+    public void setUp() throws Exception {
+        fingerprintDir = File.createTempFile("mbyhave-incremental", "");
+        assertTrue(fingerprintDir.delete());
+        System.setProperty(ScenarioFingerprints.DIR_PROPERTY, fingerprintDir.getPath());
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty(ScenarioFingerprints.DIR_PROPERTY);
+        delete(fingerprintDir);
+        for (final File directory : tempDirectories) {
+            delete(directory);
+        }
+    }
+
+    private static void delete(final File file) {
+        final File[] files = file.listFiles();
+        if (files != null) {
+            for (final File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    /** Helpers of the code hash test. */
+    public void first() {
+        System.out.println("first");
+    }
+    public void sameAsFirst() {
+        System.out.println("first");
+    }
+    public void second() {
+        System.out.println("second");
+    }
+
+    /** The source of a story class, only the field initializer depends on the version. */
+    private static final String INITIALIZER_SOURCE = "package incremental;\n"
+            + "@org.junit.runner.RunWith(org.moresbycoffee.have.MByHaveRunner.class)\n"
+            + "@org.moresbycoffee.have.annotations.Story(files = \"initializer.story\")\n"
+            + "public class InitializerStory {\n"
+            + "    private int value = %d;\n"
+            + "    @org.moresbycoffee.have.annotations.Then(\"the value is 5\")\n"
+            + "    public void checkValue() {\n"
+            + "        org.junit.Assert.assertEquals(5, value);\n"
+            + "    }\n"
+            + "}\n";
+
+    private static List<String> run(final Request request) {
+        final List<String> events = new ArrayList<String>();
+        final JUnitCore core = new JUnitCore();
+        core.addListener(new RunListener() {
+            @Override
+            public void testFailure(final Failure failure) {
+                events.add("failure: " + failure.getDescription().getDisplayName());
+            }
+            @Override
+            public void testAssumptionFailure(final Failure failure) {
+                events.add("skipped: " + failure.getDescription().getDisplayName());
+            }
+        });
+        core.run(request);
+        return events;
+    }
+
+    @Test
+    public void testCodeHash() throws Exception {
+        final ClassFileReader reader = ClassFileReader.forClass(IncrementalTest.class);
+        final byte[] first = reader.getCodeHash(IncrementalTest.class.getMethod("first"));
+        assertNotNull(first);
+        assertArrayEquals(first, reader.getCodeHash(IncrementalTest.class.getMethod("sameAsFirst")));
+        assertFalse(Arrays.equals(first, reader.getCodeHash(IncrementalTest.class.getMethod("second"))));
+    }
+
+    @Test
+    public void testPassedScenariosAreSkipped() {
+        final String className = "(" + OutlineTest.OutlineStory.class.getName() + ")";
+        final String failure   = "failure: 1.1.3. start=5, eat=1, left=3" + className;
+        assertEquals(Arrays.asList(failure), run(Request.aClass(OutlineTest.OutlineStory.class)));
+        assertTrue(new File(fingerprintDir, OutlineTest.OutlineStory.class.getName() + ".fingerprints").isFile());
+
+        /* Only the failed example runs again. */
+        assertEquals(Arrays.asList("skipped: 1.1.1. start=12, eat=5, left=7" + className,
+                                   "skipped: 1.1.2. start=20, eat=5, left=15" + className,
+                                   failure,
+                                   "skipped: 1.2.1. action=open, state=open" + className,
+                                   "skipped: 1.2.2. action=close, state=closed" + className,
+                                   "skipped: 1.3.1. Given there are 3 cucumbers" + className,
+                                   "skipped: 1.3.2. Then I should have 3 cucumbers" + className),
+                     run(Request.aClass(OutlineTest.OutlineStory.class)));
+    }
+
+    @Test
+    public void testFilteredRunKeepsFingerprints() {
+        final String className = "(" + OutlineTest.OutlineStory.class.getName() + ")";
+        final Description plainStep = Description.createTestDescription(OutlineTest.OutlineStory.class, "1.3.1. Given there are 3 cucumbers");
+        run(Request.aClass(OutlineTest.OutlineStory.class));
+        run(Request.aClass(OutlineTest.OutlineStory.class).filterWith(plainStep));
+
+        /* The filtered run has kept the fingerprints of the other scenarios. */
+        final List<String> events = run(Request.aClass(OutlineTest.OutlineStory.class));
+        assertTrue(events.contains("skipped: 1.2.1. action=open, state=open" + className));
+        assertTrue(events.contains("skipped: 1.3.1. Given there are 3 cucumbers" + className));
+    }
+
+    @Test
+    public void testBindingSettingsChangeFingerprints() {
+        run(Request.aClass(OutlineTest.OutlineStory.class));
+
+        /* The steps bound by another matcher engine run again. */
+        System.setProperty(StepMatcher.ENGINE_PROPERTY, "template");
+        try {
+            final String className = "(" + OutlineTest.OutlineStory.class.getName() + ")";
+            assertEquals(Arrays.asList("failure: 1.1.3. start=5, eat=1, left=3" + className),
+                         run(Request.aClass(OutlineTest.OutlineStory.class)));
+        } finally {
+            System.clearProperty(StepMatcher.ENGINE_PROPERTY);
+        }
+    }
+
+    @Test
+    public void testFieldInitializerChangesFingerprints() throws Exception {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assume.assumeNotNull(compiler);
+
+        final String className = "(incremental.InitializerStory)";
+        assertEquals(Arrays.asList(), run(Request.aClass(compileInitializerStory(compiler, 5))));
+        assertEquals(Arrays.asList("skipped: 1.1.1. Then the value is 5" + className), run(Request.aClass(compileInitializerStory(compiler, 5))));
+        /* Only the constructor has changed, the step method is the same. */
+        assertEquals(Arrays.asList("failure: 1.1.1. Then the value is 5" + className), run(Request.aClass(compileInitializerStory(compiler, 4))));
+    }
+
+    /**
+     * Compiles the story class with the given field initializer into a new directory and loads it
+     * by a new class loader, so each version is a new class with the same name.
+     */
+    private Class<?> compileInitializerStory(final JavaCompiler compiler, final int value) throws IOException, ClassNotFoundException {
+        final File directory = File.createTempFile("mbyhave-initializer", "", fingerprintDir.getParentFile());
+        assertTrue(directory.delete() && new File(directory, "incremental").mkdirs());
+        final File source = new File(directory, "incremental/InitializerStory.java");
+        write(source, String.format(INITIALIZER_SOURCE, value));
+        write(new File(directory, "incremental/initializer.story"), "Scenario initializer\nThen the value is 5\n");
+
+        final String classPath = getClassPath(MByHaveRunner.class) + File.pathSeparator + getClassPath(Test.class);
+        assertEquals(0, compiler.run(null, null, null, "-nowarn", "-cp", classPath, "-d", directory.getPath(), source.getPath()));
+        tempDirectories.add(directory);
+        return new URLClassLoader(new URL[] { directory.toURI().toURL() }, IncrementalTest.class.getClassLoader()).loadClass("incremental.InitializerStory");
+    }
+
+    private static String getClassPath(final Class<?> type) {
+        return type.getProtectionDomain().getCodeSource().getLocation().getPath();
+    }
+
+    private static void write(final File file, final String content) throws IOException {
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        System.clearProperty(ScenarioFingerprints.DIR_PROPERTY);
+        run(Request.aClass(OutlineTest.OutlineStory.class));
+        assertEquals(1, run(Request.aClass(OutlineTest.OutlineStory.class)).size());
+        assertFalse(fingerprintDir.exists());
+    }
+
+}
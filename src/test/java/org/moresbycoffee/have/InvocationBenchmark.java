@@ -0,0 +1,99 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import org.moresbycoffee.have.annotations.Given;
+import org.moresbycoffee.have.annotations.Then;
+import org.moresbycoffee.have.annotations.When;
+
+/**
+ * <p>Compares the {@link MethodInvoker.Mode}s on a step heavy scenario.</p>
+ * <p>Not a unit test, run it by its <tt>main</tt> method with the test classpath.</p>
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class InvocationBenchmark {
+
+    private static final int WARMUP_ROUNDS   = 5;
+    private static final int MEASURED_ROUNDS = 5;
+    private static final int SCENARIOS       = 200000;
+
+    private long sum;
+
+    @Given("the number $value")
+    public void given(final String value) {
+        sum += value.length();
+    }
+
+    @When("the $first and $second are added")
+    public void when(final String first, final String second) {
+        sum += first.length() + second.length();
+    }
+
+    @Then("the result is $result")
+    public void then(final String result) {
+        sum -= result.length();
+    }
+
+    private long runScenarios(final MByHave mByHave) {
+        final long start = System.nanoTime();
+        for (int i = 0; i < SCENARIOS; i++) {
+            mByHave.given("the number 1");
+            mByHave.when("the 1 and 2 are added");
+            mByHave.then("the result is 3");
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static MByHave createMByHave(final MethodInvoker.Mode mode, final Object testObject) {
+        System.setProperty(MethodInvoker.MODE_PROPERTY, mode.name());
+        try {
+            return new MByHave(testObject);
+        } finally {
+            System.clearProperty(MethodInvoker.MODE_PROPERTY);
+        }
+    }
+
+    public static void main(final String[] args) {
+        for (final MethodInvoker.Mode mode : MethodInvoker.Mode.values()) {
+            final InvocationBenchmark benchmark = new InvocationBenchmark();
+            final MByHave mByHave = createMByHave(mode, benchmark);
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                benchmark.runScenarios(mByHave);
+            }
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                best = Math.min(best, benchmark.runScenarios(mByHave));
+            }
+            System.out.println(String.format("%-13s %6.1f ns/step (checksum %d)", mode, (double) best / (SCENARIOS * 3), benchmark.sum));
+        }
+    }
+
+}
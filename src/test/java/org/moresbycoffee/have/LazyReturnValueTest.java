@@ -0,0 +1,134 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.moresbycoffee.have.annotations.Given;
+import org.moresbycoffee.have.annotations.Story;
+import org.moresbycoffee.have.annotations.Then;
+
+/**
+ * Tests the lazy {@link ReturnValue}s of the step methods returning <tt>Supplier</tt>s and <tt>Callable</tt>s.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class LazyReturnValueTest {
+
+    private static int fixtures;
+    private static int datasets;
+
+    @RunWith(MByHaveRunner.class)
+    @Story(files = "lazyReturnValue.story")
+    public static class LazyReturnValueStory {
+
+        @Given("an expensive fixture")
+        public Supplier<String> fixture() {
+            return new Supplier<String>() {
+                public String get() {
+                    fixtures++;
+                    return "fixture";
+                }
+            };
+        }
+
+        @Given("an expensive dataset")
+        public Callable<Integer> dataset() {
+            return new Callable<Integer>() {
+                public Integer call() {
+                    datasets++;
+                    return 42;
+                }
+            };
+        }
+
+        @Then("the fixture is parsed")
+        public void checkFixture(final ReturnValue<String> fixture) {
+            assertEquals(0, fixtures);
+            assertEquals("fixture", fixture.getValue());
+            assertEquals(1, fixtures);
+        }
+
+        @Then("the fixture is still parsed once")
+        public void checkFixtureAgain(final ReturnValue<CharSequence> fixture) {
+            assertEquals("fixture", fixture.getValue());
+            assertEquals(1, fixtures);
+        }
+
+        @Then("nothing is inspected")
+        public void inspectNothing() {
+        }
+    }
+
+    @Test
+    public void testSuppliersAreEvaluatedOnDemand() {
+        fixtures = 0;
+        datasets = 0;
+        final Result result = new JUnitCore().run(LazyReturnValueStory.class);
+
+        assertTrue(result.getFailures().toString(), result.wasSuccessful());
+        assertEquals(1, fixtures);
+        assertEquals(0, datasets);
+    }
+
+    @Test
+    public void testSuppliedTypeIsTheReturnType() throws Exception {
+        final StepCandidate fixture = MByHaveConfigurator.configure(LazyReturnValueStory.class, false).getMatchers().get(Given.class)
+                                                         .match("an expensive fixture").getCandidate();
+        assertEquals(String.class, fixture.getReturnType());
+
+        final StepCandidate dataset = MByHaveConfigurator.configure(LazyReturnValueStory.class, false).getMatchers().get(Given.class)
+                                                         .match("an expensive dataset").getCandidate();
+        assertEquals(Integer.class, dataset.getReturnType());
+
+        final ReturnValue<?> returnValue = dataset.createReturnValue(new LazyReturnValueStory().dataset());
+        datasets = 0;
+        assertEquals(42, returnValue.getValue());
+        assertEquals(42, returnValue.getValue());
+        assertEquals(1, datasets);
+    }
+
+    @Test
+    public void testEmbeddedLazyReturnValue() {
+        fixtures = 0;
+        final MByHave mByHave = new MByHave(new LazyReturnValueStory());
+        mByHave.given("an expensive fixture");
+        assertEquals(0, fixtures);
+        mByHave.then("the fixture is parsed").then("the fixture is still parsed once");
+    }
+
+}
@@ -0,0 +1,261 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.moresbycoffee.have.annotations.Given;
+import org.moresbycoffee.have.annotations.Parallel;
+import org.moresbycoffee.have.annotations.Story;
+import org.moresbycoffee.have.annotations.Then;
+import org.moresbycoffee.have.annotations.When;
+
+/**
+ * Tests the scenario outlines.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class OutlineTest {
+
+    @RunWith(MByHaveRunner.class)
+    @Story(files = "outlineTest.story")
+    public static class OutlineStory {
+
+        private int     cucumbers;
+        private boolean open;
+
+        @Given("there are $start cucumbers")
+        public void setCucumbers(final int start) {
+            cucumbers = start;
+        }
+
+        /* The template does not fit to the type constraint, so it is matched for each example. */
+        @When("I eat $eat:int cucumbers")
+        public void eat(final int eat) {
+            cucumbers -= eat;
+        }
+
+        @Then("I should have $left cucumbers")
+        public void checkCucumbers(final int left) {
+            assertEquals(left, cucumbers);
+        }
+
+        @Given("the door is closed")
+        public void closeDoor() {
+            open = false;
+        }
+
+        /* The placeholder stands in the literal part, so the steps are matched for each example. */
+        @When("I open the door")
+        public void open() {
+            open = true;
+        }
+
+        @When("I close the door")
+        public void close() {
+            open = false;
+        }
+
+        @Then("the door is $state")
+        public void checkDoor(final String state) {
+            assertEquals(state, open ? "open" : "closed");
+        }
+    }
+
+    @RunWith(MByHaveRunner.class)
+    @Story(files = "outlineTest.story")
+    @Parallel(threads = 4)
+    public static class ParallelOutlineStory extends OutlineStory {
+    }
+
+    @RunWith(MByHaveRunner.class)
+    @Story(files = "outlinePriority.story")
+    public static class PriorityOutlineStory {
+
+        private boolean typed;
+
+        /* The template does not fit to the type constraint, but the examples do. */
+        @Given(value = "there are $count:int cucumbers", priority = 1)
+        public void setTypedCount(final int count) {
+            typed = true;
+        }
+
+        @Given("there are $what cucumbers")
+        public void setCount(final String what) {
+            typed = false;
+        }
+
+        @Then("the typed step was chosen")
+        public void checkTyped() {
+            assertTrue(typed);
+        }
+    }
+
+    private static List<String> run(final Request request) {
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        final JUnitCore core = new JUnitCore();
+        core.addListener(new RunListener() {
+            @Override
+            public void testStarted(final Description description) {
+                events.add("started: " + description.getDisplayName());
+            }
+            @Override
+            public void testFailure(final Failure failure) {
+                events.add("failure: " + failure.getDescription().getDisplayName() + " " + failure.getMessage());
+            }
+            @Override
+            public void testFinished(final Description description) {
+                events.add("finished: " + description.getDisplayName());
+            }
+        });
+        core.run(request);
+        return events;
+    }
+
+    @Test
+    public void testDescription() throws Exception {
+        final Description description = new MByHaveRunner(OutlineStory.class).getDescription();
+        final Description story = description.getChildren().get(0);
+        assertEquals(3, story.getChildren().size());
+
+        final String className = "(" + OutlineStory.class.getName() + ")";
+        final Description cucumbers = story.getChildren().get(0);
+        assertEquals("1.1. Scenario eating cucumbers", cucumbers.getDisplayName());
+        assertEquals(Arrays.asList("1.1.1. start=12, eat=5, left=7" + className,
+                                   "1.1.2. start=20, eat=5, left=15" + className,
+                                   "1.1.3. start=5, eat=1, left=3" + className),
+                     getDisplayNames(cucumbers.getChildren()));
+        assertEquals(Arrays.asList("1.2.1. action=open, state=open" + className,
+                                   "1.2.2. action=close, state=closed" + className),
+                     getDisplayNames(story.getChildren().get(1).getChildren()));
+        /* The plain scenarios still have their steps. */
+        assertEquals(2, story.getChildren().get(2).getChildren().size());
+    }
+
+    private static List<String> getDisplayNames(final List<Description> descriptions) {
+        final List<String> names = new ArrayList<String>();
+        for (final Description description : descriptions) {
+            names.add(description.getDisplayName());
+        }
+        return names;
+    }
+
+    @Test
+    public void testExamplesRun() {
+        final List<String> events = run(Request.aClass(OutlineStory.class));
+
+        final String className = "(" + OutlineStory.class.getName() + ")";
+        final List<String> expected = new ArrayList<String>();
+        expected.add("started: " + OutlineStory.class.getName());
+        expected.add("started: 1. outlineTest.story");
+        expected.add("started: 1.1. Scenario eating cucumbers");
+        for (final String example : new String[] { "1.1.1. start=12, eat=5, left=7", "1.1.2. start=20, eat=5, left=15" }) {
+            expected.add("started: " + example + className);
+            expected.add("finished: " + example + className);
+        }
+        expected.add("started: 1.1.3. start=5, eat=1, left=3" + className);
+        expected.add("failure: 1.1.3. start=5, eat=1, left=3" + className
+                     + " The \"Then I should have 3 cucumbers\" step failed: java.lang.AssertionError: expected:<3> but was:<4>");
+        expected.add("finished: 1.1.3. start=5, eat=1, left=3" + className);
+        expected.add("finished: 1.1. Scenario eating cucumbers");
+        expected.add("started: 1.2. Scenario using the door");
+        for (final String example : new String[] { "1.2.1. action=open, state=open", "1.2.2. action=close, state=closed" }) {
+            expected.add("started: " + example + className);
+            expected.add("finished: " + example + className);
+        }
+        expected.add("finished: 1.2. Scenario using the door");
+        expected.add("started: 1.3. Scenario plain scenario");
+        expected.add("started: 1.3.1. Given there are 3 cucumbers" + className);
+        expected.add("finished: 1.3.1. Given there are 3 cucumbers" + className);
+        expected.add("started: 1.3.2. Then I should have 3 cucumbers" + className);
+        expected.add("finished: 1.3.2. Then I should have 3 cucumbers" + className);
+        expected.add("finished: 1.3. Scenario plain scenario");
+        expected.add("finished: 1. outlineTest.story");
+        expected.add("finished: " + OutlineStory.class.getName());
+        assertEquals(expected, events);
+    }
+
+    @Test
+    public void testExamplesRunConcurrently() {
+        final String serialName   = OutlineStory.class.getName();
+        final String parallelName = ParallelOutlineStory.class.getName();
+
+        final List<String> expected = new ArrayList<String>();
+        for (final String event : run(Request.aClass(OutlineStory.class))) {
+            expected.add(event.replace(serialName, parallelName));
+        }
+        assertEquals(expected, run(Request.aClass(ParallelOutlineStory.class)));
+    }
+
+    @Test
+    public void testExampleFilter() {
+        final Description example = Description.createTestDescription(OutlineStory.class, "1.1.3. start=5, eat=1, left=3");
+        final Request request = Request.aClass(OutlineStory.class).filterWith(example);
+        assertEquals(1, request.getRunner().getDescription().testCount());
+
+        final Result result = new JUnitCore().run(request);
+        assertEquals(1, result.getFailureCount());
+        assertEquals(example, result.getFailures().get(0).getDescription());
+    }
+
+    @Test
+    public void testHigherPriorityTypedCandidate() {
+        final Result result = new JUnitCore().run(PriorityOutlineStory.class);
+        assertTrue(result.getFailures().toString(), result.wasSuccessful());
+    }
+
+    @Test
+    public void testEmbeddedOutline() {
+        final OutlineStory testObject = new OutlineStory();
+        new MByHave(testObject).runScenario("Scenario embedded\n"
+                                            + "Given there are <start> cucumbers\n"
+                                            + "When I eat <eat> cucumbers\n"
+                                            + "Then I should have <left> cucumbers\n"
+                                            + "Examples:\n"
+                                            + "| start | eat | left |\n"
+                                            + "| 3     | 1   | 2    |\n"
+                                            + "| 4     | 4   | 0    |\n");
+        assertEquals(0, testObject.cucumbers);
+    }
+
+}
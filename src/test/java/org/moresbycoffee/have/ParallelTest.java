@@ -0,0 +1,288 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.moresbycoffee.have.annotations.Given;
+import org.moresbycoffee.have.annotations.Parallel;
+import org.moresbycoffee.have.annotations.Story;
+import org.moresbycoffee.have.annotations.Then;
+import org.moresbycoffee.have.annotations.When;
+
+/**
+ * Tests the parallel scenario execution of the {@link MByHaveRunner}.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class ParallelTest {
+
+    /** The first two scenarios wait for each other, so they pass only if they run at the same time. */
+    private static volatile CountDownLatch meeting;
+    /** The scenarios wait for each other this long. The runs expected to fail wait only briefly. */
+    private static volatile long           meetingMillis;
+
+    /** The scenarios surely meet within this time if they run concurrently. */
+    private static final long MEETING_MILLIS        = 5000;
+    /** The scenarios run one after the other do not meet, so they should not wait long. */
+    private static final long MISSED_MEETING_MILLIS = 200;
+
+    @RunWith(MByHaveRunner.class)
+    @Story(files = "parallelTest.story")
+    @Parallel(threads = 4)
+    public static class ParallelStory {
+
+        @Given("the value $value is stored in the $box")
+        public String store(final String value, final Container<String> box) {
+            box.setValue(value);
+            return value;
+        }
+
+        @When("the scenarios meet")
+        public void meet() throws InterruptedException {
+            meeting.countDown();
+            assertTrue("The scenarios are not run concurrently.", meeting.await(meetingMillis, TimeUnit.MILLISECONDS));
+        }
+
+        @Then("the $box holds $value")
+        public void checkBox(final Container<String> box, final String value) {
+            assertEquals(value, box.getValue());
+        }
+
+        @Then("the last returned value is $value")
+        public void checkReturnValue(final ReturnValue<String> returnValue, final String value) {
+            assertEquals(value, returnValue.getValue());
+        }
+    }
+
+    @RunWith(MByHaveRunner.class)
+    @Story(files = "parallelTest.story")
+    @Parallel(executor = Parallel.Executor.VIRTUAL, threads = 2)
+    public static class VirtualStory extends ParallelStory {
+    }
+
+    @RunWith(MByHaveRunner.class)
+    @Story(files = "parallelTest.story")
+    @Parallel(executor = Parallel.Executor.VIRTUAL, threads = 1)
+    public static class SingleVirtualStory extends ParallelStory {
+    }
+
+    @RunWith(MByHaveRunner.class)
+    @Story(files = { "parallelTest.story", "parallelTest.story" })
+    @Parallel(stories = true)
+    public static class ParallelStories extends ParallelStory {
+    }
+
+    private static List<String> run(final String parallelProperty) {
+        return run(ParallelStory.class, parallelProperty);
+    }
+
+    private static List<String> getFailures(final List<String> events) {
+        final List<String> failures = new ArrayList<String>();
+        for (final String event : events) {
+            if (event.startsWith("failure: ")) {
+                failures.add(event);
+            }
+        }
+        return failures;
+    }
+
+    private static List<String> run(final Class<?> storyClass, final String parallelProperty) {
+        return run(storyClass, parallelProperty, MEETING_MILLIS);
+    }
+
+    private static List<String> run(final Class<?> storyClass, final String parallelProperty, final long meetingTimeout) {
+        meeting       = new CountDownLatch(2);
+        meetingMillis = meetingTimeout;
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        final JUnitCore core = new JUnitCore();
+        core.addListener(new RunListener() {
+            @Override
+            public void testStarted(final Description description) {
+                events.add("started: " + description.getDisplayName());
+            }
+            @Override
+            public void testFailure(final Failure failure) {
+                events.add("failure: " + failure.getDescription().getDisplayName());
+            }
+            @Override
+            public void testFinished(final Description description) {
+                events.add("finished: " + description.getDisplayName());
+            }
+        });
+        /* The annotation is tested unless the property is given. */
+        final String originalProperty = System.getProperty(MByHaveRunner.PARALLEL_PROPERTY);
+        if (parallelProperty != null) {
+            System.setProperty(MByHaveRunner.PARALLEL_PROPERTY, parallelProperty);
+        } else {
+            System.clearProperty(MByHaveRunner.PARALLEL_PROPERTY);
+        }
+        try {
+            core.run(storyClass);
+        } finally {
+            if (originalProperty != null) {
+                System.setProperty(MByHaveRunner.PARALLEL_PROPERTY, originalProperty);
+            } else {
+                System.clearProperty(MByHaveRunner.PARALLEL_PROPERTY);
+            }
+        }
+        return events;
+    }
+
+    @Test
+    public void testScenariosRunConcurrently() {
+        /* Only the broken box check of the fourth scenario fails. */
+        assertEquals(Collections.singletonList("failure: 1.4.2. Then the box holds fifth(" + ParallelStory.class.getName() + ")"),
+                     getFailures(run(null)));
+    }
+
+    /**
+     * @return <tt>true</tt> if the JVM supports virtual threads (Java 21 or newer). Otherwise
+     *         the runner falls back to platform threads.
+     */
+    private static boolean isVirtualThreadSupported() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (final NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    @Test
+    public void testScenariosRunOnVirtualExecutor() {
+        Assume.assumeTrue(isVirtualThreadSupported());
+        assertEquals(Collections.singletonList("failure: 1.4.2. Then the box holds fifth(" + VirtualStory.class.getName() + ")"),
+                     getFailures(run(VirtualStory.class, null)));
+    }
+
+    @Test
+    public void testStoriesRunConcurrently() {
+        final List<String> events = run(ParallelStories.class, "2");
+
+        /* The first scenarios of the two stories meet each other. */
+        final String className = "(" + ParallelStories.class.getName() + ")";
+        assertEquals(Arrays.asList("failure: 1.4.2. Then the box holds fifth" + className,
+                                   "failure: 2.4.2. Then the box holds fifth" + className),
+                     getFailures(events));
+        /* The events of the stories are not interleaved. */
+        assertEquals("started: 1. parallelTest.story", events.get(1));
+        assertEquals(events.indexOf("finished: 1. parallelTest.story") + 1, events.indexOf("started: 2. parallelTest.story"));
+        assertEquals("finished: 2. parallelTest.story", events.get(events.size() - 2));
+    }
+
+    @Test
+    public void testVirtualExecutorConcurrencyCap() {
+        /* With one permit the first scenario waits for the second in vain. Without virtual thread
+         * support the cap is the size of the fallback thread pool. */
+        assertTrue(getFailures(run(SingleVirtualStory.class, null, MISSED_MEETING_MILLIS)).contains("failure: 1.1.2. When the scenarios meet(" + SingleVirtualStory.class.getName() + ")"));
+    }
+
+    @Test
+    public void testPlatformThreadFallbackIsCapped() {
+        final ExecutorService unlimited = MByHaveRunner.createPlatformThreadPool(0);
+        final ExecutorService limited   = MByHaveRunner.createPlatformThreadPool(3);
+        try {
+            assertEquals(Runtime.getRuntime().availableProcessors(), ((ThreadPoolExecutor) unlimited).getMaximumPoolSize());
+            assertEquals(3, ((ThreadPoolExecutor) limited).getMaximumPoolSize());
+        } finally {
+            unlimited.shutdown();
+            limited.shutdown();
+        }
+    }
+
+    @Test
+    public void testEventsAreGroupedByScenario() {
+        final List<String> events = run(null);
+
+        final String className = "(" + ParallelStory.class.getName() + ")";
+        final List<String> expected = new ArrayList<String>();
+        expected.add("started: 1. parallelTest.story");
+        final String[] scenarios = { "first", "second", "third", "fourth" };
+        for (int i = 0; i < scenarios.length; i++) {
+            final String scenarioName = "1." + (i + 1) + ". Scenario " + scenarios[i];
+            expected.add("started: " + scenarioName);
+            final String store = "1." + (i + 1) + ".1. Given the value " + scenarios[i] + " is stored in the box" + className;
+            expected.add("started: " + store);
+            expected.add("finished: " + store);
+            if (i < 2) {
+                final String meet = "1." + (i + 1) + ".2. When the scenarios meet" + className;
+                expected.add("started: " + meet);
+                expected.add("finished: " + meet);
+            }
+            if (i == 3) {
+                final String check = "1.4.2. Then the box holds fifth" + className;
+                expected.add("started: " + check);
+                expected.add("failure: " + check);
+            } else {
+                final int offset = i < 2 ? 3 : 2;
+                final String check = "1." + (i + 1) + "." + offset + ". Then the box holds " + scenarios[i] + className;
+                expected.add("started: " + check);
+                expected.add("finished: " + check);
+                /* The blank line closing the scenario is part of its last step. */
+                final String returnValue = "1." + (i + 1) + "." + (offset + 1) + ". Then the last returned value is " + scenarios[i] + " " + className;
+                expected.add("started: " + returnValue);
+                expected.add("finished: " + returnValue);
+            }
+            expected.add("finished: " + scenarioName);
+        }
+        expected.add("finished: 1. parallelTest.story");
+        expected.add(0, "started: " + ParallelStory.class.getName());
+        expected.add("finished: " + ParallelStory.class.getName());
+
+        assertEquals(expected, events);
+    }
+
+    @Test
+    public void testSystemPropertyDisablesParallelExecution() {
+        final List<String> events = run(ParallelStory.class, "false", MISSED_MEETING_MILLIS);
+
+        /* Serially the first scenario waits for the second in vain. */
+        assertTrue(events.contains("failure: 1.1.2. When the scenarios meet(" + ParallelStory.class.getName() + ")"));
+    }
+
+}
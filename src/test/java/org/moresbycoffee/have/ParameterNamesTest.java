@@ -0,0 +1,88 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+import org.moresbycoffee.have.exceptions.MByHaveException;
+
+/**
+ * Tests the parameter name lookup of the {@link ParameterNames}.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class ParameterNamesTest {
+
+    public void wideParameters(final long first, final double second, final String third) {
+        final long local = first;
+        assertNotNull(local + second + third);
+    }
+
+    public static void staticMethod(final int count, final String name) {
+        /* NOP */
+    }
+
+    public static abstract class AbstractSteps {
+        public abstract void abstractMethod(String name);
+    }
+
+    @Test
+    public void testWideParameters() throws Exception {
+        final Method method = ParameterNamesTest.class.getMethod("wideParameters", Long.TYPE, Double.TYPE, String.class);
+        assertArrayEquals(new String[] { "first", "second", "third" }, ParameterNames.lookup(method));
+    }
+
+    @Test
+    public void testStaticMethod() throws Exception {
+        final Method method = ParameterNamesTest.class.getMethod("staticMethod", Integer.TYPE, String.class);
+        assertArrayEquals(new String[] { "count", "name" }, ParameterNames.lookup(method));
+    }
+
+    @Test
+    public void testInheritedMethod() throws Exception {
+        final Method method = ReturnValueStoryFileTest.class.getMethod("assertReturnValue", ReturnValue.class);
+        assertArrayEquals(new String[] { "returnValue" }, ParameterNames.lookup(method));
+    }
+
+    @Test(expected = MByHaveException.class)
+    public void testNamesNotAvailable() throws Exception {
+        ParameterNames.lookup(AbstractSteps.class.getMethod("abstractMethod", String.class));
+    }
+
+    @Test
+    public void testDescriptor() throws Exception {
+        final Method method = ParameterNamesTest.class.getMethod("wideParameters", Long.TYPE, Double.TYPE, String.class);
+        assertEquals("(JDLjava/lang/String;)V", ClassFileReader.getDescriptor(method));
+    }
+
+}
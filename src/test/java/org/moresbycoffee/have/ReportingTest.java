@@ -0,0 +1,134 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Result;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.RunListener;
+import org.moresbycoffee.have.annotations.Given;
+import org.moresbycoffee.have.annotations.Reporting;
+import org.moresbycoffee.have.annotations.Story;
+import org.moresbycoffee.have.annotations.Then;
+import org.moresbycoffee.have.exceptions.MByHaveAssertionError;
+
+/**
+ * Tests the reporting granularities of the {@link MByHaveRunner}.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class ReportingTest {
+
+    @RunWith(MByHaveRunner.class)
+    @Story(files = "reportingTest.story")
+    public static class StepReportingStory {
+
+        private int value;
+
+        @Given("a value of $value")
+        public void setValue(final int value) {
+            this.value = value;
+        }
+
+        @Then("the value is $expected")
+        public void checkValue(final int expected) {
+            assertEquals(expected, value);
+        }
+    }
+
+    @Story(files = "reportingTest.story")
+    @Reporting(Reporting.Granularity.SCENARIO)
+    public static class ScenarioReportingStory extends StepReportingStory {
+    }
+
+    @Test
+    public void testScenarioDescription() throws Exception {
+        final Description description = new MByHaveRunner(ScenarioReportingStory.class).getDescription();
+        assertEquals(3, description.testCount());
+
+        final Description story = description.getChildren().get(0);
+        assertEquals("1.1. Scenario passing scenario(" + ScenarioReportingStory.class.getName() + ")", story.getChildren().get(0).getDisplayName());
+        for (final Description scenario : story.getChildren()) {
+            assertTrue(scenario.isTest());
+        }
+    }
+
+    @Test
+    public void testScenarioFailuresNameTheStep() {
+        final List<String> tests = new ArrayList<String>();
+        final JUnitCore core = new JUnitCore();
+        core.addListener(new RunListener() {
+            @Override
+            public void testFinished(final Description description) {
+                if (description.isTest()) {
+                    tests.add(description.getDisplayName());
+                }
+            }
+        });
+        final Result result = core.run(ScenarioReportingStory.class);
+
+        final String suffix = "(" + ScenarioReportingStory.class.getName() + ")";
+        /* The binding error is reported before the execution. */
+        assertEquals(3, tests.size());
+        assertEquals("1.3. Scenario scenario with an unbound step" + suffix, tests.get(0));
+        assertEquals("1.1. Scenario passing scenario" + suffix, tests.get(1));
+        assertEquals("1.2. Scenario failing scenario" + suffix, tests.get(2));
+
+        assertEquals(2, result.getFailureCount());
+        assertEquals("1.3. Scenario scenario with an unbound step" + suffix, result.getFailures().get(0).getDescription().getDisplayName());
+        assertTrue(result.getFailures().get(0).getMessage().startsWith("The \"When an unknown step\" step failed: "));
+
+        assertEquals("1.2. Scenario failing scenario" + suffix, result.getFailures().get(1).getDescription().getDisplayName());
+        assertTrue(result.getFailures().get(1).getException() instanceof MByHaveAssertionError);
+        assertTrue(result.getFailures().get(1).getMessage().startsWith("The \"Then the value is 1\" step failed: "));
+    }
+
+    @Test
+    public void testSystemPropertyOverridesTheAnnotation() throws Exception {
+        assertEquals(7, new MByHaveRunner(StepReportingStory.class).getDescription().testCount());
+
+        System.setProperty(MByHaveRunner.REPORTING_PROPERTY, "scenario");
+        try {
+            assertEquals(3, new MByHaveRunner(StepReportingStory.class).getDescription().testCount());
+            System.setProperty(MByHaveRunner.REPORTING_PROPERTY, "step");
+            assertEquals(7, new MByHaveRunner(ScenarioReportingStory.class).getDescription().testCount());
+        } finally {
+            System.clearProperty(MByHaveRunner.REPORTING_PROPERTY);
+        }
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import static org.junit.Assert.*;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.moresbycoffee.have.annotations.Given;
+import org.moresbycoffee.have.annotations.Then;
+
+/**
+ * Tests the {@link ReturnValueWiring}.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class ReturnValueWiringTest {
+
+    private final MByHaveConfiguration configuration = MByHaveConfigurator.configure(ReturnValueStoryFileTest.class, false);
+
+    @Test
+    public void testParametersAreWiredToTheLatestProducer() {
+        final List<BoundStep> steps = new ArrayList<BoundStep>();
+        steps.add(bind(Then.class, "the first scenarios return value shouldn't be here"));
+        steps.add(bind(Given.class, "a string return value"));
+        steps.add(bind(Given.class, "a null Integer return value"));
+        steps.add(bind(Given.class, "a string return value"));
+        steps.add(bind(Then.class, "the string return value is available in this method"));
+        steps.add(bind(Then.class, "the null Integer is here"));
+        steps.add(bind(Then.class, "no Boolean return value existing"));
+        steps.add(new BoundStep("Then an unknown step", new AssertionError()));
+
+        final ReturnValueWiring wiring = ReturnValueWiring.create(steps);
+        assertEquals(ReturnValueWiring.NO_SOURCE, wiring.getSource(0, 0));
+        assertEquals(3, wiring.getSource(4, 0));
+        assertEquals(2, wiring.getSource(5, 0));
+        assertEquals(ReturnValueWiring.NO_SOURCE, wiring.getSource(6, 0));
+
+        /* Only the consumed return values are recorded. */
+        assertFalse(wiring.isConsumed(1));
+        assertTrue(wiring.isConsumed(2));
+        assertTrue(wiring.isConsumed(3));
+        assertFalse(wiring.isConsumed(4));
+        assertFalse(wiring.isConsumed(7));
+    }
+
+    private BoundStep bind(final Class<? extends Annotation> keyword, final String step) {
+        final StepMatch match = configuration.getMatchers().get(keyword).match(step);
+        return new BoundStep(step, match, match.getCandidate().convertArguments(match.getArguments()));
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.reflect.TypeToken;
+
+/**
+ * Tests the return value history of the {@link ScenarioContext}.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class ScenarioContextTest {
+
+    private static final TypeToken<?> NUMBER      = TypeToken.of(Number.class);
+    private static final TypeToken<?> STRING_LIST = new TypeToken<List<String>>() { };
+
+    @Test
+    public void testLatestAssignableReturnValue() {
+        final ScenarioContext context = new ScenarioContext();
+        assertNull(context.getReturnValue(NUMBER));
+
+        final ReturnValue<Integer> one = new ReturnValue<Integer>(Integer.class, 1);
+        context.addReturnValue(one);
+        /* The already indexed type is updated by the new return value. */
+        assertSame(one, context.getReturnValue(NUMBER));
+
+        final ReturnValue<ArrayList<String>> list = new ReturnValue<ArrayList<String>>(new TypeToken<ArrayList<String>>() { }.getType(),
+                                                                                       new ArrayList<String>());
+        context.addReturnValue(list);
+        final ReturnValue<String> text = new ReturnValue<String>(String.class, "text");
+        context.addReturnValue(text);
+
+        assertSame(one, context.getReturnValue(NUMBER));
+        /* A type requested for the first time is looked up in the history. */
+        assertSame(list, context.getReturnValue(STRING_LIST));
+        assertSame(text, context.getReturnValue(TypeToken.of(Object.class)));
+        assertNull(context.getReturnValue(new TypeToken<List<Integer>>() { }));
+
+        final ReturnValue<Long> two = new ReturnValue<Long>(Long.class, 2L);
+        context.addReturnValue(two);
+        assertSame(two, context.getReturnValue(NUMBER));
+        assertSame(two, context.getReturnValue(TypeToken.of(Object.class)));
+        assertSame(list, context.getReturnValue(STRING_LIST));
+
+        context.clear();
+        assertNull(context.getReturnValue(NUMBER));
+        assertNull(context.getReturnValue(STRING_LIST));
+    }
+
+    @Test
+    public void testReturnValueTypeOfParameters() throws Exception {
+        assertEquals(TypeToken.of(String.class),
+                     new StepCandidate.MethodParameter("value", 0, ReturnValueTest.class.getMethod("assertReturnValue", ReturnValue.class).getGenericParameterTypes()[0]).getReturnValueType());
+        assertEquals(TypeToken.of(Object.class), new StepCandidate.MethodParameter("value", 0, ReturnValue.class).getReturnValueType());
+        assertNull(new StepCandidate.MethodParameter("value", 0, String.class).getReturnValueType());
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.moresbycoffee.have.exceptions.MByHaveException;
+
+import com.thoughtworks.paranamer.BytecodeReadingParanamer;
+import com.thoughtworks.paranamer.CachingParanamer;
+import com.thoughtworks.paranamer.Paranamer;
+
+/**
+ * <p>Compares the parameter name lookup of the {@link ParameterNames} with the former
+ * per-method Paranamer instantiation. Every round loads the test classes by a new class
+ * loader, so every round is a cold start.</p>
+ * <p>Not a unit test, run it by its <tt>main</tt> method with the test classpath.</p>
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class StartupBenchmark {
+
+    private static final int ROUNDS = 20;
+
+    /**
+     * @return The names of the classes of the package in the main and in the test class directories.
+     */
+    private static List<String> findClassNames() {
+        final String packageName = StartupBenchmark.class.getPackage().getName();
+        final List<String> classNames = new ArrayList<String>();
+        for (final Class<?> type : new Class<?>[] { StartupBenchmark.class, MByHaveRunner.class }) {
+            final File packageDir = new File(type.getResource(type.getSimpleName() + ".class").getFile()).getParentFile();
+            for (final String fileName : packageDir.list()) {
+                if (fileName.endsWith(".class")) {
+                    classNames.add(packageName + "." + fileName.substring(0, fileName.length() - ".class".length()));
+                }
+            }
+        }
+        return classNames;
+    }
+
+    private static List<Method> loadMethods(final List<String> classNames) throws Exception {
+        final String[] classPath = System.getProperty("java.class.path").split(File.pathSeparator);
+        final URL[] urls = new URL[classPath.length];
+        for (int i = 0; i < classPath.length; i++) {
+            urls[i] = new File(classPath[i]).toURI().toURL();
+        }
+        final ClassLoader classLoader = new URLClassLoader(urls, ClassLoader.getSystemClassLoader().getParent());
+        final List<Method> methods = new ArrayList<Method>();
+        for (final String className : classNames) {
+            for (final Method method : Class.forName(className, false, classLoader).getDeclaredMethods()) {
+                if (method.getParameterTypes().length > 0 && !method.isSynthetic()) {
+                    methods.add(method);
+                }
+            }
+        }
+        return methods;
+    }
+
+    private static long paranamer(final List<Method> methods) {
+        final long start = System.nanoTime();
+        for (final Method method : methods) {
+            final Paranamer paranamer = new CachingParanamer(new BytecodeReadingParanamer());
+            paranamer.lookupParameterNames(method, false);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long parameterNames(final List<Method> methods) {
+        final long start = System.nanoTime();
+        for (final Method method : methods) {
+            try {
+                ParameterNames.lookup(method);
+            } catch (final MByHaveException e) {
+                /* Abstract methods have no local variables. */
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final List<String> classNames = findClassNames();
+        long paranamerTotal      = 0;
+        long parameterNamesTotal = 0;
+        int  methodCount         = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            paranamerTotal      += paranamer(loadMethods(classNames));
+            final List<Method> methods = loadMethods(classNames);
+            parameterNamesTotal += parameterNames(methods);
+            methodCount = methods.size();
+        }
+        System.out.println(String.format("%d classes, %d methods with parameters per round", classNames.size(), methodCount));
+        System.out.println(String.format("Paranamer per method: %8.2f ms/round", paranamerTotal / 1e6 / ROUNDS));
+        System.out.println(String.format("ParameterNames:       %8.2f ms/round", parameterNamesTotal / 1e6 / ROUNDS));
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.moresbycoffee.have.annotations.Given;
+
+/**
+ * <p>Measures the bytes allocated per step on the step invocation path.</p>
+ * <p>Not a unit test, run it by its <tt>main</tt> method with the test classpath. The
+ * allocated bytes depend on the JVM and the JIT, the number is meant to be compared between
+ * the revisions on the same JVM.</p>
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class StepAllocationBenchmark {
+
+    private static final int WARMUP_STEPS   = 20000;
+    private static final int MEASURED_STEPS = 100000;
+
+    private int counter;
+
+    @Given("a step with $first and $second parameters")
+    public void step(final String first, final String second) {
+        counter++;
+    }
+
+    public static void main(final String[] args) {
+        final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)
+                || !((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported()) {
+            System.out.println("The allocated memory of the threads can not be measured on this JVM.");
+            return;
+        }
+        final com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+        final StepAllocationBenchmark benchmark = new StepAllocationBenchmark();
+        final MByHave mByHave = new MByHave(benchmark);
+        for (int i = 0; i < WARMUP_STEPS; i++) {
+            mByHave.given("a step with one and two parameters");
+        }
+
+        final long threadId = Thread.currentThread().getId();
+        final long before   = allocationBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_STEPS; i++) {
+            mByHave.given("a step with one and two parameters");
+        }
+        final long bytesPerStep = (allocationBean.getThreadAllocatedBytes(threadId) - before) / MEASURED_STEPS;
+
+        System.out.println(String.format("%d bytes/step (steps %d)", bytesPerStep, benchmark.counter));
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.moresbycoffee.have.annotations.Given;
+import org.moresbycoffee.have.annotations.When;
+
+/**
+ * Tests the {@link StepMatchCache}.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class StepMatchCacheTest {
+
+    private static final StepMatch MATCH = new StepMatch(null, new String[0]);
+
+    @Test
+    public void testHitAndMiss() {
+        final StepMatchCache cache = new StepMatchCache(10);
+        assertNull(cache.get(Given.class, "a step"));
+        cache.put(Given.class, "a step", MATCH);
+        assertSame(MATCH, cache.get(Given.class, "a step"));
+        assertNull(cache.get(When.class, "a step"));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() {
+        final StepMatchCache cache = new StepMatchCache(2);
+        cache.put(Given.class, "first", MATCH);
+        cache.put(Given.class, "second", MATCH);
+        cache.get(Given.class, "first");
+        cache.put(Given.class, "third", MATCH);
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(Given.class, "first"));
+        assertNull(cache.get(Given.class, "second"));
+        assertNotNull(cache.get(Given.class, "third"));
+    }
+
+    @Test
+    public void testDisabled() {
+        final StepMatchCache cache = new StepMatchCache(0);
+        cache.put(Given.class, "a step", MATCH);
+        assertNull(cache.get(Given.class, "a step"));
+    }
+
+}
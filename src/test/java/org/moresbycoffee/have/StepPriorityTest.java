@@ -105,6 +105,27 @@ public class StepPriorityTest {
         new MByHave(this).when("a then method with a parameter");
         assertTrue(thirdTest);
     }
+
+    private boolean fourthTest = false;
+
+    @When(value = "$subject is picked up first", priority = 2)
+    public void whenPlaceholderFirst(final String subject) {
+        fourthTest = true;
+    }
+
+    @When("the literal prefix is picked up first")
+    public void whenLiteralPrefix() {
+        fail();
+    }
+
+    /**
+     * Tests the priority of a definition starting with a placeholder against a definition with literal prefix.
+     */
+    @Test
+    public void testPlaceholderFirstPriority() {
+        new MByHave(this).when("the literal prefix is picked up first");
+        assertTrue(fourthTest);
+    }
     
     
 }
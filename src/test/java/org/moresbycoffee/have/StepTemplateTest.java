@@ -0,0 +1,147 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+import org.moresbycoffee.have.annotations.Given;
+
+/**
+ * Tests the {@link StepTemplate} matching against the equivalent regular expression.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class StepTemplateTest {
+
+    private String count;
+
+    @Given("$count:int apples")
+    public void apples(final String count) {
+        this.count = count;
+    }
+
+    @Test
+    public void testSameBindingsAsRegEx() {
+        assertSameBindings("given text $first $second blah blah", "given text blah blah blah blah", "first", "second");
+        assertSameBindings("second text $first $second", "second text blah \nblah  test", "first", "second");
+        assertSameBindings("third $first $second method", "third parameter 123 second method", "first", "second");
+        assertSameBindings("$first$second", "adjacent placeholders", "first", "second");
+        assertSameBindings("a $first b $second b", "a b b b b b b", "first", "second");
+        assertSameBindings("a $first b $second b", "a b b", "first", "second");
+        assertSameBindings("a $first a", "a", "first");
+        assertSameBindings("something test", "something test blah blah");
+        assertSameBindings("(.*) pattern", "(.*) pattern");
+        assertSameBindings("costs $5 for $item", "costs $5 for a coffee", "item");
+    }
+
+    @Test
+    public void testTypedSlots() {
+        final StepTemplate template = StepTemplate.compile("$count:int items cost $price:number by $name:word", Arrays.asList("count", "price", "name"));
+        assertEquals(StepTemplate.SlotType.INT, template.getSlotType(0));
+        assertArrayEquals(new String[] { "12", "-3.50", "bob" }, template.match("12 items cost -3.50 by bob"));
+        assertNull(template.match("twelve items cost 3.50 by bob"));
+        assertNull(template.match("12 items cost 3. by bob"));
+        assertNull(template.match("12 items cost 3.50 by bob smith"));
+    }
+
+    @Test
+    public void testTypedSlotsBindLikeRegEx() {
+        assertSameBindings("Given $a:int $b", "Given 12 34 56", "a", "b");
+        assertSameBindings("Given $a $b:int", "Given 12 34 x", "a", "b");
+        assertSameBindings("$a:int $b:word $c", "1 2 3 x y z", "a", "b", "c");
+        assertSameBindings("$a $b:int and $c:number", "x 1 and 2 and 3.5 and y", "a", "b", "c");
+        assertSameBindings("$a:word-$b", "x-y-z", "a", "b");
+        assertSameBindings("$a:word $b", "x\u2028y z", "a", "b");
+        assertSameBindings("line $a", "line x\ry", "a");
+        assertSameBindings("line $a", "line x\ny", "a");
+        assertSameBindings("$a:number.$b", "1.2.3", "a", "b");
+        assertSameBindings("$a $b:number $c", "x -1.5 2. y", "a", "b", "c");
+        assertSameBindings("$a:int$b", "-12x", "a", "b");
+        assertSameBindings("$a $b:int $c", "x + 1", "a", "b", "c");
+    }
+
+    /** Each slot and start index is searched once, the backtracking does not grow with the number of the slots. */
+    @Test(timeout = 5000)
+    public void testPathologicalTypedSlots() {
+        final StringBuilder step = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            step.append("x ");
+        }
+        final StepTemplate template = StepTemplate.compile("$a $b $c $d:int end", Arrays.asList("a", "b", "c", "d"));
+        assertNull(template.match(step + "y end"));
+        assertSameBindings("$a $b $c $d:int end", step + "5 end", "a", "b", "c", "d");
+    }
+
+    @Given("numbers $first:int $rest")
+    public void numbers(final String first, final String rest) {
+    }
+
+    @Test
+    public void testEnginesBindTypedSlotsIdentically() {
+        final List<StepCandidate> candidates = MByHaveConfigurator.configure(StepTemplateTest.class, false).getMatchers().get(Given.class).getCandidates();
+        final StepMatch template = new StepMatcher(candidates, StepMatcher.Engine.TEMPLATE).match("numbers 12 34 56");
+        final StepMatch regEx    = new StepMatcher(candidates, StepMatcher.Engine.REGEX).match("numbers 12 34 56");
+        assertSame(regEx.getCandidate(), template.getCandidate());
+        assertArrayEquals(new String[] { "12", "34 56" }, regEx.getArguments());
+        assertArrayEquals(regEx.getArguments(), template.getArguments());
+    }
+
+    @Test
+    public void testTypedSlotInStep() {
+        new MByHave(this).given("42 apples");
+        assertEquals("42", count);
+    }
+
+    @Test(expected = AssertionError.class)
+    public void testTypedSlotMismatchInStep() {
+        new MByHave(this).given("some apples");
+    }
+
+    private static void assertSameBindings(final String definition, final String step, final String... paramNames) {
+        final StepTemplate template = StepTemplate.compile(definition, Arrays.asList(paramNames));
+        final Matcher      matcher  = Pattern.compile(template.toRegEx()).matcher(step.replace('\n', ' '));
+        final String[]     values   = template.match(step);
+        if (!matcher.matches()) {
+            assertNull(values);
+            return;
+        }
+        assertNotNull(values);
+        for (int i = 0; i < paramNames.length; i++) {
+            assertEquals(step.substring(matcher.start(i + 1), matcher.end(i + 1)), values[i]);
+        }
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.moresbycoffee.have.domain.ScenarioOutline;
+import org.moresbycoffee.have.domain.Story;
+
+/**
+ * Tests the {@link StoryCache}.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class StoryCacheTest {
+
+    private File cacheDir;
+    private File storyFile;
+    private URL  storyUrl;
+
+    @Before
+    public void setUp() throws Exception {
+        cacheDir = File.createTempFile("mbyhave-story-cache", "");
+        assertTrue(cacheDir.delete());
+        storyFile = File.createTempFile("cached", ".story");
+        storyUrl = storyFile.toURI().toURL();
+        System.setProperty(StoryCache.DIR_PROPERTY, cacheDir.getPath());
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty(StoryCache.DIR_PROPERTY);
+        final File[] cacheFiles = cacheDir.listFiles();
+        if (cacheFiles != null) {
+            for (final File cacheFile : cacheFiles) {
+                cacheFile.delete();
+            }
+        }
+        cacheDir.delete();
+        storyFile.delete();
+    }
+
+    private void writeStory(final String content) throws IOException {
+        final OutputStream os = new FileOutputStream(storyFile);
+        try {
+            os.write(content.getBytes("UTF-8"));
+        } finally {
+            os.close();
+        }
+    }
+
+    @Test
+    public void testStoryIsCached() throws Exception {
+        writeStory("Scenario first\nGiven first method\nThen second\n  line\nScenario árvíztűrő\nWhen third\n");
+        final Story parsed = StoryLoader.load("cached.story", storyUrl);
+
+        final File cacheFile = new StoryCache(cacheDir).getCacheFile(storyUrl);
+        assertTrue(cacheFile.isFile());
+        final long lastModified = cacheFile.lastModified();
+
+        final Story cached = StoryLoader.load("cached.story", storyUrl);
+        assertEquals(parsed.getScenario().size(), cached.getScenario().size());
+        for (int i = 0; i < parsed.getScenario().size(); i++) {
+            assertEquals(parsed.getScenario().get(i).getDescription(), cached.getScenario().get(i).getDescription());
+            assertEquals(parsed.getScenario().get(i).getSteps(), cached.getScenario().get(i).getSteps());
+        }
+        assertEquals("cached.story", cached.getName());
+        assertEquals(lastModified, cacheFile.lastModified());
+    }
+
+    @Test
+    public void testOutlineIsCached() throws Exception {
+        writeStory("Scenario outline\nGiven <a> and <b>\nExamples:\n| a | b |\n| 1 | 2 |\n\nScenario external\nGiven <a>\nExamples: a.csv\n");
+        StoryLoader.load("cached.story", storyUrl);
+        final Story cached = StoryLoader.load("cached.story", storyUrl);
+
+        final ScenarioOutline outline = (ScenarioOutline) cached.getScenario().get(0);
+        assertEquals("Given 1 and 2", outline.iterator().next().getSteps().get(0));
+        assertEquals(new URL(storyUrl, "a.csv"), ((ScenarioOutline) cached.getScenario().get(1)).getExamples().getResource());
+    }
+
+    @Test
+    public void testChangedStoryIsParsed() throws Exception {
+        writeStory("Scenario first\nGiven first method\n");
+        assertEquals(1, StoryLoader.load("cached.story", storyUrl).getScenario().size());
+
+        writeStory("Scenario first\nGiven first method\nScenario second\nGiven second method\n");
+        assertEquals(2, StoryLoader.load("cached.story", storyUrl).getScenario().size());
+        /* The rewritten cache entry is used. */
+        assertEquals(2, StoryLoader.load("cached.story", storyUrl).getScenario().size());
+    }
+
+    @Test
+    public void testCorruptCacheFileIsIgnored() throws Exception {
+        writeStory("Scenario first\nGiven first method\n");
+        final File cacheFile = new StoryCache(cacheDir).getCacheFile(storyUrl);
+        assertTrue(cacheDir.mkdirs());
+        final OutputStream os = new FileOutputStream(cacheFile);
+        try {
+            os.write(new byte[] { 'M', 'B', 'y', 'S', 0, 0, 0 });
+        } finally {
+            os.close();
+        }
+        assertEquals(1, StoryLoader.load("cached.story", storyUrl).getScenario().size());
+    }
+
+    @Test
+    public void testCorruptLengthIsIgnored() throws Exception {
+        writeStory("Scenario first\nGiven first method\n");
+        StoryLoader.load("cached.story", storyUrl);
+        final File   cacheFile = new StoryCache(cacheDir).getCacheFile(storyUrl);
+        final byte[] entry     = Files.readAllBytes(cacheFile.toPath());
+
+        /* Magic, version, URL, content hash and scenario count precede the description length. */
+        final int descriptionLength = 4 + 4 + 4 + storyUrl.toExternalForm().getBytes("UTF-8").length + 2 + 20 + 4;
+        for (final byte corruption : new byte[] { (byte) 0xFF, (byte) 0x7F }) {
+            final byte[] corrupt = entry.clone();
+            corrupt[descriptionLength] = corruption;
+            Files.write(cacheFile.toPath(), corrupt);
+
+            final Story story = StoryLoader.load("cached.story", storyUrl);
+            assertEquals("Scenario first", story.getScenario().get(0).getDescription());
+        }
+    }
+
+    @Test
+    public void testCacheIsDisabledByDefault() throws Exception {
+        System.clearProperty(StoryCache.DIR_PROPERTY);
+        assertNull(StoryCache.fromSystemProperty());
+
+        writeStory("Scenario first\nGiven first method\n");
+        StoryLoader.load("cached.story", storyUrl);
+        assertFalse(cacheDir.exists());
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URL;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.moresbycoffee.have.domain.Scenario;
+
+/**
+ * <p>Measures the story load throughput in MB/s of the memory-mapped file path and the
+ * stream path (plain file read as a stream, and a jar resource).</p>
+ * <p>Not a unit test, run it by its <tt>main</tt> method with the test classpath.</p>
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class StoryLoadBenchmark {
+
+    private static final int SCENARIOS = 200000;
+    private static final int ROUNDS    = 10;
+
+    private static File createStory() throws Exception {
+        final File storyFile = File.createTempFile("benchmark", ".story");
+        storyFile.deleteOnExit();
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(storyFile), StoryParser.UTF_8));
+        try {
+            for (int i = 0; i < SCENARIOS; i++) {
+                writer.write("# Captured request " + i + "\n");
+                writer.write("Scenario request " + i + " from the production traffic\n");
+                writer.write("Given the customer " + i + " has an account with 100 EUR\n");
+                writer.write("When the customer transfers " + (i % 100) + " EUR to the account " + (i + 1) + "\n");
+                writer.write("Then the balance of the customer is " + (100 - i % 100) + " EUR\n\n");
+            }
+        } finally {
+            writer.close();
+        }
+        return storyFile;
+    }
+
+    private static File createJar(final File storyFile) throws Exception {
+        final File jarFile = File.createTempFile("benchmark", ".jar");
+        jarFile.deleteOnExit();
+        final JarOutputStream jarOs = new JarOutputStream(new FileOutputStream(jarFile));
+        try {
+            jarOs.putNextEntry(new ZipEntry("benchmark.story"));
+            final InputStream storyIs = new FileInputStream(storyFile);
+            try {
+                final byte[] buffer = new byte[65536];
+                int read;
+                while ((read = storyIs.read(buffer)) != -1) {
+                    jarOs.write(buffer, 0, read);
+                }
+            } finally {
+                storyIs.close();
+            }
+            jarOs.closeEntry();
+        } finally {
+            jarOs.close();
+        }
+        return jarFile;
+    }
+
+    private static long parse(final Reader reader) throws Exception {
+        final int[] scenarios = new int[1];
+        final long start = System.nanoTime();
+        try {
+            StoryParser.parse(reader, false, new StoryParser.ScenarioHandler() {
+                public void scenario(final Scenario scenario) {
+                    scenarios[0]++;
+                }
+            });
+        } finally {
+            reader.close();
+        }
+        if (scenarios[0] != SCENARIOS) {
+            throw new IllegalStateException("Parsed scenarios: " + scenarios[0]);
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Reads the whole story without parsing it, to measure the loading alone.
+     */
+    private static long decode(final Reader reader) throws Exception {
+        final char[] buffer = new char[8192];
+        final long start = System.nanoTime();
+        try {
+            while (reader.read(buffer, 0, buffer.length) != -1) {
+                /* NOP */
+            }
+        } finally {
+            reader.close();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void report(final String path, final long bytes, final long bestNanos) {
+        System.out.println(String.format("%-16s %8.1f MB/s", path, bytes / (1024.0 * 1024.0) / (bestNanos / 1e9)));
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final File storyFile = createStory();
+        final URL  fileUrl   = storyFile.toURI().toURL();
+        final URL  jarUrl    = new URL("jar:" + createJar(storyFile).toURI().toURL() + "!/benchmark.story");
+        System.out.println(String.format("Story: %d scenarios, %.1f MB", SCENARIOS, storyFile.length() / (1024.0 * 1024.0)));
+
+        final long[] load  = { Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE };
+        final long[] parse = { Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE };
+        for (int i = 0; i < ROUNDS; i++) {
+            load[0]  = Math.min(load[0],  decode(StoryLoader.openReader(fileUrl, StoryParser.UTF_8)));
+            load[1]  = Math.min(load[1],  decode(StoryLoader.openStreamReader(fileUrl, StoryParser.UTF_8)));
+            load[2]  = Math.min(load[2],  decode(StoryLoader.openReader(jarUrl, StoryParser.UTF_8)));
+            parse[0] = Math.min(parse[0], parse(StoryLoader.openReader(fileUrl, StoryParser.UTF_8)));
+            parse[1] = Math.min(parse[1], parse(StoryLoader.openStreamReader(fileUrl, StoryParser.UTF_8)));
+            parse[2] = Math.min(parse[2], parse(StoryLoader.openReader(jarUrl, StoryParser.UTF_8)));
+        }
+        final String[] paths = { "mapped file", "streamed file", "jar resource" };
+        System.out.println("Load (decode only):");
+        for (int i = 0; i < paths.length; i++) {
+            report(paths[i], storyFile.length(), load[i]);
+        }
+        System.out.println("Load and parse:");
+        for (int i = 0; i < paths.length; i++) {
+            report(paths[i], storyFile.length(), parse[i]);
+        }
+    }
+
+}
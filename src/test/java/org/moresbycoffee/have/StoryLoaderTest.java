@@ -0,0 +1,211 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.junit.Test;
+import org.moresbycoffee.have.domain.Story;
+import org.moresbycoffee.have.exceptions.MByHaveException;
+
+/**
+ * Tests the {@link StoryLoader}.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class StoryLoaderTest {
+
+    private static final String STORY = "Scenario árvíztűrő 😀\nGiven first method\n";
+
+    private static String readAll(final Reader reader, final int bufferSize) throws IOException {
+        final StringBuilder content = new StringBuilder();
+        final char[] buffer = new char[bufferSize];
+        int read;
+        while ((read = reader.read(buffer, 0, bufferSize)) != -1) {
+            content.append(buffer, 0, read);
+        }
+        return content.toString();
+    }
+
+    @Test
+    public void testByteBufferReader() throws Exception {
+        final byte[] bytes = STORY.getBytes("UTF-8");
+        assertEquals(STORY, readAll(new StoryLoader.ByteBufferReader(ByteBuffer.wrap(bytes), StoryParser.UTF_8), 8192));
+        /* The surrogate pair is split between two reads. */
+        assertEquals(STORY, readAll(new StoryLoader.ByteBufferReader(ByteBuffer.wrap(bytes), StoryParser.UTF_8), 1));
+        assertEquals("", readAll(new StoryLoader.ByteBufferReader(ByteBuffer.allocate(0), StoryParser.UTF_8), 16));
+    }
+
+    @Test(timeout = 10000)
+    public void testTruncatedTrailingSequence() throws Exception {
+        /* The last character (the euro sign) is cut after its second byte. */
+        final byte[] bytes = { 'a', 'b', 'c', (byte) 0xE2, (byte) 0x82 };
+        assertEquals("abc\uFFFD", readAll(new StoryLoader.ByteBufferReader(ByteBuffer.wrap(bytes), StoryParser.UTF_8), 16));
+
+        final File storyFile = File.createTempFile("truncated", ".story");
+        storyFile.deleteOnExit();
+        final FileOutputStream storyOs = new FileOutputStream(storyFile);
+        try {
+            storyOs.write(bytes);
+        } finally {
+            storyOs.close();
+        }
+        final Reader reader = StoryLoader.openReader(storyFile.toURI().toURL(), StoryParser.UTF_8);
+        try {
+            assertTrue(reader instanceof StoryLoader.ByteBufferReader);
+            assertEquals("abc\uFFFD", readAll(reader, 16));
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testFileIsMapped() throws Exception {
+        final URL storyUrl = StoryLoader.resolve("storytest1.story", Story1Test.class);
+        assertEquals("file", storyUrl.getProtocol());
+
+        final Reader reader = StoryLoader.openReader(storyUrl, StoryParser.UTF_8);
+        try {
+            assertTrue(reader instanceof StoryLoader.ByteBufferReader);
+        } finally {
+            reader.close();
+        }
+        final Story story = StoryLoader.load("storytest1.story", storyUrl);
+        assertEquals(2, story.getScenario().size());
+    }
+
+    @Test
+    public void testJarIsStreamed() throws Exception {
+        final File jarFile = File.createTempFile("stories", ".jar");
+        jarFile.deleteOnExit();
+        final JarOutputStream jarOs = new JarOutputStream(new FileOutputStream(jarFile));
+        try {
+            jarOs.putNextEntry(new ZipEntry("test.story"));
+            jarOs.write(STORY.getBytes("UTF-8"));
+            jarOs.closeEntry();
+        } finally {
+            jarOs.close();
+        }
+
+        final URL storyUrl = new URL("jar:" + jarFile.toURI().toURL() + "!/test.story");
+        final Reader reader = StoryLoader.openReader(storyUrl, StoryParser.UTF_8);
+        try {
+            assertFalse(reader instanceof StoryLoader.ByteBufferReader);
+            assertEquals(STORY, readAll(reader, 8192));
+        } finally {
+            reader.close();
+        }
+    }
+
+    @org.moresbycoffee.have.annotations.Story(files = "storytest?.story")
+    public static class GlobStory extends Story1Test {
+    }
+
+    @Test
+    public void testGlob() {
+        assertTrue(StoryLocator.compileGlob("stories/**/*.story").matcher("stories/a/b/c.story").matches());
+        assertTrue(StoryLocator.compileGlob("stories/**/*.story").matcher("stories/c.story").matches());
+        assertFalse(StoryLocator.compileGlob("stories/*.story").matcher("stories/a/c.story").matches());
+        assertFalse(StoryLocator.compileGlob("stories/*.story").matcher("stories/c.story.bak").matches());
+        assertTrue(StoryLocator.compileGlob("a.b/?.story").matcher("a.b/c.story").matches());
+        assertFalse(StoryLocator.compileGlob("a.b/?.story").matcher("aXb/c.story").matches());
+    }
+
+    @Test
+    public void testDiscoverInPackage() throws Exception {
+        final Map<String, URL> storyUrls = StoryLoader.discover("storytest*.story", Story1Test.class);
+        assertEquals(Collections.singletonList("org/moresbycoffee/have/storytest1.story"), new ArrayList<String>(storyUrls.keySet()));
+        assertSame(storyUrls, StoryLoader.discover("storytest*.story", Story1Test.class));
+
+        final MByHaveRunner runner = new MByHaveRunner(GlobStory.class);
+        assertEquals("1. org/moresbycoffee/have/storytest1.story", runner.getDescription().getChildren().get(0).getDisplayName());
+    }
+
+    @Test
+    public void testDiscoverInJar() throws Exception {
+        final File jarFile = File.createTempFile("stories", ".jar");
+        jarFile.deleteOnExit();
+        final JarOutputStream jarOs = new JarOutputStream(new FileOutputStream(jarFile));
+        try {
+            for (final String name : new String[] { "stories/", "stories/b/", "stories/b/x.story", "stories/a.story", "stories/c.txt" }) {
+                jarOs.putNextEntry(new ZipEntry(name));
+                if (!name.endsWith("/")) {
+                    jarOs.write(STORY.getBytes("UTF-8"));
+                }
+                jarOs.closeEntry();
+            }
+        } finally {
+            jarOs.close();
+        }
+
+        final URLClassLoader classLoader = new URLClassLoader(new URL[] { jarFile.toURI().toURL() }, null);
+        try {
+            final Map<String, URL> storyUrls = new StoryLocator().discover("stories/**/*.story", "", Arrays.<ClassLoader>asList(classLoader));
+            assertEquals(Arrays.asList("stories/a.story", "stories/b/x.story"), new ArrayList<String>(storyUrls.keySet()));
+
+            final Story story = StoryLoader.load("stories/b/x.story", storyUrls.get("stories/b/x.story"));
+            assertEquals(Arrays.asList("Given first method"), story.getScenario().get(0).getSteps());
+        } finally {
+            classLoader.close();
+        }
+    }
+
+    @Test
+    public void testMissingStoryListsSearchedPlaces() {
+        try {
+            StoryLoader.resolve("missing.story", Story1Test.class);
+            fail();
+        } catch (final MByHaveException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("\n  missing.story in "));
+            assertTrue(e.getMessage(), e.getMessage().contains("\n  org/moresbycoffee/have/missing.story in "));
+        }
+        try {
+            StoryLoader.discover("missing/**/*.story", Story1Test.class);
+            fail();
+        } catch (final MByHaveException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("\n  org/moresbycoffee/have/missing/ in "));
+        }
+    }
+
+}
@@ -0,0 +1,232 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.moresbycoffee.have;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.moresbycoffee.have.domain.Examples;
+import org.moresbycoffee.have.domain.Scenario;
+import org.moresbycoffee.have.domain.Keyword;
+import org.moresbycoffee.have.domain.ScenarioOutline;
+import org.moresbycoffee.have.domain.StepTable;
+import org.moresbycoffee.have.domain.Story;
+import org.moresbycoffee.have.exceptions.MByHaveException;
+
+/**
+ * Tests the {@link StoryParser}.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class StoryParserTest {
+
+    private static final String STORY = "This line is ignored\n"
+                                      + "# This is a comment\n"
+                                      + "Scenario first\n"
+                                      + "with a long description\n"
+                                      + "Given a step\n"
+                                      + "# Comment inside\n"
+                                      + "When a step\n"
+                                      + "continued in the next line\n"
+                                      + "Then the last step\n"
+                                      + "\n"
+                                      + "Scenario second\n"
+                                      + "Given árvíztűrő tükörfúrógép\n";
+
+    @Test
+    public void testParseStory() throws Exception {
+        final Story story = StoryParser.parseStory("test.story", new ByteArrayInputStream(STORY.getBytes("UTF-8")), StoryParser.UTF_8);
+
+        assertEquals("test.story", story.getName());
+        assertEquals(2, story.getScenario().size());
+
+        final Scenario first = story.getScenario().get(0);
+        assertEquals("Scenario firstwith a long description\n", first.getDescription());
+        assertEquals(Arrays.asList("Given a step", "When a stepcontinued in the next line\n", "Then the last step\n"), first.getSteps());
+
+        final Scenario second = story.getScenario().get(1);
+        assertEquals("Scenario second", second.getDescription());
+        assertEquals(Arrays.asList("Given árvíztűrő tükörfúrógép"), second.getSteps());
+    }
+
+    @Test
+    public void testDefaultDescription() throws Exception {
+        final Scenario scenario = StoryParser.parseScenario(new StringReader("Given a step\nThen another step"));
+
+        assertEquals("Scenario", scenario.getDescription());
+        assertEquals(Arrays.asList("Given a step", "Then another step"), scenario.getSteps());
+    }
+
+    @Test
+    public void testScenariosAreHandledOneByOne() throws Exception {
+        final List<String> events = new ArrayList<String>();
+        StoryParser.parse(new StringReader(STORY) {
+            @Override
+            public int read(final char[] buffer, final int offset, final int length) throws IOException {
+                /* Reads a single character at a time to see when the scenarios are handled. */
+                final int read = super.read(buffer, offset, Math.min(1, length));
+                if (read > 0 && buffer[offset] == '\n') {
+                    events.add("line");
+                }
+                return read;
+            }
+        }, false, new StoryParser.ScenarioHandler() {
+            public void scenario(final Scenario scenario) {
+                events.add(scenario.getDescription());
+            }
+        });
+
+        /* The first scenario is handled when the second scenario line is read. */
+        assertEquals(11, events.indexOf("Scenario firstwith a long description\n"));
+        assertEquals("Scenario second", events.get(events.size() - 1));
+    }
+
+    @Test(expected = MByHaveException.class)
+    public void testScenarioWithoutStep() throws Exception {
+        StoryParser.parseStory("test.story", new ByteArrayInputStream("Scenario without steps\n\nScenario second\nGiven a step".getBytes("UTF-8")), StoryParser.UTF_8);
+    }
+
+    @Test(expected = MByHaveException.class)
+    public void testTwoScenarioDescriptions() throws Exception {
+        StoryParser.parseScenario(new StringReader("Scenario first\nGiven a step\nScenario second\nGiven a step"));
+    }
+
+    @Test
+    public void testParseOutline() throws Exception {
+        final Story story = StoryParser.parseStory("test.story", new StringReader("Scenario outline\n"
+                                                                                 + "Given <count> apples\n"
+                                                                                 + "Then <name> has <count> apples\n"
+                                                                                 + "\n"
+                                                                                 + "Examples:\n"
+                                                                                 + "| count | name  |\n"
+                                                                                 + "| 1     | Alice |\n"
+                                                                                 + "|  2    | Bob   |\n"
+                                                                                 + "\n"
+                                                                                 + "Scenario external\n"
+                                                                                 + "Given <count> apples\n"
+                                                                                 + "Examples: apples.csv\n"),
+                                                   new URL("file:/stories/test.story"));
+        assertEquals(2, story.getScenario().size());
+
+        final ScenarioOutline outline = (ScenarioOutline) story.getScenario().get(0);
+        assertEquals(Arrays.asList("Given <count> apples", "Then <name> has <count> apples\n"), outline.getSteps());
+        assertEquals(Arrays.asList("count", "name"), outline.getExamples().getHeader());
+
+        final List<Scenario> examples = new ArrayList<Scenario>();
+        for (final Scenario example : outline) {
+            examples.add(example);
+        }
+        assertEquals(2, examples.size());
+        assertEquals(Arrays.asList("Given 1 apples", "Then Alice has 1 apples\n"), examples.get(0).getSteps());
+        assertEquals(Arrays.asList("Given 2 apples", "Then Bob has 2 apples\n"), examples.get(1).getSteps());
+
+        final ScenarioOutline external = (ScenarioOutline) story.getScenario().get(1);
+        assertEquals(new URL("file:/stories/apples.csv"), external.getExamples().getResource());
+    }
+
+    @Test
+    public void testSubstitute() {
+        final List<String> header = Arrays.asList("a", "b");
+        final List<String> row    = Arrays.asList("1", "<a>");
+        assertEquals("1 < 2 and <a> <c>", ScenarioOutline.substitute("<a> < 2 and <b> <c>", header, row));
+    }
+
+    @Test
+    public void testParseCsvRow() {
+        assertEquals(Arrays.asList("a", "b c", " quoted, \"value\" ", ""),
+                     Examples.parseCsvRow(" a , b c ,\" quoted, \"\"value\"\" \" ,"));
+    }
+
+    @Test(expected = MByHaveException.class)
+    public void testStepAfterExamples() throws Exception {
+        StoryParser.parseScenario(new StringReader("Scenario outline\nGiven <a>\nExamples:\n| a |\n| 1 |\nThen <a>"));
+    }
+
+    @Test(expected = MByHaveException.class)
+    public void testExampleRowSize() throws Exception {
+        StoryParser.parseScenario(new StringReader("Scenario outline\nGiven <a>\nExamples:\n| a | b |\n| 1 |"));
+    }
+
+    @Test(expected = MByHaveException.class)
+    public void testExternalExamplesWithoutStoryFile() throws Exception {
+        StoryParser.parseScenario(new StringReader("Scenario outline\nGiven <a>\nExamples: a.csv"));
+    }
+
+    @Test
+    public void testStepsAreInterned() throws Exception {
+        final StepTable stepTable = new StepTable();
+        final Story story = StoryParser.parseStory("interned", new StringReader("Scenario first\nGiven a shared step\nThen a multi\nline step\n"
+                                                                              + "Scenario second\nGiven a shared step\n"), null, stepTable);
+        final Scenario first  = story.getScenario().get(0);
+        final Scenario second = story.getScenario().get(1);
+
+        assertSame(stepTable, first.getStepTable());
+        assertEquals(first.getStepId(0), second.getStepId(0));
+        assertSame(first.getSteps().get(0), second.getSteps().get(0));
+
+        final StepTable table = first.getStepTable();
+        assertEquals(Keyword.GIVEN, table.getKeyword(first.getStepId(0)));
+        assertEquals(Keyword.THEN, table.getKeyword(first.getStepId(1)));
+        assertEquals("Then a multiline step\n", table.getStep(first.getStepId(1)));
+        assertEquals("Then a multiline step ", table.getDisplayText(first.getStepId(1)));
+    }
+
+    @Test
+    public void testStoriesDoNotShareTheStepTableByDefault() throws Exception {
+        final Story first  = StoryParser.parseStory("first", new StringReader("Scenario first\nGiven a step\n"));
+        final Story second = StoryParser.parseStory("second", new StringReader("Scenario second\nGiven a step\n"));
+        assertNotSame(first.getScenario().get(0).getStepTable(), second.getScenario().get(0).getStepTable());
+
+        final Scenario scenario = StoryParser.parseScenario(new StringReader("Given an embedded step\n"));
+        assertEquals(Arrays.asList("Given an embedded step"), scenario.getSteps());
+    }
+
+    @Test
+    public void testStepTable() {
+        final StepTable table = new StepTable();
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i, table.intern("When step " + i));
+        }
+        assertEquals(7, table.intern("When step 7"));
+        assertEquals(200, table.size());
+        assertEquals("When step 199", table.getStep(199));
+        assertEquals(Keyword.WHEN, table.getKeyword(199));
+        assertNull(table.getKeyword(table.intern("And no keyword")));
+    }
+
+}